@@ -23,9 +23,23 @@ import me.devziyad.unipoolbackend.user.dto.UserResponse;
 import me.devziyad.unipoolbackend.user.dto.UploadImageRequest;
 import me.devziyad.unipoolbackend.user.dto.VerifyUserRequest;
 import me.devziyad.unipoolbackend.rating.RatingRepository;
+import me.devziyad.unipoolbackend.notification.NotificationDispatcher;
 import me.devziyad.unipoolbackend.notification.NotificationRepository;
+import me.devziyad.unipoolbackend.notification.NotificationRetentionJob;
+import me.devziyad.unipoolbackend.notification.OutboundDeadLetterRepository;
+import me.devziyad.unipoolbackend.notification.OutboundNotificationDispatcher;
+import me.devziyad.unipoolbackend.notification.RideReminderScheduler;
+import me.devziyad.unipoolbackend.notification.ScheduledNotificationDelivery;
+import me.devziyad.unipoolbackend.notification.UserNotificationPreferenceRepository;
+import me.devziyad.unipoolbackend.notification.UnreadNotificationCounter;
+import me.devziyad.unipoolbackend.notification.UserEventStream;
+import me.devziyad.unipoolbackend.tracking.GpsTrackPointRepository;
 import me.devziyad.unipoolbackend.tracking.GpsTrackingRepository;
+import me.devziyad.unipoolbackend.tracking.RideOwnershipCache;
+import me.devziyad.unipoolbackend.tracking.RideTrackingCleanup;
+import me.devziyad.unipoolbackend.route.RouteGeometryLevelRepository;
 import me.devziyad.unipoolbackend.route.RouteRepository;
+import me.devziyad.unipoolbackend.location.Gazetteer;
 import me.devziyad.unipoolbackend.location.LocationRepository;
 import me.devziyad.unipoolbackend.vehicle.VehicleRepository;
 import jakarta.servlet.http.HttpServletRequest;
@@ -37,6 +51,10 @@ import me.devziyad.unipoolbackend.user.UserSettingsRepository;
 import me.devziyad.unipoolbackend.moderation.UserReportRepository;
 import me.devziyad.unipoolbackend.security.TokenBlacklistRepository;
 import me.devziyad.unipoolbackend.security.FailedLoginAttemptRepository;
+import me.devziyad.unipoolbackend.util.DistanceMatrixService;
+import me.devziyad.unipoolbackend.util.GeocodingService;
+import me.devziyad.unipoolbackend.util.RoutePrefetchService;
+import me.devziyad.unipoolbackend.util.RoutingService;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
@@ -44,7 +62,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -64,7 +84,11 @@ public class AdminController {
     private final RatingRepository ratingRepository;
     private final NotificationRepository notificationRepository;
     private final GpsTrackingRepository gpsTrackingRepository;
+    private final GpsTrackPointRepository gpsTrackPointRepository;
+    private final RideOwnershipCache rideOwnershipCache;
+    private final RideTrackingCleanup rideTrackingCleanup;
     private final RouteRepository routeRepository;
+    private final RouteGeometryLevelRepository routeGeometryLevelRepository;
     private final LocationRepository locationRepository;
     private final VehicleRepository vehicleRepository;
     private final UserRepository userRepository;
@@ -74,6 +98,20 @@ public class AdminController {
     private final UserReportRepository userReportRepository;
     private final TokenBlacklistRepository tokenBlacklistRepository;
     private final FailedLoginAttemptRepository failedLoginAttemptRepository;
+    private final RoutingService routingService;
+    private final DistanceMatrixService distanceMatrixService;
+    private final RoutePrefetchService routePrefetchService;
+    private final GeocodingService geocodingService;
+    private final Gazetteer gazetteer;
+    private final NotificationDispatcher notificationDispatcher;
+    private final UnreadNotificationCounter unreadNotificationCounter;
+    private final UserEventStream userEventStream;
+    private final RideReminderScheduler rideReminderScheduler;
+    private final UserNotificationPreferenceRepository userNotificationPreferenceRepository;
+    private final ScheduledNotificationDelivery scheduledNotificationDelivery;
+    private final NotificationRetentionJob notificationRetentionJob;
+    private final OutboundNotificationDispatcher outboundNotificationDispatcher;
+    private final OutboundDeadLetterRepository outboundDeadLetterRepository;
     
     @PersistenceContext
     private EntityManager entityManager;
@@ -204,6 +242,8 @@ public class AdminController {
                 .orElseThrow(() -> new me.devziyad.unipoolbackend.exception.ResourceNotFoundException("Ride not found"));
         ride.setStatus(RideStatus.COMPLETED);
         rideRepository.save(ride);
+        rideOwnershipCache.invalidate(ride.getId());
+        rideTrackingCleanup.endTracking(ride.getId());
         
         // Mark all CONFIRMED bookings as COMPLETED
         List<Booking> confirmedBookings = bookingRepository.findByRideId(ride.getId()).stream()
@@ -248,6 +288,41 @@ public class AdminController {
         return ResponseEntity.ok(paymentService.getPaymentById(id));
     }
 
+    @GetMapping("/metrics/routing")
+    public ResponseEntity<@NonNull Map<String, Object>> getRoutingMetrics() {
+        checkAdmin();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("routeCache", routingService.getCacheStats());
+        metrics.put("osrm", routingService.getStats());
+        metrics.put("distanceMatrix", distanceMatrixService.getStats());
+        metrics.put("prefetch", routePrefetchService.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+
+    @GetMapping("/metrics/geocoding")
+    public ResponseEntity<@NonNull Map<String, Object>> getGeocodingMetrics() {
+        checkAdmin();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("gazetteer", gazetteer.getStats());
+        metrics.put("search", geocodingService.getSearchStats());
+        metrics.put("reverse", geocodingService.getReverseStats());
+        return ResponseEntity.ok(metrics);
+    }
+
+    @GetMapping("/metrics/notifications")
+    public ResponseEntity<@NonNull Map<String, Object>> getNotificationMetrics() {
+        checkAdmin();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pipeline", notificationDispatcher.getStats());
+        metrics.put("unreadCounter", unreadNotificationCounter.getStats());
+        metrics.put("stream", userEventStream.getStats());
+        metrics.put("reminders", rideReminderScheduler.getStats());
+        metrics.put("scheduled", scheduledNotificationDelivery.getStats());
+        metrics.put("retention", notificationRetentionJob.getStats());
+        metrics.put("outbound", outboundNotificationDispatcher.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+
     @PostMapping("/database/reset")
     @Transactional
     public ResponseEntity<Void> resetDatabase(HttpServletRequest httpRequest) {
@@ -257,6 +332,7 @@ public class AdminController {
         // Order matters: delete entities with foreign keys to other entities first
         // 1. Entities that don't depend on users (or have nullable FKs)
         gpsTrackingRepository.deleteAll();
+        gpsTrackPointRepository.deleteAll();
         
         // 2. Entities that depend on Booking, Ride, and User
         paymentRepository.deleteAll();
@@ -265,13 +341,20 @@ public class AdminController {
         
         // 3. Entities that depend on Ride and User
         userReportRepository.deleteAll();
+        routeGeometryLevelRepository.deleteAll();
         routeRepository.deleteAll();
         rideRepository.deleteAll();
+        rideOwnershipCache.clear();
         
         // 4. Entities that depend on User only
         vehicleRepository.deleteAll();
         locationRepository.deleteAll();
         notificationRepository.deleteAll();
+        unreadNotificationCounter.clear();
+        rideReminderScheduler.clear();
+        userNotificationPreferenceRepository.deleteAll();
+        scheduledNotificationDelivery.clear();
+        outboundDeadLetterRepository.deleteAll();
         auditLogRepository.deleteAll();
         failedLoginAttemptRepository.deleteAll();
         tokenBlacklistRepository.deleteAll();
@@ -304,6 +387,10 @@ public class AdminController {
             
             // Clear the persistence context to ensure Hibernate sees the schema change
             entityManager.clear();
+            rideOwnershipCache.clear();
+            unreadNotificationCounter.clear();
+            rideReminderScheduler.clear();
+            scheduledNotificationDelivery.clear();
             
             // Trigger schema recreation by accessing a repository
             // This forces Hibernate to check and recreate tables based on entity definitions
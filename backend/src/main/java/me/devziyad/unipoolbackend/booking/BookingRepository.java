@@ -6,10 +6,13 @@ import me.devziyad.unipoolbackend.user.User;
 import me.devziyad.unipoolbackend.ride.Ride;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,4 +45,22 @@ public interface BookingRepository extends JpaRepository<@NonNull Booking, @NonN
     @EntityGraph(attributePaths = {"rider"})
     @NonNull
     List<@NonNull Booking> findByRideIdAndStatus(Long rideId, BookingStatus status);
-}
\ No newline at end of file
+
+    @Query("SELECT b.ride.id, b.rider.id FROM Booking b WHERE b.ride.id IN :rideIds AND b.status = :status")
+    @NonNull
+    List<Object[]> findRideAndRiderIdsByRideIdInAndStatus(@Param("rideIds") Collection<Long> rideIds,
+                                                          @Param("status") BookingStatus status);
+
+    @Query("SELECT b.rider.id FROM Booking b WHERE b.ride.id = :rideId AND b.status IN :statuses")
+    @NonNull
+    List<Long> findRiderIdsByRideIdAndStatusIn(@Param("rideId") Long rideId,
+                                               @Param("statuses") Collection<BookingStatus> statuses);
+
+    // Cancels every booking on the ride still in one of the given statuses in a single statement
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = me.devziyad.unipoolbackend.common.BookingStatus.CANCELLED, " +
+           "b.cancelledAt = :cancelledAt WHERE b.ride.id = :rideId AND b.status IN :statuses")
+    int cancelByRideIdAndStatusIn(@Param("rideId") Long rideId,
+                                  @Param("statuses") Collection<BookingStatus> statuses,
+                                  @Param("cancelledAt") Instant cancelledAt);
+}
@@ -13,7 +13,9 @@ import me.devziyad.unipoolbackend.exception.ForbiddenException;
 import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.location.Location;
 import me.devziyad.unipoolbackend.location.LocationRepository;
+import me.devziyad.unipoolbackend.notification.NotificationEvent;
 import me.devziyad.unipoolbackend.notification.NotificationService;
+import me.devziyad.unipoolbackend.notification.UserEventStream;
 import me.devziyad.unipoolbackend.ride.Ride;
 import me.devziyad.unipoolbackend.ride.RideRepository;
 import me.devziyad.unipoolbackend.ride.RideService;
@@ -29,7 +31,9 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -44,12 +48,24 @@ public class BookingServiceImpl implements BookingService {
     private final AuditService auditService;
     private final RideService rideService;
     private final UserSettingsRepository userSettingsRepository;
+    private final UserEventStream userEventStream;
 
     private HttpServletRequest getCurrentRequest() {
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
         return attributes != null ? attributes.getRequest() : null;
     }
 
+    // Live update for the rider and driver event streams, sent once the change commits
+    private void publishBookingStatus(Booking booking) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("bookingId", booking.getId());
+        data.put("rideId", booking.getRide().getId());
+        data.put("status", booking.getStatus().name());
+        userEventStream.publishStatus(
+                List.of(booking.getRider().getId(), booking.getRide().getDriver().getId()),
+                UserEventStream.EVENT_BOOKING_STATUS, data);
+    }
+
     private BookingResponse toResponse(Booking booking) {
         return BookingResponse.builder()
                 .bookingId(booking.getId())
@@ -206,29 +222,36 @@ public class BookingServiceImpl implements BookingService {
         metadata.put("seats", request.getSeats());
         metadata.put("status", initialStatus.toString());
         auditService.logAction(ActionType.BOOKING_CREATE, riderId, metadata, getCurrentRequest());
+        publishBookingStatus(booking);
 
         // Create notification based on status
         if (autoAccept) {
-            notificationService.createNotification(
+            notificationService.publishNotifications(List.of(NotificationEvent.grouped(
                     ride.getDriver().getId(),
+                    me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CONFIRMED,
                     "Booking Confirmed",
                     String.format("%s booked %d seat(s) on your ride (auto-accepted)", rider.getFullName(), request.getSeats()),
-                    me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CONFIRMED
-            );
-            notificationService.createNotification(
+                    "booking-confirmed:ride:" + ride.getId(),
+                    "New Bookings",
+                    String.format("%s new bookings on ride #%d (auto-accepted)", NotificationEvent.COUNT, ride.getId())
+            )));
+            notificationService.publishNotification(
                     riderId,
                     "Booking Confirmed",
                     String.format("Your booking for ride #%d has been confirmed", ride.getId()),
                     me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CONFIRMED
             );
         } else {
-            notificationService.createNotification(
+            notificationService.publishNotifications(List.of(NotificationEvent.grouped(
                     ride.getDriver().getId(),
+                    me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CONFIRMED,
                     "New Booking Request",
                     String.format("%s requested to book %d seat(s) on your ride", rider.getFullName(), request.getSeats()),
-                    me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CONFIRMED
-            );
-            notificationService.createNotification(
+                    "booking-request:ride:" + ride.getId(),
+                    "New Booking Requests",
+                    String.format("%s new booking requests on ride #%d", NotificationEvent.COUNT, ride.getId())
+            )));
+            notificationService.publishNotification(
                     riderId,
                     "Booking Pending",
                     String.format("Your booking request for ride #%d is pending driver confirmation", ride.getId()),
@@ -294,6 +317,7 @@ public class BookingServiceImpl implements BookingService {
         booking.setStatus(BookingStatus.CANCELLED);
         booking.setCancelledAt(Instant.now());
         bookingRepository.save(booking);
+        publishBookingStatus(booking);
 
         // Return seats to ride only if booking was confirmed (seats were reserved)
         if (originalStatus == BookingStatus.CONFIRMED) {
@@ -303,14 +327,17 @@ public class BookingServiceImpl implements BookingService {
 
         // Create notification
         if (booking.getRider().getId().equals(userId)) {
-            notificationService.createNotification(
+            notificationService.publishNotifications(List.of(NotificationEvent.grouped(
                     ride.getDriver().getId(),
+                    me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CANCELLED,
                     "Booking Cancelled",
                     String.format("%s cancelled their booking", booking.getRider().getFullName()),
-                    me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CANCELLED
-            );
+                    "booking-cancelled:ride:" + ride.getId(),
+                    "Bookings Cancelled",
+                    String.format("%s bookings cancelled on ride #%d", NotificationEvent.COUNT, ride.getId())
+            )));
         } else {
-            notificationService.createNotification(
+            notificationService.publishNotification(
                     booking.getRider().getId(),
                     "Booking Cancelled",
                     "Your booking was cancelled by the driver",
@@ -380,17 +407,18 @@ public class BookingServiceImpl implements BookingService {
         metadata.put("oldStatus", originalStatus.toString());
         metadata.put("newStatus", newStatus.toString());
         auditService.logAction(ActionType.BOOKING_CREATE, driverId, metadata, getCurrentRequest());
+        publishBookingStatus(booking);
 
         // Create notifications
         if (newStatus == BookingStatus.CONFIRMED) {
-            notificationService.createNotification(
+            notificationService.publishNotification(
                     booking.getRider().getId(),
                     "Booking Confirmed",
                     String.format("Your booking for ride #%d has been confirmed by the driver", ride.getId()),
                     me.devziyad.unipoolbackend.common.NotificationType.BOOKING_CONFIRMED
             );
         } else if (newStatus == BookingStatus.CANCELLED) {
-            notificationService.createNotification(
+            notificationService.publishNotification(
                     booking.getRider().getId(),
                     "Booking Cancelled",
                     String.format("Your booking request for ride #%d was cancelled by the driver", ride.getId()),
@@ -0,0 +1,7 @@
+package me.devziyad.unipoolbackend.common;
+
+public enum NotificationChannel {
+    EMAIL,
+    SMS,
+    PUSH
+}
@@ -5,6 +5,7 @@ public enum NotificationType {
     BOOKING_CANCELLED,
     PAYMENT_RECEIVED,
     RIDE_REMINDER,
+    DRIVER_ARRIVING,
     RIDE_IN_PROGRESS,
     RIDE_COMPLETED
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package me.devziyad.unipoolbackend.config;
+
+import me.devziyad.unipoolbackend.util.BoundedCache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Spring Cache view of a BoundedCache, so @Cacheable results are size- and TTL-bounded.
+ * Null values are not cached.
+ */
+class BoundedCacheAdapter extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final BoundedCache<Object, Object> cache;
+
+    BoundedCacheAdapter(String name, int maxEntries, long ttlMillis) {
+        super(false);
+        this.name = name;
+        this.cache = new BoundedCache<>(maxEntries, ttlMillis);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public BoundedCache<Object, Object> getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return cache.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value != null) {
+            cache.put(key, value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -1,19 +1,24 @@
 package me.devziyad.unipoolbackend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
     @Bean
-    public CacheManager cacheManager() {
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("reverseGeocode");
+    public CacheManager cacheManager(@Value("${tracking.replay-cache.max-entries:500}") int replayMaxEntries,
+                                     @Value("${tracking.replay-cache.ttl-minutes:60}") long replayTtlMinutes) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                new BoundedCacheAdapter("trackReplay", replayMaxEntries, replayTtlMinutes * 60_000L)));
         return cacheManager;
     }
 }
-
@@ -0,0 +1,208 @@
+package me.devziyad.unipoolbackend.location;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.util.GazetteerIndex;
+import me.devziyad.unipoolbackend.util.GazetteerIndex.Place;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local place index answering location search autocomplete without Nominatim.
+ * Built from a bundled place file plus favourite location labels saved by several different users at the
+ * same spot, and rebuilt periodically so newly popular labels become searchable. Personal labels such as
+ * "home" and the addresses users typed are never indexed, since every user sees the results.
+ */
+@Component
+@Slf4j
+public class Gazetteer {
+
+    private final LocationRepository locationRepository;
+    private final ResourceLoader resourceLoader;
+    private final String placesFile;
+    private final int popularMinUsers;
+    private final int popularMaxLabels;
+    private final Set<String> personalLabels;
+    private final int topPerNode;
+
+    private List<Place> bundled = List.of();
+    private volatile GazetteerIndex index = GazetteerIndex.build(List.of(), 1);
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong fuzzyHits = new AtomicLong();
+
+    public Gazetteer(LocationRepository locationRepository,
+                     ResourceLoader resourceLoader,
+                     @Value("${geocoding.gazetteer.file:classpath:gazetteer/places.tsv}") String placesFile,
+                     @Value("${geocoding.gazetteer.popular-min-users:3}") int popularMinUsers,
+                     @Value("${geocoding.gazetteer.popular-max-labels:500}") int popularMaxLabels,
+                     @Value("${geocoding.gazetteer.personal-labels:home,house,work,office,my place,apartment,flat,parents,family}") List<String> personalLabels,
+                     @Value("${geocoding.gazetteer.top-per-node:10}") int topPerNode) {
+        this.locationRepository = locationRepository;
+        this.resourceLoader = resourceLoader;
+        this.placesFile = placesFile;
+        this.popularMinUsers = popularMinUsers;
+        this.popularMaxLabels = popularMaxLabels;
+        this.personalLabels = new HashSet<>();
+        for (String label : personalLabels) {
+            if (!label.isBlank()) {
+                this.personalLabels.add(GazetteerIndex.normalize(label));
+            }
+        }
+        // NOT IN needs at least one value
+        this.personalLabels.add("");
+        this.topPerNode = topPerNode;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        bundled = loadPlaces();
+        index = GazetteerIndex.build(bundled, topPerNode);
+        log.info("Loaded {} gazetteer places from {}", bundled.size(), placesFile);
+    }
+
+    /**
+     * Rebuild the index with the current popular location labels; bundled places are kept as loaded.
+     */
+    @Scheduled(fixedDelayString = "${geocoding.gazetteer.refresh-interval-ms:3600000}",
+               initialDelayString = "${geocoding.gazetteer.refresh-initial-delay-ms:60000}")
+    public void refresh() {
+        List<Place> places = new ArrayList<>(bundled);
+        Set<String> names = new HashSet<>();
+        for (Place place : bundled) {
+            names.add(GazetteerIndex.normalize(place.getName()));
+        }
+        try {
+            for (Object[] row : locationRepository.findPopularLabels(popularMinUsers, personalLabels,
+                    PageRequest.of(0, popularMaxLabels))) {
+                String label = (String) row[0];
+                String name = GazetteerIndex.normalize(label);
+                // The query only drops exact personal labels, so variants like "Home!" are caught here;
+                // a bundled place wins over a saved label with the same name
+                if (personalLabels.contains(name) || !names.add(name)) {
+                    continue;
+                }
+                places.add(new Place(label, null, ((Number) row[1]).doubleValue(),
+                        ((Number) row[2]).doubleValue(), ((Number) row[3]).intValue()));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load popular location labels for the gazetteer: {}", e.getMessage());
+            return;
+        }
+        index = GazetteerIndex.build(places, topPerNode);
+        log.debug("Rebuilt gazetteer with {} places ({} nodes)", index.getPlaceCount(), index.getNodeCount());
+    }
+
+    /**
+     * Matches in the same shape as Nominatim search results (name, display_name, lat, lon as strings).
+     * The result is exact when at least one place has a word starting with the query; typo-tolerant
+     * matches alone are not, so the caller can still ask Nominatim.
+     */
+    public Result search(String query, int limit) {
+        lookups.incrementAndGet();
+        List<GazetteerIndex.Match> matches = index.search(query, limit);
+        if (matches.isEmpty()) {
+            return new Result(List.of(), false);
+        }
+        // Prefix matches come first, so the first match tells whether there are any
+        boolean exact = matches.get(0).getEdits() == 0;
+        (exact ? localHits : fuzzyHits).incrementAndGet();
+        List<Map<String, Object>> results = new ArrayList<>(matches.size());
+        for (GazetteerIndex.Match match : matches) {
+            Place place = match.getPlace();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("name", place.getName());
+            result.put("display_name", place.getAddress() != null
+                    ? place.getName() + ", " + place.getAddress() : place.getName());
+            result.put("lat", String.valueOf(place.getLatitude()));
+            result.put("lon", String.valueOf(place.getLongitude()));
+            result.put("source", "gazetteer");
+            results.add(result);
+        }
+        return new Result(results, exact);
+    }
+
+    public Map<String, Object> getStats() {
+        GazetteerIndex current = index;
+        long total = lookups.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("places", current.getPlaceCount());
+        stats.put("nodes", current.getNodeCount());
+        stats.put("lookups", total);
+        stats.put("localHits", localHits.get());
+        stats.put("fuzzyHits", fuzzyHits.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) localHits.get() / total);
+        return stats;
+    }
+
+    private List<Place> loadPlaces() {
+        List<Place> places = new ArrayList<>();
+        if (placesFile == null || placesFile.isBlank()) {
+            return places;
+        }
+        Resource resource = resourceLoader.getResource(placesFile);
+        if (!resource.exists()) {
+            log.warn("Gazetteer file not found at {}. Location search will use Nominatim only.", placesFile);
+            return places;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\t");
+                if (parts.length < 4) {
+                    log.warn("Ignoring malformed gazetteer line '{}'", line);
+                    continue;
+                }
+                try {
+                    places.add(new Place(parts[0].trim(), parts.length > 4 ? parts[4].trim() : null,
+                            Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()),
+                            Integer.parseInt(parts[3].trim())));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring malformed gazetteer line '{}'", line);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error loading gazetteer file {}: {}", placesFile, e.getMessage());
+        }
+        return places;
+    }
+
+    public static final class Result {
+        private final List<Map<String, Object>> places;
+        private final boolean exact;
+
+        private Result(List<Map<String, Object>> places, boolean exact) {
+            this.places = places;
+            this.exact = exact;
+        }
+
+        public List<Map<String, Object>> getPlaces() {
+            return places;
+        }
+
+        public boolean isExact() {
+            return exact;
+        }
+    }
+}
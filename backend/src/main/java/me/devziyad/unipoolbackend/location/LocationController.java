@@ -66,6 +66,12 @@ public class LocationController {
                 request.getLocationAId(), request.getLocationBId()));
     }
 
+    @PostMapping("/matrix")
+    public ResponseEntity<@NonNull DistanceMatrixResponse> calculateDistanceMatrix(
+            @Valid @RequestBody DistanceMatrixRequest request) {
+        return ResponseEntity.ok(locationService.calculateDistanceMatrix(request));
+    }
+
     @PostMapping("/search")
     public ResponseEntity<@NonNull List<@NonNull Map<String, Object>>> searchLocation(@Valid @RequestBody SearchLocationRequest request) {
         return ResponseEntity.ok(locationService.searchLocation(request.getQuery()));
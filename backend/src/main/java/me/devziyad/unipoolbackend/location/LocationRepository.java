@@ -2,9 +2,13 @@ package me.devziyad.unipoolbackend.location;
 
 import lombok.NonNull;
 import me.devziyad.unipoolbackend.user.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +17,15 @@ public interface LocationRepository extends JpaRepository<@NonNull Location, @No
     List<@NonNull Location> findByUserId(Long userId);
     @NonNull
     List<@NonNull Location> findByUserAndIsFavoriteTrue(User user);
+
+    // Favourite labels saved by several users at the same spot (~100 m), as {label, latitude, longitude, users}.
+    // Personal labels ("home") and the typed addresses are left out, since the results are shown to everyone.
+    @Query("SELECT MIN(l.label), AVG(l.latitude), AVG(l.longitude), COUNT(DISTINCT l.user.id) " +
+           "FROM Location l WHERE l.isFavorite = true AND LOWER(l.label) NOT IN :personalLabels " +
+           "GROUP BY LOWER(l.label), ROUND(l.latitude, 3), ROUND(l.longitude, 3) " +
+           "HAVING COUNT(DISTINCT l.user.id) >= :minUsers ORDER BY COUNT(DISTINCT l.user.id) DESC")
+    @NonNull
+    List<Object[]> findPopularLabels(@Param("minUsers") long minUsers,
+                                     @Param("personalLabels") Collection<String> personalLabels,
+                                     Pageable pageable);
 }
\ No newline at end of file
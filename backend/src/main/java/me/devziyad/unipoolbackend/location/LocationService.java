@@ -15,6 +15,7 @@ public interface LocationService {
     void deleteLocation(Long id, Long userId);
     DistanceResponse calculateDistance(Long locationAId, Long locationBId);
     RouteInfo getRouteInfo(Long locationAId, Long locationBId);
+    DistanceMatrixResponse calculateDistanceMatrix(DistanceMatrixRequest request);
     List<Map<String, Object>> searchLocation(String query);
     String reverseGeocode(Double latitude, Double longitude);
 }
\ No newline at end of file
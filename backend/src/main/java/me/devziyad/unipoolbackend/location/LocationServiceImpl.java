@@ -1,20 +1,28 @@
 package me.devziyad.unipoolbackend.location;
 
 import lombok.RequiredArgsConstructor;
+import me.devziyad.unipoolbackend.exception.BusinessException;
 import me.devziyad.unipoolbackend.exception.ForbiddenException;
 import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.location.dto.*;
 import me.devziyad.unipoolbackend.user.User;
 import me.devziyad.unipoolbackend.user.UserRepository;
+import me.devziyad.unipoolbackend.util.DistanceMatrixService;
 import me.devziyad.unipoolbackend.util.DistanceUtil;
+import me.devziyad.unipoolbackend.util.GazetteerIndex;
 import me.devziyad.unipoolbackend.util.GeocodingService;
+import me.devziyad.unipoolbackend.util.RoutePrefetchService;
 import me.devziyad.unipoolbackend.util.RoutingService;
 import me.devziyad.unipoolbackend.util.RoutingService.RouteInfo;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +33,15 @@ public class LocationServiceImpl implements LocationService {
     private final UserRepository userRepository;
     private final RoutingService routingService;
     private final GeocodingService geocodingService;
+    private final DistanceMatrixService distanceMatrixService;
+    private final RoutePrefetchService routePrefetchService;
+    private final Gazetteer gazetteer;
+
+    @Value("${routing.matrix.max-points:50}")
+    private int maxMatrixPoints;
+
+    @Value("${geocoding.gazetteer.max-results:5}")
+    private int maxGazetteerResults;
 
     private LocationResponse toResponse(Location location) {
         return LocationResponse.builder()
@@ -61,7 +78,11 @@ public class LocationServiceImpl implements LocationService {
                 .isFavorite(request.getIsFavorite() != null ? request.getIsFavorite() : false)
                 .build();
 
-        return toResponse(locationRepository.save(location));
+        location = locationRepository.save(location);
+        if (Boolean.TRUE.equals(location.getIsFavorite())) {
+            routePrefetchService.prefetchForLocation(location.getLatitude(), location.getLongitude());
+        }
+        return toResponse(location);
     }
 
     @Override
@@ -97,6 +118,10 @@ public class LocationServiceImpl implements LocationService {
             throw new ForbiddenException("You can only update your own locations");
         }
 
+        boolean wasFavorite = Boolean.TRUE.equals(location.getIsFavorite());
+        Double previousLatitude = location.getLatitude();
+        Double previousLongitude = location.getLongitude();
+
         if (request.getLabel() != null) location.setLabel(request.getLabel());
         if (request.getAddress() != null) location.setAddress(request.getAddress());
         if (request.getLatitude() != null) {
@@ -113,7 +138,13 @@ public class LocationServiceImpl implements LocationService {
         }
         if (request.getIsFavorite() != null) location.setIsFavorite(request.getIsFavorite());
 
-        return toResponse(locationRepository.save(location));
+        boolean moved = !location.getLatitude().equals(previousLatitude)
+                || !location.getLongitude().equals(previousLongitude);
+        location = locationRepository.save(location);
+        if (Boolean.TRUE.equals(location.getIsFavorite()) && (moved || !wasFavorite)) {
+            routePrefetchService.prefetchForLocation(location.getLatitude(), location.getLongitude());
+        }
+        return toResponse(location);
     }
 
     @Override
@@ -152,6 +183,51 @@ public class LocationServiceImpl implements LocationService {
                 .build();
     }
 
+    @Override
+    public DistanceMatrixResponse calculateDistanceMatrix(DistanceMatrixRequest request) {
+        List<DistanceMatrixRequest.Point> origins = request.getOrigins();
+        List<DistanceMatrixRequest.Point> destinations = request.getDestinations();
+        if (origins.size() > maxMatrixPoints || destinations.size() > maxMatrixPoints) {
+            throw new BusinessException("At most " + maxMatrixPoints + " origins and " + maxMatrixPoints + " destinations are allowed");
+        }
+
+        double[] originLats = new double[origins.size()];
+        double[] originLons = new double[origins.size()];
+        for (int i = 0; i < origins.size(); i++) {
+            originLats[i] = origins.get(i).getLatitude();
+            originLons[i] = origins.get(i).getLongitude();
+        }
+        double[] destLats = new double[destinations.size()];
+        double[] destLons = new double[destinations.size()];
+        for (int j = 0; j < destinations.size(); j++) {
+            destLats[j] = destinations.get(j).getLatitude();
+            destLons[j] = destinations.get(j).getLongitude();
+        }
+
+        DistanceMatrixService.Matrix matrix = distanceMatrixService.compute(originLats, originLons, destLats, destLons);
+
+        List<List<Double>> distancesKm = new ArrayList<>(origins.size());
+        List<List<Integer>> durationsMinutes = new ArrayList<>(origins.size());
+        for (int i = 0; i < origins.size(); i++) {
+            List<Double> distanceRow = new ArrayList<>(destinations.size());
+            List<Integer> durationRow = new ArrayList<>(destinations.size());
+            for (int j = 0; j < destinations.size(); j++) {
+                double meters = matrix.getDistancesMeters()[i][j];
+                double seconds = matrix.getDurationsSeconds()[i][j];
+                distanceRow.add(Double.isNaN(meters) ? null : meters / 1000.0);
+                durationRow.add(Double.isNaN(seconds) ? null : (int) Math.round(seconds / 60.0));
+            }
+            distancesKm.add(distanceRow);
+            durationsMinutes.add(durationRow);
+        }
+
+        return DistanceMatrixResponse.builder()
+                .distancesKm(distancesKm)
+                .durationsMinutes(durationsMinutes)
+                .source(matrix.getSource())
+                .build();
+    }
+
     @Override
     public RouteInfo getRouteInfo(Long locationAId, Long locationBId) {
         Location a = locationRepository.findById(locationAId)
@@ -167,7 +243,27 @@ public class LocationServiceImpl implements LocationService {
 
     @Override
     public List<Map<String, Object>> searchLocation(String query) {
-        return geocodingService.searchLocation(query);
+        // Known campus places answer locally; Nominatim only sees queries the gazetteer cannot match by prefix
+        Gazetteer.Result local = gazetteer.search(query, maxGazetteerResults);
+        if (local.isExact()) {
+            return local.getPlaces();
+        }
+        List<Map<String, Object>> remote = geocodingService.searchLocation(query);
+        if (local.getPlaces().isEmpty()) {
+            return remote;
+        }
+        // A typo match may not be the place that was meant, so Nominatim's answers follow it
+        List<Map<String, Object>> merged = new ArrayList<>(local.getPlaces());
+        Set<String> names = new HashSet<>();
+        for (Map<String, Object> place : local.getPlaces()) {
+            names.add(GazetteerIndex.normalize((String) place.get("name")));
+        }
+        for (Map<String, Object> place : remote) {
+            if (!names.contains(GazetteerIndex.normalize((String) place.get("name")))) {
+                merged.add(place);
+            }
+        }
+        return merged;
     }
 
     @Override
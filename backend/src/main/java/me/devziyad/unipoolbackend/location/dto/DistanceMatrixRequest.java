@@ -0,0 +1,32 @@
+package me.devziyad.unipoolbackend.location.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DistanceMatrixRequest {
+    @NotEmpty(message = "At least one origin is required")
+    private List<@Valid @NotNull Point> origins;
+
+    @NotEmpty(message = "At least one destination is required")
+    private List<@Valid @NotNull Point> destinations;
+
+    @Data
+    public static class Point {
+        @NotNull(message = "Latitude is required")
+        @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90")
+        @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90")
+        private Double latitude;
+
+        @NotNull(message = "Longitude is required")
+        @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180")
+        @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180")
+        private Double longitude;
+    }
+}
@@ -0,0 +1,20 @@
+package me.devziyad.unipoolbackend.location.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistanceMatrixResponse {
+    // [origin][destination]; null where no route was found
+    private List<List<Double>> distancesKm;
+    private List<List<Integer>> durationsMinutes;
+    // local, osrm, haversine, or mixed when rows came from different sources
+    private String source;
+}
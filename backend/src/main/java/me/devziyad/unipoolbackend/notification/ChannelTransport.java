@@ -0,0 +1,20 @@
+package me.devziyad.unipoolbackend.notification;
+
+import me.devziyad.unipoolbackend.common.NotificationChannel;
+
+import java.util.List;
+
+/**
+ * Sends outbound messages through one provider (an SMTP relay, an SMS gateway, a push service).
+ * Register an implementation as a bean to replace the file sink for its channel.
+ */
+public interface ChannelTransport {
+
+    NotificationChannel getChannel();
+
+    /**
+     * Send a batch and return the messages the provider rejected, to be retried.
+     * Throwing fails the whole batch.
+     */
+    List<OutboundMessage> send(List<OutboundMessage> messages) throws Exception;
+}
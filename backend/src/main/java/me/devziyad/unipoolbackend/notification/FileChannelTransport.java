@@ -0,0 +1,59 @@
+package me.devziyad.unipoolbackend.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.devziyad.unipoolbackend.common.NotificationChannel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local stand-in for a real provider: appends each message as a JSON line to {@code <channel>.jsonl}
+ * in the sink directory. With no directory configured messages are accepted and discarded.
+ */
+public class FileChannelTransport implements ChannelTransport {
+
+    private final NotificationChannel channel;
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileChannelTransport(NotificationChannel channel, Path sinkDir, ObjectMapper objectMapper) {
+        this.channel = channel;
+        this.file = sinkDir == null ? null : sinkDir.resolve(channel.name().toLowerCase() + ".jsonl");
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public NotificationChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public synchronized List<OutboundMessage> send(List<OutboundMessage> messages) throws IOException {
+        if (file == null) {
+            return List.of();
+        }
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            for (OutboundMessage message : messages) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("to", message.getRecipient());
+                line.put("userId", message.getUserId());
+                line.put("type", message.getType());
+                line.put("title", message.getTitle());
+                line.put("body", message.getBody());
+                line.put("createdAt", message.getCreatedAt().toString());
+                out.write(objectMapper.writeValueAsString(line));
+                out.newLine();
+            }
+        }
+        return List.of();
+    }
+}
@@ -10,8 +10,10 @@ import java.time.Instant;
 @Entity
 @Table(name = "notifications", indexes = {
     @Index(name = "idx_notification_user_id", columnList = "user_id"),
-    @Index(name = "idx_notification_read", columnList = "read"),
-    @Index(name = "idx_notification_user_read", columnList = "user_id, read")
+    @Index(name = "idx_notification_read_created", columnList = "read, createdAt"),
+    @Index(name = "idx_notification_user_read", columnList = "user_id, read"),
+    @Index(name = "idx_notification_user_created", columnList = "user_id, createdAt"),
+    @Index(name = "idx_notification_user_group", columnList = "user_id, groupKey")
 })
 @Getter
 @Setter
@@ -42,7 +44,27 @@ public class Notification {
     @Builder.Default
     private Boolean read = false;
 
+    // Fixed at insert: the feed pages on (createdAt, id) and the digest window is measured from it
     @Column(nullable = false, updatable = false)
     @Builder.Default
     private Instant createdAt = Instant.now();
+
+    // Time of the latest notification merged into a digest row; equals createdAt until then
+    @Column
+    private Instant updatedAt;
+
+    // Set on digest rows; same-key notifications are merged into the unread row instead of inserted
+    @Column(length = 100)
+    private String groupKey;
+
+    @Column(nullable = false, columnDefinition = "integer default 1")
+    @Builder.Default
+    private Integer groupCount = 1;
+
+    @PrePersist
+    protected void onCreate() {
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
+    }
 }
\ No newline at end of file
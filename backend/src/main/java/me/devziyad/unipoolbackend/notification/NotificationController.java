@@ -12,13 +12,16 @@ import me.devziyad.unipoolbackend.common.NotificationType;
 import me.devziyad.unipoolbackend.exception.ForbiddenException;
 import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.notification.dto.CreateNotificationPreferenceRequest;
+import me.devziyad.unipoolbackend.notification.dto.NotificationFeedResponse;
 import me.devziyad.unipoolbackend.notification.dto.NotificationPreferenceResponse;
 import me.devziyad.unipoolbackend.notification.dto.NotificationResponse;
 import me.devziyad.unipoolbackend.notification.dto.UpdateNotificationPreferenceRequest;
 import me.devziyad.unipoolbackend.ride.Ride;
 import me.devziyad.unipoolbackend.ride.RideRepository;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -32,11 +35,36 @@ public class NotificationController {
     private final AuthService authService;
     private final RideRepository rideRepository;
     private final BookingRepository bookingRepository;
+    private final UserEventStream userEventStream;
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Newest notifications first, one page at a time. The body stays a plain array; the cursor for the
+     * next (older) page is returned in the X-Next-Cursor header and omitted on the last page.
+     */
     @GetMapping("/me")
-    public ResponseEntity<@NonNull List<@NonNull NotificationResponse>> getMyNotifications() {
+    public ResponseEntity<@NonNull List<@NonNull NotificationResponse>> getMyNotifications(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
         Long userId = authService.getCurrentUser().getId();
-        return ResponseEntity.ok(notificationService.getNotificationsForUser(userId));
+        NotificationFeedResponse feed = notificationService.getNotificationFeed(userId, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (feed.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, feed.getNextCursor());
+        }
+        return response.body(feed.getNotifications());
+    }
+
+    /**
+     * Server-sent events for the current user: new notifications (with their id as the event id),
+     * unread count updates and booking/ride status changes. Reconnect with Last-Event-ID to resume.
+     */
+    @GetMapping(value = "/me/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMyEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long userId = authService.getCurrentUser().getId();
+        return userEventStream.subscribe(userId, lastEventId);
     }
 
     @GetMapping("/me/unread")
@@ -124,19 +152,18 @@ public class NotificationController {
                 .toList();
         
         // Send notifications to all riders
-        int notifiedCount = 0;
-        for (Booking booking : bookings) {
-            notificationService.createNotification(
-                    booking.getRider().getId(),
-                    request.getTitle() != null ? request.getTitle() : "Ride Update",
-                    request.getMessage() != null ? request.getMessage() : 
-                            String.format("Update for ride to %s", ride.getDestinationLocation().getLabel()),
-                    request.getType() != null ? request.getType() : NotificationType.RIDE_REMINDER
-            );
-            notifiedCount++;
-        }
+        String title = request.getTitle() != null ? request.getTitle() : "Ride Update";
+        String message = request.getMessage() != null ? request.getMessage() :
+                String.format("Update for ride to %s", ride.getDestinationLocation().getLabel());
+        NotificationType type = request.getType() != null ? request.getType() : NotificationType.RIDE_REMINDER;
+        List<NotificationEvent> events = bookings.stream()
+                .map(booking -> NotificationEvent.grouped(booking.getRider().getId(), type, title, message,
+                        "ride-update:ride:" + rideId, "Ride Updates",
+                        NotificationEvent.COUNT + " updates for ride #" + rideId + ". Latest: " + message))
+                .toList();
+        notificationService.publishNotifications(events);
         
-        return ResponseEntity.ok(new NotifyRidersResponse(notifiedCount));
+        return ResponseEntity.ok(new NotifyRidersResponse(events.size()));
     }
 
     @PostMapping("/send")
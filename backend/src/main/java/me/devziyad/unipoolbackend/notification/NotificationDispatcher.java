@@ -0,0 +1,381 @@
+package me.devziyad.unipoolbackend.notification;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.notification.dto.NotificationResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes notifications off the request path.
+ * Events are queued once the caller's transaction commits (so a rolled-back booking never notifies anyone)
+ * and a single background writer persists them with JDBC batch inserts. When the queue is full the caller
+ * writes its own event, taking turns with the writer, which slows producers to the writer's pace instead of
+ * dropping notifications.
+ * Grouped events are coalesced into the user's open digest row for that group, updated in place. An update
+ * moves the row's updated_at but never its created_at, which anchors both the feed cursor and the digest window.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final String INSERT_SQL = "INSERT INTO notifications " +
+            "(user_id, type, title, body, read, created_at, updated_at, group_key, group_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String FIND_DIGEST_SQL = "SELECT id, group_count, created_at FROM notifications " +
+            "WHERE user_id = ? AND group_key = ? AND read = FALSE AND created_at >= ? ORDER BY id DESC LIMIT 1";
+    private static final String UPDATE_DIGEST_SQL =
+            "UPDATE notifications SET title = ?, body = ?, group_count = ?, updated_at = ? WHERE id = ? AND read = FALSE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UnreadNotificationCounter unreadCounter;
+    private final UserEventStream userEventStream;
+    private final OutboundNotificationDispatcher outboundDispatcher;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<NotificationEvent> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final Duration digestWindow;
+    private final Thread writer;
+    private final Object writeLock = new Object();
+    private volatile boolean running = true;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong highWatermark = new AtomicLong();
+
+    public NotificationDispatcher(DataSource dataSource,
+                                  PlatformTransactionManager transactionManager,
+                                  UnreadNotificationCounter unreadCounter,
+                                  UserEventStream userEventStream,
+                                  OutboundNotificationDispatcher outboundDispatcher,
+                                  @Value("${notification.queue.capacity:10000}") int capacity,
+                                  @Value("${notification.queue.offer-timeout-ms:50}") long offerTimeoutMillis,
+                                  @Value("${notification.writer.batch-size:200}") int batchSize,
+                                  @Value("${notification.writer.linger-ms:20}") long lingerMillis,
+                                  @Value("${notification.writer.shutdown-timeout-ms:5000}") long shutdownTimeoutMillis,
+                                  @Value("${notification.digest.window-minutes:10}") long digestWindowMinutes) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.unreadCounter = unreadCounter;
+        this.userEventStream = userEventStream;
+        this.outboundDispatcher = outboundDispatcher;
+        // Writes may run from afterCommit of the caller's transaction, so always use a fresh one
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.digestWindow = Duration.ofMinutes(digestWindowMinutes);
+        this.writer = new Thread(this::run, "notification-writer");
+        this.writer.setDaemon(true);
+    }
+
+    // Started here rather than in the constructor so the thread exists only once the bean can be destroyed
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    public void publish(NotificationEvent event) {
+        publishAll(List.of(event));
+    }
+
+    /**
+     * Queue events after the current transaction commits, or immediately when there is none.
+     */
+    public void publishAll(List<NotificationEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.forEach(NotificationDispatcher.this::enqueue);
+                }
+            });
+        } else {
+            events.forEach(this::enqueue);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("highWatermark", highWatermark.get());
+        stats.put("enqueued", enqueued.get());
+        stats.put("written", written.get());
+        stats.put("batches", batchCount);
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) written.get() / batchCount);
+        stats.put("callerRuns", callerRuns.get());
+        stats.put("failed", failed.get());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+
+    /**
+     * Stop accepting work, let the writer drain the queue, and write whatever it did not get to.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<NotificationEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.info("Flushing {} queued notifications on shutdown", remaining.size());
+            write(remaining);
+        }
+    }
+
+    private void enqueue(NotificationEvent event) {
+        if (running) {
+            try {
+                if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    enqueued.incrementAndGet();
+                    highWatermark.accumulateAndGet(queue.size(), Math::max);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            callerRuns.incrementAndGet();
+        }
+        write(List.of(event));
+    }
+
+    private void run() {
+        List<NotificationEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                NotificationEvent first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+                // Give a burst (a ride's riders, a reminder sweep) a moment to land in the same batch
+                if (batch.size() < batchSize && lingerMillis > 0) {
+                    NotificationEvent next = queue.poll(lingerMillis, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Notification writer failed: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Write a batch in one transaction. Callers writing on overflow and the writer thread take turns, so two
+     * writes never both find no open digest for a group and each insert one.
+     */
+    private void write(List<NotificationEvent> batch) {
+        List<Row> rows = new ArrayList<>();
+        synchronized (writeLock) {
+            try {
+                rows.addAll(writeBatch(batch));
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (DataAccessException e) {
+                // One bad row (e.g. a user deleted meanwhile) fails the whole batch; retry singly so the rest land.
+                // Each retry still coalesces, into the digest rows earlier retries wrote
+                for (NotificationEvent event : batch) {
+                    try {
+                        rows.addAll(writeBatch(List.of(event)));
+                        written.incrementAndGet();
+                    } catch (DataAccessException rowError) {
+                        failed.incrementAndGet();
+                        log.warn("Dropping notification for user {}: {}", event.getUserId(), rowError.getMessage());
+                    }
+                }
+            }
+        }
+        afterWrite(rows);
+    }
+
+    private List<Row> writeBatch(List<NotificationEvent> batch) {
+        List<Row> rows = transactionTemplate.execute(status -> {
+            List<Row> planned = coalesce(batch);
+            List<Row> inserts = planned.stream().filter(row -> row.existingId == null).toList();
+            List<Row> updates = planned.stream().filter(row -> row.existingId != null).toList();
+            int[][] updated = updates.isEmpty() ? new int[0][] : jdbcTemplate.batchUpdate(UPDATE_DIGEST_SQL,
+                    updates, updates.size(), NotificationDispatcher::bindUpdate);
+            // A digest read since it was looked up is left alone; its group starts a new row
+            List<Row> result = new ArrayList<>(inserts);
+            List<Row> inserting = new ArrayList<>(inserts);
+            int index = 0;
+            for (int[] counts : updated) {
+                for (int count : counts) {
+                    Row row = updates.get(index++);
+                    if (count == 0) {
+                        Row fresh = new Row(row.event, row.added, null, row.added);
+                        result.add(fresh);
+                        inserting.add(fresh);
+                    } else {
+                        result.add(row);
+                    }
+                }
+            }
+            if (!inserting.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserting, inserting.size(), NotificationDispatcher::bindInsert);
+            }
+            return result;
+        });
+        // Counted once committed, so a rolled back batch that is retried singly is not counted twice
+        for (Row row : rows) {
+            coalesced.addAndGet(row.existingId == null ? row.count - 1 : row.added);
+        }
+        return rows;
+    }
+
+    /**
+     * Merge grouped events by user and key, and point each group at the user's open digest row if there is one.
+     * Ungrouped events pass through as single inserts.
+     */
+    private List<Row> coalesce(List<NotificationEvent> batch) {
+        List<Row> rows = new ArrayList<>();
+        Map<String, Row> groups = new LinkedHashMap<>();
+        for (NotificationEvent event : batch) {
+            if (event.getGroupKey() == null) {
+                rows.add(new Row(event, 1, null, 1));
+                continue;
+            }
+            // The latest event's text and time stand for the whole group
+            groups.merge(event.getUserId() + ":" + event.getGroupKey(), new Row(event, 1, null, 1),
+                    (previous, next) -> new Row(next.event, previous.count + 1, null, previous.added + 1));
+        }
+        Instant since = Instant.now().minus(digestWindow);
+        for (Row group : groups.values()) {
+            NotificationEvent event = group.event;
+            List<Row> open = jdbcTemplate.query(FIND_DIGEST_SQL,
+                    (rs, rowNum) -> new Row(event, rs.getInt(2) + group.count, rs.getLong(1), group.count,
+                            rs.getTimestamp(3).toInstant()),
+                    event.getUserId(), event.getGroupKey(), since.atOffset(ZoneOffset.UTC));
+            rows.add(open.isEmpty() ? group : open.get(0));
+        }
+        return rows;
+    }
+
+    private void afterWrite(List<Row> rows) {
+        // Digest updates land on a row that was already unread, so only inserts move the badge
+        Map<Long, Long> inserted = new HashMap<>();
+        // Likewise only new rows go out by email/SMS/push; a digest bump would repeat an already sent message
+        List<NotificationEvent> outbound = new ArrayList<>();
+        for (Row row : rows) {
+            if (row.existingId == null) {
+                inserted.merge(row.event.getUserId(), 1L, Long::sum);
+                outbound.add(new NotificationEvent(row.event.getUserId(), row.event.getType(),
+                        row.event.titleFor(row.count), row.event.bodyFor(row.count), row.event.getCreatedAt()));
+            } else {
+                userEventStream.notificationUpdated(row.event.getUserId(), NotificationResponse.builder()
+                        .id(row.existingId)
+                        .userId(row.event.getUserId())
+                        .type(row.event.getType())
+                        .title(row.event.titleFor(row.count))
+                        .body(row.event.bodyFor(row.count))
+                        .read(false)
+                        .groupCount(row.count)
+                        .createdAt(row.createdAt)
+                        .updatedAt(row.event.getCreatedAt())
+                        .build());
+            }
+        }
+        inserted.forEach(unreadCounter::adjust);
+        userEventStream.notificationsWritten(inserted.keySet());
+        outboundDispatcher.submit(outbound);
+    }
+
+    private static void bindInsert(PreparedStatement ps, Row row) throws SQLException {
+        NotificationEvent event = row.event;
+        ps.setLong(1, event.getUserId());
+        ps.setString(2, event.getType().name());
+        ps.setString(3, event.titleFor(row.count));
+        ps.setString(4, event.bodyFor(row.count));
+        ps.setBoolean(5, false);
+        ps.setObject(6, event.getCreatedAt().atOffset(ZoneOffset.UTC));
+        ps.setObject(7, event.getCreatedAt().atOffset(ZoneOffset.UTC));
+        ps.setString(8, event.getGroupKey());
+        ps.setInt(9, row.count);
+    }
+
+    private static void bindUpdate(PreparedStatement ps, Row row) throws SQLException {
+        NotificationEvent event = row.event;
+        ps.setString(1, event.titleFor(row.count));
+        ps.setString(2, event.bodyFor(row.count));
+        ps.setInt(3, row.count);
+        ps.setObject(4, event.getCreatedAt().atOffset(ZoneOffset.UTC));
+        ps.setLong(5, row.existingId);
+    }
+
+    /**
+     * A row to write: a new notification (existingId null) or a digest row to update. count is the row's
+     * total after the write, added the number of queued events it absorbs, createdAt the digest row's own.
+     */
+    private static final class Row {
+        private final NotificationEvent event;
+        private final int count;
+        private final Long existingId;
+        private final int added;
+        private final Instant createdAt;
+
+        private Row(NotificationEvent event, int count, Long existingId, int added) {
+            this(event, count, existingId, added, event.getCreatedAt());
+        }
+
+        private Row(NotificationEvent event, int count, Long existingId, int added, Instant createdAt) {
+            this.event = event;
+            this.count = count;
+            this.existingId = existingId;
+            this.added = added;
+            this.createdAt = createdAt;
+        }
+    }
+}
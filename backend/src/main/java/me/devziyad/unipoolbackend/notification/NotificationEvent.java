@@ -0,0 +1,66 @@
+package me.devziyad.unipoolbackend.notification;
+
+import lombok.Getter;
+import me.devziyad.unipoolbackend.common.NotificationType;
+
+import java.time.Instant;
+
+/**
+ * A notification waiting in the dispatcher queue to be written.
+ * Events with a group key are coalesced: while the user still has an unread notification with the same key
+ * from within the digest window, that row's count is bumped and its text replaced by the digest text
+ * instead of a new row being inserted.
+ */
+@Getter
+public class NotificationEvent {
+
+    /** Placeholder in a digest title or body for the number of notifications merged into the row. */
+    public static final String COUNT = "{count}";
+
+    private final Long userId;
+    private final NotificationType type;
+    private final String title;
+    private final String body;
+    private final Instant createdAt;
+    private final String groupKey;
+    private final String digestTitle;
+    private final String digestBody;
+
+    public NotificationEvent(Long userId, NotificationType type, String title, String body, Instant createdAt) {
+        this(userId, type, title, body, createdAt, null, null, null);
+    }
+
+    private NotificationEvent(Long userId, NotificationType type, String title, String body, Instant createdAt,
+                              String groupKey, String digestTitle, String digestBody) {
+        this.userId = userId;
+        this.type = type;
+        this.title = title;
+        this.body = body;
+        this.createdAt = createdAt;
+        this.groupKey = groupKey;
+        this.digestTitle = digestTitle;
+        this.digestBody = digestBody;
+    }
+
+    /**
+     * An event that merges with others of the same key, e.g. "{count} new booking requests on ride #42".
+     */
+    public static NotificationEvent grouped(Long userId, NotificationType type, String title, String body,
+                                            String groupKey, String digestTitle, String digestBody) {
+        return new NotificationEvent(userId, type, title, body, Instant.now(), groupKey, digestTitle, digestBody);
+    }
+
+    public String titleFor(int count) {
+        return count > 1 && digestTitle != null ? withCount(digestTitle, count) : title;
+    }
+
+    public String bodyFor(int count) {
+        return count > 1 && digestBody != null ? withCount(digestBody, count) : body;
+    }
+
+    // Only the first placeholder, so user text quoted after it is left as written
+    private static String withCount(String template, int count) {
+        int at = template.indexOf(COUNT);
+        return at < 0 ? template : template.substring(0, at) + count + template.substring(at + COUNT.length());
+    }
+}
@@ -2,9 +2,14 @@ package me.devziyad.unipoolbackend.notification;
 
 import lombok.NonNull;
 import me.devziyad.unipoolbackend.user.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
@@ -18,4 +23,47 @@ public interface NotificationRepository extends JpaRepository<@NonNull Notificat
 
     @NonNull
     List<@NonNull Notification> findByUserIdAndReadFalse(Long userId);
+
+    long countByUserIdAndReadFalse(Long userId);
+
+    // Keyset pages over (createdAt, id), newest first, served by idx_notification_user_created
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    @NonNull
+    List<@NonNull Notification> findFeed(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    @NonNull
+    List<@NonNull Notification> findFeedBefore(@Param("userId") Long userId,
+                                               @Param("createdAt") Instant createdAt,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    @Query("SELECT MAX(n.id) FROM Notification n WHERE n.user.id = :userId")
+    Long findMaxIdByUserId(@Param("userId") Long userId);
+
+    // Notifications a user's event stream has not sent yet, oldest first
+    @NonNull
+    List<@NonNull Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Pageable pageable);
+
+    // Ids can commit out of order, so the event stream re-checks a window below the newest id it sent
+    @Query("SELECT n.id FROM Notification n WHERE n.user.id = :userId AND n.id > :fromId AND n.id < :toId")
+    @NonNull
+    List<@NonNull Long> findIdsBetween(@Param("userId") Long userId, @Param("fromId") Long fromId,
+                                       @Param("toId") Long toId);
+
+    @Query("SELECT n.createdAt FROM Notification n WHERE n.id = :id AND n.user.id = :userId")
+    Instant findCreatedAt(@Param("userId") Long userId, @Param("id") Long id);
+
+    // Digests merged into after the given time, for a stream resuming after notification :id
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.id <= :id AND n.updatedAt > :since " +
+           "ORDER BY n.id")
+    @NonNull
+    List<@NonNull Notification> findUpdatedSince(@Param("userId") Long userId, @Param("id") Long id,
+                                                 @Param("since") Instant since, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.read = false")
+    int markAllAsReadByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
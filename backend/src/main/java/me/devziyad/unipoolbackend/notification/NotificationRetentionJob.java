@@ -0,0 +1,255 @@
+package me.devziyad.unipoolbackend.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the notifications table bounded.
+ * Read notifications older than the retention age are removed, and each user keeps at most the newest
+ * max-per-user notifications. Work is done in small chunks, each deleted in its own short transaction, and
+ * a run stops after a fixed number of chunks so it never holds locks for long. Removed rows are appended to
+ * a daily gzip file of JSON lines (one gzip member per chunk) before the chunk commits; only rows this
+ * instance actually deleted are archived, so instances running the job together do not archive twice.
+ */
+@Component
+@Slf4j
+public class NotificationRetentionJob {
+
+    private static final String COLUMNS = "id, user_id, type, title, body, read, group_count, created_at";
+    private static final String SELECT_EXPIRED_SQL =
+            "SELECT " + COLUMNS + " FROM notifications WHERE read = TRUE AND created_at < ? LIMIT ?";
+    private static final String SELECT_USERS_OVER_CAP_SQL =
+            "SELECT user_id FROM notifications GROUP BY user_id HAVING COUNT(*) > ? LIMIT ?";
+    private static final String SELECT_BEYOND_CAP_SQL = "SELECT " + COLUMNS + " FROM notifications " +
+            "WHERE user_id = ? ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?";
+    private static final String DELETE_SQL = "DELETE FROM notifications WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final UnreadNotificationCounter unreadCounter;
+    private final Duration readMaxAge;
+    private final int maxPerUser;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+    private final Path archiveDir;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong expiredDeleted = new AtomicLong();
+    private final AtomicLong cappedDeleted = new AtomicLong();
+    private final AtomicLong archived = new AtomicLong();
+    private volatile Instant lastRunAt;
+    private volatile long lastRunMillis;
+
+    public NotificationRetentionJob(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    UnreadNotificationCounter unreadCounter,
+                                    @Value("${notification.retention.read-max-age-days:30}") long readMaxAgeDays,
+                                    @Value("${notification.retention.max-per-user:500}") int maxPerUser,
+                                    @Value("${notification.retention.chunk-size:500}") int chunkSize,
+                                    @Value("${notification.retention.max-chunks-per-run:100}") int maxChunksPerRun,
+                                    @Value("${notification.retention.archive-dir:./data/notification-archive}") String archiveDir) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.unreadCounter = unreadCounter;
+        this.readMaxAge = Duration.ofDays(readMaxAgeDays);
+        this.maxPerUser = maxPerUser;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+        this.archiveDir = archiveDir == null || archiveDir.isBlank() ? null : Path.of(archiveDir);
+    }
+
+    @Scheduled(initialDelayString = "${notification.retention.initial-delay-ms:60000}",
+            fixedDelayString = "${notification.retention.interval-ms:3600000}")
+    public void run() {
+        long started = System.currentTimeMillis();
+        try {
+            int budget = maxChunksPerRun;
+            budget -= removeExpired(budget);
+            if (budget > 0 && maxPerUser > 0) {
+                enforceUserCap(budget);
+            }
+        } catch (RuntimeException e) {
+            log.error("Notification retention run failed: {}", e.getMessage(), e);
+        } finally {
+            runs.incrementAndGet();
+            lastRunAt = Instant.now();
+            lastRunMillis = System.currentTimeMillis() - started;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("expiredDeleted", expiredDeleted.get());
+        stats.put("cappedDeleted", cappedDeleted.get());
+        stats.put("archived", archived.get());
+        stats.put("archiveEnabled", archiveDir != null);
+        return stats;
+    }
+
+    // Returns the number of chunks used
+    private int removeExpired(int budget) {
+        Instant cutoff = Instant.now().minus(readMaxAge);
+        int chunks = 0;
+        while (chunks < budget) {
+            List<ArchivedNotification> rows = jdbcTemplate.query(SELECT_EXPIRED_SQL, ROW_MAPPER,
+                    cutoff.atOffset(ZoneOffset.UTC), chunkSize);
+            chunks++;
+            if (rows.isEmpty()) {
+                break;
+            }
+            expiredDeleted.addAndGet(deleteAndArchive(rows).size());
+            if (rows.size() < chunkSize) {
+                break;
+            }
+        }
+        return chunks;
+    }
+
+    private void enforceUserCap(int budget) {
+        List<Long> users = jdbcTemplate.queryForList(SELECT_USERS_OVER_CAP_SQL, Long.class, maxPerUser, budget);
+        int chunks = 0;
+        for (Long userId : users) {
+            boolean removedUnread = false;
+            while (chunks < budget) {
+                // Everything past the newest maxPerUser rows; deleted rows drop out, so the offset stays put
+                List<ArchivedNotification> rows = jdbcTemplate.query(SELECT_BEYOND_CAP_SQL, ROW_MAPPER,
+                        userId, chunkSize, maxPerUser);
+                chunks++;
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (ArchivedNotification row : deleteAndArchive(rows)) {
+                    cappedDeleted.incrementAndGet();
+                    removedUnread |= !row.read;
+                }
+                if (rows.size() < chunkSize) {
+                    break;
+                }
+            }
+            if (removedUnread) {
+                unreadCounter.invalidate(userId);
+            }
+            if (chunks >= budget) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Delete one chunk and archive the rows this transaction actually removed, committing only once the
+     * archive write succeeded.
+     */
+    private List<ArchivedNotification> deleteAndArchive(List<ArchivedNotification> rows) {
+        return transactionTemplate.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(DELETE_SQL, rows, rows.size(),
+                    (ps, row) -> ps.setLong(1, row.id));
+            List<ArchivedNotification> deleted = new ArrayList<>();
+            int index = 0;
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    if (count > 0) {
+                        deleted.add(rows.get(index));
+                    }
+                    index++;
+                }
+            }
+            if (archiveDir != null && !deleted.isEmpty()) {
+                try {
+                    append(deleted);
+                } catch (IOException e) {
+                    // Rolls the chunk back; the rows stay until the archive is writable again
+                    throw new UncheckedIOException("Failed to archive notifications to " + archiveDir, e);
+                }
+                archived.addAndGet(deleted.size());
+            }
+            return deleted;
+        });
+    }
+
+    private synchronized void append(List<ArchivedNotification> rows) throws IOException {
+        Files.createDirectories(archiveDir);
+        Path file = archiveDir.resolve("notifications-" + LocalDate.now(ZoneOffset.UTC) + ".jsonl.gz");
+        // Concatenated gzip members read back as one stream (zcat, GZIPInputStream)
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)))) {
+            for (ArchivedNotification row : rows) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("id", row.id);
+                line.put("userId", row.userId);
+                line.put("type", row.type);
+                line.put("title", row.title);
+                line.put("body", row.body);
+                line.put("read", row.read);
+                line.put("groupCount", row.groupCount);
+                line.put("createdAt", row.createdAt.toString());
+                out.write(objectMapper.writeValueAsBytes(line));
+                out.write('\n');
+            }
+        }
+    }
+
+    private static final RowMapper<ArchivedNotification> ROW_MAPPER = (rs, rowNum) -> new ArchivedNotification(
+            rs.getLong("id"),
+            rs.getLong("user_id"),
+            rs.getString("type"),
+            rs.getString("title"),
+            rs.getString("body"),
+            rs.getBoolean("read"),
+            rs.getInt("group_count"),
+            rs.getTimestamp("created_at").toInstant());
+
+    private static final class ArchivedNotification {
+        private final long id;
+        private final long userId;
+        private final String type;
+        private final String title;
+        private final String body;
+        private final boolean read;
+        private final int groupCount;
+        private final Instant createdAt;
+
+        private ArchivedNotification(long id, long userId, String type, String title, String body,
+                                     boolean read, int groupCount, Instant createdAt) {
+            this.id = id;
+            this.userId = userId;
+            this.type = type;
+            this.title = title;
+            this.body = body;
+            this.read = read;
+            this.groupCount = groupCount;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package me.devziyad.unipoolbackend.notification;
 
 import me.devziyad.unipoolbackend.common.NotificationType;
 import me.devziyad.unipoolbackend.notification.dto.CreateNotificationPreferenceRequest;
+import me.devziyad.unipoolbackend.notification.dto.NotificationFeedResponse;
 import me.devziyad.unipoolbackend.notification.dto.NotificationPreferenceResponse;
 import me.devziyad.unipoolbackend.notification.dto.NotificationResponse;
 import me.devziyad.unipoolbackend.notification.dto.UpdateNotificationPreferenceRequest;
@@ -10,7 +11,9 @@ import java.util.List;
 
 public interface NotificationService {
     NotificationResponse createNotification(Long userId, String title, String body, NotificationType type);
-    List<NotificationResponse> getNotificationsForUser(Long userId);
+    void publishNotification(Long userId, String title, String body, NotificationType type);
+    void publishNotifications(List<NotificationEvent> events);
+    NotificationFeedResponse getNotificationFeed(Long userId, String cursor, int limit);
     List<NotificationResponse> getUnreadNotificationsForUser(Long userId);
     Long getUnreadCount(Long userId);
     void markAsRead(Long notificationId, Long userId);
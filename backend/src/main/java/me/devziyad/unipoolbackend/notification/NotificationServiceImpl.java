@@ -2,17 +2,27 @@ package me.devziyad.unipoolbackend.notification;
 
 import lombok.RequiredArgsConstructor;
 import me.devziyad.unipoolbackend.common.NotificationType;
+import me.devziyad.unipoolbackend.exception.BusinessException;
 import me.devziyad.unipoolbackend.exception.ForbiddenException;
 import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.notification.dto.CreateNotificationPreferenceRequest;
+import me.devziyad.unipoolbackend.notification.dto.NotificationFeedResponse;
 import me.devziyad.unipoolbackend.notification.dto.NotificationPreferenceResponse;
 import me.devziyad.unipoolbackend.notification.dto.NotificationResponse;
 import me.devziyad.unipoolbackend.notification.dto.UpdateNotificationPreferenceRequest;
 import me.devziyad.unipoolbackend.user.User;
 import me.devziyad.unipoolbackend.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,6 +33,14 @@ public class NotificationServiceImpl implements NotificationService {
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
     private final UserNotificationPreferenceRepository preferenceRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final UnreadNotificationCounter unreadCounter;
+    private final UserEventStream userEventStream;
+    private final ScheduledNotificationDelivery scheduledDelivery;
+    private final OutboundNotificationDispatcher outboundDispatcher;
+
+    @Value("${notification.feed.max-page-size:100}")
+    private int maxFeedPageSize;
 
     private NotificationResponse toResponse(Notification notification) {
         return NotificationResponse.builder()
@@ -32,32 +50,70 @@ public class NotificationServiceImpl implements NotificationService {
                 .title(notification.getTitle())
                 .body(notification.getBody())
                 .read(notification.getRead())
+                .groupCount(notification.getGroupCount())
                 .createdAt(notification.getCreatedAt())
+                // Null on rows written before the column existed
+                .updatedAt(notification.getUpdatedAt() != null ? notification.getUpdatedAt() : notification.getCreatedAt())
                 .build();
     }
 
     @Override
     @Transactional
     public NotificationResponse createNotification(Long userId, String title, String body, NotificationType type) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found");
+        }
 
         Notification notification = Notification.builder()
-                .user(user)
+                .user(userRepository.getReferenceById(userId))
                 .type(type)
                 .title(title)
                 .body(body)
                 .read(false)
                 .build();
 
-        return toResponse(notificationRepository.save(notification));
+        NotificationResponse response = toResponse(notificationRepository.save(notification));
+        afterCommit(() -> {
+            unreadCounter.adjust(userId, 1);
+            userEventStream.notificationsWritten(List.of(userId));
+            outboundDispatcher.submit(List.of(new NotificationEvent(userId, type, title, body, response.getCreatedAt())));
+        });
+        return response;
     }
 
     @Override
-    public List<NotificationResponse> getNotificationsForUser(Long userId) {
-        return notificationRepository.findByUserId(userId).stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    public void publishNotification(Long userId, String title, String body, NotificationType type) {
+        notificationDispatcher.publish(new NotificationEvent(userId, type, title, body, Instant.now()));
+    }
+
+    @Override
+    public void publishNotifications(List<NotificationEvent> events) {
+        notificationDispatcher.publishAll(events);
+    }
+
+    @Override
+    public NotificationFeedResponse getNotificationFeed(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxFeedPageSize));
+        // One extra row tells whether an older page exists without a count query
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Notification> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = notificationRepository.findFeed(userId, page);
+        } else {
+            FeedCursor position = FeedCursor.decode(cursor);
+            rows = notificationRepository.findFeedBefore(userId, position.createdAt, position.id, page);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Notification last = rows.get(pageSize - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return NotificationFeedResponse.builder()
+                .notifications(rows.stream().map(this::toResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Override
@@ -69,7 +125,7 @@ public class NotificationServiceImpl implements NotificationService {
 
     @Override
     public Long getUnreadCount(Long userId) {
-        return (long) notificationRepository.findByUserIdAndReadFalse(userId).size();
+        return unreadCounter.get(userId);
     }
 
     @Override
@@ -82,16 +138,65 @@ public class NotificationServiceImpl implements NotificationService {
             throw new ForbiddenException("You can only mark your own notifications as read");
         }
 
+        if (Boolean.TRUE.equals(notification.getRead())) {
+            return;
+        }
         notification.setRead(true);
         notificationRepository.save(notification);
+        afterCommit(() -> unreadCounter.adjust(userId, -1));
     }
 
     @Override
     @Transactional
     public void markAllAsRead(Long userId) {
-        List<Notification> list = notificationRepository.findByUserIdAndReadFalse(userId);
-        list.forEach(n -> n.setRead(true));
-        notificationRepository.saveAll(list);
+        notificationRepository.markAllAsReadByUserId(userId);
+        afterCommit(() -> unreadCounter.invalidate(userId));
+    }
+
+    // Counter changes must not be visible before the rows they describe
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Feed position: the (createdAt, id) of the last notification on a page, as URL-safe base64.
+     */
+    private static final class FeedCursor {
+        private final Instant createdAt;
+        private final Long id;
+
+        private FeedCursor(Instant createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        private String encode() {
+            String raw = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static FeedCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":");
+                if (parts.length != 3) {
+                    throw new BusinessException("Invalid cursor");
+                }
+                return new FeedCursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                        Long.parseLong(parts[2]));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new BusinessException("Invalid cursor");
+            }
+        }
     }
 
     private NotificationPreferenceResponse toPreferenceResponse(UserNotificationPreference preference) {
@@ -101,6 +206,7 @@ public class NotificationServiceImpl implements NotificationService {
                 .type(preference.getType())
                 .customText(preference.getCustomText())
                 .scheduledTime(preference.getScheduledTime())
+                .deliveredAt(preference.getDeliveredAt())
                 .enabled(preference.getEnabled())
                 .createdAt(preference.getCreatedAt())
                 .updatedAt(preference.getUpdatedAt())
@@ -121,7 +227,9 @@ public class NotificationServiceImpl implements NotificationService {
                 .enabled(true)
                 .build();
 
-        return toPreferenceResponse(preferenceRepository.save(preference));
+        preference = preferenceRepository.save(preference);
+        scheduledDelivery.schedule(preference);
+        return toPreferenceResponse(preference);
     }
 
     @Override
@@ -159,14 +267,18 @@ public class NotificationServiceImpl implements NotificationService {
         if (request.getCustomText() != null) {
             preference.setCustomText(request.getCustomText());
         }
-        if (request.getScheduledTime() != null) {
+        if (request.getScheduledTime() != null && !request.getScheduledTime().equals(preference.getScheduledTime())) {
+            // A new time is a new delivery
             preference.setScheduledTime(request.getScheduledTime());
+            preference.setDeliveredAt(null);
         }
         if (request.getEnabled() != null) {
             preference.setEnabled(request.getEnabled());
         }
 
-        return toPreferenceResponse(preferenceRepository.save(preference));
+        preference = preferenceRepository.save(preference);
+        scheduledDelivery.schedule(preference);
+        return toPreferenceResponse(preference);
     }
 
     @Override
@@ -180,5 +292,6 @@ public class NotificationServiceImpl implements NotificationService {
         }
 
         preferenceRepository.delete(preference);
+        scheduledDelivery.cancel(preferenceId);
     }
 }
\ No newline at end of file
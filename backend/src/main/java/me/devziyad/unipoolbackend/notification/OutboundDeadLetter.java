@@ -0,0 +1,62 @@
+package me.devziyad.unipoolbackend.notification;
+
+import jakarta.persistence.*;
+import lombok.*;
+import me.devziyad.unipoolbackend.common.NotificationChannel;
+import me.devziyad.unipoolbackend.common.NotificationType;
+
+import java.time.Instant;
+
+/**
+ * An outbound email/SMS/push message that ran out of retries (or was still queued at shutdown).
+ */
+@Entity
+@Table(name = "outbound_dead_letters", indexes = {
+    @Index(name = "idx_outbound_dead_letter_failed", columnList = "failedAt"),
+    @Index(name = "idx_outbound_dead_letter_user", columnList = "userId")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboundDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationChannel channel;
+
+    // Plain id rather than a relation, so dead letters outlive the user they were for
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationType type;
+
+    @Column(nullable = false, length = 200)
+    private String title;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Instant failedAt = Instant.now();
+}
@@ -0,0 +1,9 @@
+package me.devziyad.unipoolbackend.notification;
+
+import lombok.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboundDeadLetterRepository extends JpaRepository<@NonNull OutboundDeadLetter, @NonNull Long> {
+}
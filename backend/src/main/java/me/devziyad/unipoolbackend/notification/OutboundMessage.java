@@ -0,0 +1,40 @@
+package me.devziyad.unipoolbackend.notification;
+
+import lombok.Getter;
+import me.devziyad.unipoolbackend.common.NotificationChannel;
+import me.devziyad.unipoolbackend.common.NotificationType;
+
+import java.time.Instant;
+
+/**
+ * A notification on its way out through one channel. recipient is the email address, phone number,
+ * or (for push) the user id.
+ */
+@Getter
+public class OutboundMessage {
+    private final NotificationChannel channel;
+    private final Long userId;
+    private final String recipient;
+    private final NotificationType type;
+    private final String title;
+    private final String body;
+    private final Instant createdAt;
+    private int attempts;
+    private String lastError;
+
+    public OutboundMessage(NotificationChannel channel, Long userId, String recipient, NotificationType type,
+                           String title, String body, Instant createdAt) {
+        this.channel = channel;
+        this.userId = userId;
+        this.recipient = recipient;
+        this.type = type;
+        this.title = title;
+        this.body = body;
+        this.createdAt = createdAt;
+    }
+
+    void failed(String error) {
+        attempts++;
+        lastError = error;
+    }
+}
@@ -0,0 +1,337 @@
+package me.devziyad.unipoolbackend.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.common.NotificationChannel;
+import me.devziyad.unipoolbackend.user.UserSettingsRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends written notifications out by email, SMS and push, honouring each user's channel settings.
+ * Routing (one settings query per batch of notifications) runs on its own thread, and each channel has a
+ * bounded queue drained in batches by a dedicated sender, so a slow provider never holds up a request or the
+ * notification writer. Failed sends are retried with exponential backoff and jitter; messages that exhaust
+ * their attempts, or are still queued at shutdown, are stored as dead letters.
+ */
+@Component
+@Slf4j
+public class OutboundNotificationDispatcher {
+
+    private final UserSettingsRepository userSettingsRepository;
+    private final OutboundDeadLetterRepository deadLetterRepository;
+    private final ThreadPoolExecutor router;
+    private final ScheduledExecutorService retries;
+    private final Map<NotificationChannel, ChannelSender> senders = new EnumMap<>(NotificationChannel.class);
+    // Messages waiting out a backoff, so shutdown can dead-letter them
+    private final Set<OutboundMessage> awaitingRetry = ConcurrentHashMap.newKeySet();
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private volatile boolean running = true;
+
+    private final AtomicLong routed = new AtomicLong();
+    private final AtomicLong droppedRouting = new AtomicLong();
+
+    public OutboundNotificationDispatcher(UserSettingsRepository userSettingsRepository,
+                                          OutboundDeadLetterRepository deadLetterRepository,
+                                          ObjectProvider<ChannelTransport> transports,
+                                          ObjectMapper objectMapper,
+                                          @Value("${notification.outbound.sink-dir:}") String sinkDir,
+                                          @Value("${notification.outbound.queue-capacity:5000}") int queueCapacity,
+                                          @Value("${notification.outbound.batch-size:50}") int batchSize,
+                                          @Value("${notification.outbound.retry.max-attempts:5}") int maxAttempts,
+                                          @Value("${notification.outbound.retry.initial-backoff-ms:1000}") long initialBackoffMillis,
+                                          @Value("${notification.outbound.retry.max-backoff-ms:60000}") long maxBackoffMillis) {
+        this.userSettingsRepository = userSettingsRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.router = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> daemon(runnable, "outbound-router"));
+        this.retries = new ScheduledThreadPoolExecutor(1, runnable -> daemon(runnable, "outbound-retry"));
+
+        Map<NotificationChannel, ChannelTransport> byChannel = new EnumMap<>(NotificationChannel.class);
+        transports.orderedStream().forEach(transport -> byChannel.put(transport.getChannel(), transport));
+        // Channels without a provider bean fall back to the file sink, which discards unless a directory is set
+        Path sink = sinkDir == null || sinkDir.isBlank() ? null : Path.of(sinkDir);
+        List<NotificationChannel> unconfigured = new ArrayList<>();
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            if (!byChannel.containsKey(channel)) {
+                unconfigured.add(channel);
+            }
+            ChannelTransport transport = byChannel.getOrDefault(channel, new FileChannelTransport(channel, sink, objectMapper));
+            ChannelSender sender = new ChannelSender(channel, transport, queueCapacity);
+            senders.put(channel, sender);
+        }
+        if (unconfigured.isEmpty()) {
+            return;
+        }
+        if (sink == null) {
+            log.warn("No provider configured for {} notifications; they are discarded", unconfigured);
+        } else {
+            // Recipients and message text in plain text: for local development only
+            log.warn("No provider configured for {} notifications; writing them to {}", unconfigured, sink);
+        }
+    }
+
+    /**
+     * Fan committed notifications out to the channels their users have enabled. Never blocks the caller;
+     * when the routing queue is full the notifications stay in-app only.
+     */
+    public void submit(List<NotificationEvent> events) {
+        if (events.isEmpty() || !running) {
+            return;
+        }
+        try {
+            router.execute(() -> route(events));
+        } catch (RejectedExecutionException e) {
+            droppedRouting.addAndGet(events.size());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("routed", routed.get());
+        stats.put("droppedRouting", droppedRouting.get());
+        stats.put("routingQueued", router.getQueue().size());
+        for (ChannelSender sender : senders.values()) {
+            stats.put(sender.channel.name().toLowerCase(), sender.getStats());
+        }
+        stats.put("deadLetters", deadLetterRepository.count());
+        return stats;
+    }
+
+    // Started here rather than in the constructor so the threads exist only once the bean can be destroyed
+    @PostConstruct
+    public void start() {
+        senders.values().forEach(sender -> sender.thread.start());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        router.shutdownNow();
+        retries.shutdownNow();
+        List<OutboundMessage> pending = new ArrayList<>(awaitingRetry);
+        awaitingRetry.clear();
+        for (ChannelSender sender : senders.values()) {
+            sender.thread.interrupt();
+            sender.queue.drainTo(pending);
+        }
+        if (!pending.isEmpty()) {
+            log.info("Dead-lettering {} unsent outbound messages on shutdown", pending.size());
+            pending.forEach(message -> message.failed("Not sent before shutdown"));
+            deadLetter(pending);
+        }
+    }
+
+    private void route(List<NotificationEvent> events) {
+        Map<Long, Object[]> settings = new LinkedHashMap<>();
+        try {
+            for (Object[] row : userSettingsRepository.findChannelSettings(
+                    events.stream().map(NotificationEvent::getUserId).distinct().toList())) {
+                settings.put((Long) row[0], row);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not load channel settings for {} notifications: {}", events.size(), e.getMessage());
+            droppedRouting.addAndGet(events.size());
+            return;
+        }
+        for (NotificationEvent event : events) {
+            Object[] row = settings.get(event.getUserId());
+            if (row == null) {
+                continue;
+            }
+            String email = (String) row[1];
+            String phone = (String) row[2];
+            // Users without a settings row get the UserSettings defaults: email and push on, SMS off
+            if (enabled(row[3], true) && email != null && !email.isBlank()) {
+                enqueue(message(NotificationChannel.EMAIL, event, email));
+            }
+            if (enabled(row[4], false) && phone != null && !phone.isBlank()) {
+                enqueue(message(NotificationChannel.SMS, event, phone));
+            }
+            if (enabled(row[5], true)) {
+                enqueue(message(NotificationChannel.PUSH, event, String.valueOf(event.getUserId())));
+            }
+        }
+        routed.addAndGet(events.size());
+    }
+
+    private void enqueue(OutboundMessage message) {
+        ChannelSender sender = senders.get(message.getChannel());
+        if (!sender.queue.offer(message)) {
+            sender.rejected.incrementAndGet();
+            message.failed("Channel queue full");
+            deadLetter(List.of(message));
+        }
+    }
+
+    private void retryOrDeadLetter(List<OutboundMessage> failed, String error) {
+        List<OutboundMessage> exhausted = new ArrayList<>();
+        for (OutboundMessage message : failed) {
+            message.failed(error);
+            if (message.getAttempts() >= maxAttempts || !running) {
+                exhausted.add(message);
+                continue;
+            }
+            // Exponential backoff with jitter so a recovering provider is not hit by one synchronized wave
+            long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(message.getAttempts() - 1, 20));
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            awaitingRetry.add(message);
+            try {
+                retries.schedule(() -> {
+                    if (awaitingRetry.remove(message)) {
+                        enqueue(message);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                awaitingRetry.remove(message);
+                exhausted.add(message);
+            }
+        }
+        if (!exhausted.isEmpty()) {
+            deadLetter(exhausted);
+        }
+    }
+
+    private void deadLetter(List<OutboundMessage> messages) {
+        List<OutboundDeadLetter> letters = messages.stream()
+                .map(message -> OutboundDeadLetter.builder()
+                        .channel(message.getChannel())
+                        .userId(message.getUserId())
+                        .recipient(message.getRecipient())
+                        .type(message.getType())
+                        .title(message.getTitle())
+                        .body(message.getBody())
+                        .attempts(message.getAttempts())
+                        .lastError(truncate(message.getLastError()))
+                        .createdAt(message.getCreatedAt())
+                        .build())
+                .toList();
+        try {
+            deadLetterRepository.saveAll(letters);
+            messages.forEach(message -> senders.get(message.getChannel()).deadLettered.incrementAndGet());
+        } catch (RuntimeException e) {
+            log.error("Failed to store {} dead-lettered outbound messages: {}", letters.size(), e.getMessage());
+        }
+    }
+
+    private static OutboundMessage message(NotificationChannel channel, NotificationEvent event, String recipient) {
+        return new OutboundMessage(channel, event.getUserId(), recipient, event.getType(),
+                event.getTitle(), event.getBody(), event.getCreatedAt());
+    }
+
+    private static boolean enabled(Object flag, boolean defaultValue) {
+        return flag == null ? defaultValue : (Boolean) flag;
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * One channel's queue and the thread that drains it into batched provider calls.
+     */
+    private final class ChannelSender {
+        private final NotificationChannel channel;
+        private final ChannelTransport transport;
+        private final BlockingQueue<OutboundMessage> queue;
+        private final Thread thread;
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong deadLettered = new AtomicLong();
+
+        private ChannelSender(NotificationChannel channel, ChannelTransport transport, int capacity) {
+            this.channel = channel;
+            this.transport = transport;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = daemon(this::run, "outbound-" + channel.name().toLowerCase());
+        }
+
+        private void run() {
+            List<OutboundMessage> batch = new ArrayList<>(batchSize);
+            while (running) {
+                try {
+                    OutboundMessage first = queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    send(batch);
+                } catch (InterruptedException e) {
+                    // Shutdown; whatever is still queued is dead-lettered there
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void send(List<OutboundMessage> batch) {
+            List<OutboundMessage> failed;
+            String error;
+            try {
+                failed = transport.send(List.copyOf(batch));
+                error = "Rejected by provider";
+            } catch (Exception e) {
+                failed = batch;
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                log.warn("{} transport failed for {} messages: {}", channel, batch.size(), error);
+            }
+            batches.incrementAndGet();
+            sent.addAndGet(batch.size() - failed.size());
+            if (!failed.isEmpty()) {
+                failures.addAndGet(failed.size());
+                retryOrDeadLetter(new ArrayList<>(failed), error);
+            }
+        }
+
+        private Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("transport", transport.getClass().getSimpleName());
+            stats.put("queued", queue.size());
+            stats.put("sent", sent.get());
+            stats.put("batches", batches.get());
+            stats.put("failures", failures.get());
+            stats.put("rejected", rejected.get());
+            stats.put("deadLettered", deadLettered.get());
+            return stats;
+        }
+    }
+}
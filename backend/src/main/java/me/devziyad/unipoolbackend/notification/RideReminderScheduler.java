@@ -1,63 +1,204 @@
 package me.devziyad.unipoolbackend.notification;
 
-import lombok.RequiredArgsConstructor;
-import me.devziyad.unipoolbackend.booking.Booking;
 import me.devziyad.unipoolbackend.booking.BookingRepository;
 import me.devziyad.unipoolbackend.common.BookingStatus;
 import me.devziyad.unipoolbackend.common.NotificationType;
 import me.devziyad.unipoolbackend.common.RideStatus;
 import me.devziyad.unipoolbackend.ride.Ride;
 import me.devziyad.unipoolbackend.ride.RideRepository;
+import me.devziyad.unipoolbackend.util.HierarchicalTimingWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Sends "ride starting soon" reminders a fixed lead time before each posted ride departs.
+ * Every upcoming ride has one timer in a hierarchical timing wheel, keyed by ride id, so moving a ride
+ * replaces its timer and cancelling it removes the timer. Rides are scheduled as they are posted or
+ * updated, and a periodic reload picks up anything departing within the horizon (including after a
+ * restart). A reminder is sent at most once per ride and departure time.
+ */
 @Component
-@RequiredArgsConstructor
 public class RideReminderScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(RideReminderScheduler.class);
     private final RideRepository rideRepository;
     private final BookingRepository bookingRepository;
     private final NotificationService notificationService;
+    private final Duration leadTime;
+    private final Duration horizon;
+    private final HierarchicalTimingWheel<Long, Reminder> wheel;
+    // Ride id -> departure time already reminded about
+    private final Map<Long, Instant> reminded = new ConcurrentHashMap<>();
 
-    @Scheduled(fixedRate = 600000) // Run every 10 minutes
-    public void sendRideReminders() {
-        logger.info("Running ride reminder scheduler");
+    private final AtomicLong ridesReminded = new AtomicLong();
+    private final AtomicLong remindersSent = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
 
+    public RideReminderScheduler(RideRepository rideRepository,
+                                 BookingRepository bookingRepository,
+                                 NotificationService notificationService,
+                                 @Value("${notification.reminder.lead-minutes:10}") long leadMinutes,
+                                 @Value("${notification.reminder.horizon-hours:24}") long horizonHours,
+                                 @Value("${notification.reminder.tick-ms:1000}") long tickMillis,
+                                 @Value("${notification.reminder.wheel-size:64}") int wheelSize,
+                                 @Value("${notification.reminder.wheel-levels:4}") int wheelLevels) {
+        this.rideRepository = rideRepository;
+        this.bookingRepository = bookingRepository;
+        this.notificationService = notificationService;
+        this.leadTime = Duration.ofMinutes(leadMinutes);
+        this.horizon = Duration.ofHours(horizonHours);
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, wheelSize, wheelLevels, System.currentTimeMillis());
+    }
+
+    /**
+     * (Re)schedule the ride's reminder once the current transaction commits. A ride posted inside the
+     * lead time is reminded on the next tick.
+     */
+    public void scheduleReminder(Ride ride) {
+        Long rideId = ride.getId();
+        RideStatus status = ride.getStatus();
+        Instant departure = ride.getDepartureTimeStart();
+        afterCommit(() -> {
+            if (status != RideStatus.POSTED || departure == null || !departure.isAfter(Instant.now())) {
+                wheel.cancel(rideId);
+            } else if (!departure.equals(reminded.get(rideId))) {
+                schedule(rideId, departure);
+            }
+        });
+    }
+
+    public void cancelReminder(Long rideId) {
+        afterCommit(() -> wheel.cancel(rideId));
+    }
+
+    /**
+     * Load reminders for posted rides departing within the horizon whose reminder time is still ahead.
+     * Runs at startup and then periodically, so rides posted on another instance or before a restart are covered.
+     */
+    @Scheduled(fixedDelayString = "${notification.reminder.reload-interval-ms:3600000}")
+    public void reload() {
         Instant now = Instant.now();
-        Instant tenMinutesFromNow = now.plusSeconds(10 * 60L);
-
-        List<Ride> upcomingRides = rideRepository.findByStatusAndDepartureTimeStartBetween(
-                RideStatus.POSTED, now, tenMinutesFromNow);
-
-        for (Ride ride : upcomingRides) {
-            notificationService.createNotification(
-                    ride.getDriver().getId(),
-                    "Ride Starting Soon",
-                    String.format("Your ride to %s is starting in 10 minutes",
-                            ride.getDestinationLocation().getLabel()),
-                    NotificationType.RIDE_REMINDER
-            );
-
-            List<Booking> bookings = bookingRepository.findByRideIdAndStatus(
-                    ride.getId(), BookingStatus.CONFIRMED);
-
-            for (Booking booking : bookings) {
-                notificationService.createNotification(
-                        booking.getRider().getId(),
-                        "Ride Starting Soon",
-                        String.format("Your ride to %s is starting in 10 minutes",
-                                ride.getDestinationLocation().getLabel()),
-                        NotificationType.RIDE_REMINDER
-                );
+        reminded.values().removeIf(departure -> departure.isBefore(now));
+        List<Object[]> rows = rideRepository.findIdAndDepartureByStatusAndDepartureTimeStartBetween(
+                RideStatus.POSTED, now.plus(leadTime), now.plus(horizon));
+        for (Object[] row : rows) {
+            Long rideId = (Long) row[0];
+            Instant departure = (Instant) row[1];
+            if (!departure.equals(reminded.get(rideId))) {
+                schedule(rideId, departure);
             }
         }
+        logger.debug("Loaded {} ride reminders, {} pending", rows.size(), wheel.size());
+    }
+
+    @Scheduled(fixedRateString = "${notification.reminder.tick-ms:1000}")
+    public void tick() {
+        List<Reminder> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            sendReminders(due);
+        } catch (Exception e) {
+            logger.error("Failed to send {} ride reminders: {}", due.size(), e.getMessage(), e);
+        }
+    }
+
+    public void clear() {
+        wheel.clear();
+        reminded.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(wheel.getStats());
+        stats.put("ridesReminded", ridesReminded.get());
+        stats.put("remindersSent", remindersSent.get());
+        stats.put("skipped", skipped.get());
+        return stats;
+    }
+
+    private void schedule(Long rideId, Instant departure) {
+        wheel.schedule(rideId, new Reminder(rideId, departure), departure.minus(leadTime).toEpochMilli());
+    }
 
-        logger.info("Processed {} upcoming rides", upcomingRides.size());
+    private void sendReminders(List<Reminder> reminders) {
+        Instant now = Instant.now();
+        Map<Long, Instant> due = new HashMap<>();
+        for (Reminder reminder : reminders) {
+            due.put(reminder.rideId, reminder.departure);
+        }
+        List<Ride> rides = new ArrayList<>();
+        for (Ride ride : rideRepository.findByIdInAndStatus(due.keySet(), RideStatus.POSTED)) {
+            Instant departure = ride.getDepartureTimeStart();
+            // A moved ride has a newer timer; a reminded one must not repeat
+            if (departure.equals(due.get(ride.getId())) && !departure.equals(reminded.put(ride.getId(), departure))) {
+                rides.add(ride);
+            }
+        }
+        skipped.addAndGet(due.size() - rides.size());
+        if (rides.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<Long>> ridersByRide = new HashMap<>();
+        for (Object[] row : bookingRepository.findRideAndRiderIdsByRideIdInAndStatus(
+                rides.stream().map(Ride::getId).toList(), BookingStatus.CONFIRMED)) {
+            ridersByRide.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+
+        List<NotificationEvent> events = new ArrayList<>();
+        for (Ride ride : rides) {
+            long minutes = Math.max(1, Duration.between(now, ride.getDepartureTimeStart()).plusSeconds(30).toMinutes());
+            String body = String.format("Your ride to %s is starting in %d minutes",
+                    ride.getDestinationLocation().getLabel(), minutes);
+            events.add(new NotificationEvent(ride.getDriver().getId(), NotificationType.RIDE_REMINDER,
+                    "Ride Starting Soon", body, now));
+            for (Long riderId : ridersByRide.getOrDefault(ride.getId(), List.of())) {
+                events.add(new NotificationEvent(riderId, NotificationType.RIDE_REMINDER,
+                        "Ride Starting Soon", body, now));
+            }
+        }
+        notificationService.publishNotifications(events);
+        ridesReminded.addAndGet(rides.size());
+        remindersSent.addAndGet(events.size());
+        logger.info("Reminded {} rides, queued {} reminders", rides.size(), events.size());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class Reminder {
+        private final Long rideId;
+        private final Instant departure;
+
+        private Reminder(Long rideId, Instant departure) {
+            this.rideId = rideId;
+            this.departure = departure;
+        }
     }
 }
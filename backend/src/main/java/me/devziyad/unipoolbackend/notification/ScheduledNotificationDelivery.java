@@ -0,0 +1,227 @@
+package me.devziyad.unipoolbackend.notification;
+
+import me.devziyad.unipoolbackend.util.HierarchicalTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers notification preferences that have a scheduled time.
+ * Only preferences due within the next window are held in memory, in a timing wheel keyed by preference id;
+ * the window is extended incrementally with index range queries on the scheduled time, never a full scan.
+ * Due preferences are claimed with a conditional UPDATE on delivered_at, so when several instances hold the
+ * same timer exactly one of them delivers it. A periodic sweep picks up anything overdue that no instance
+ * delivered, e.g. because it was scheduled on an instance that went down.
+ */
+@Component
+public class ScheduledNotificationDelivery {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledNotificationDelivery.class);
+    private static final String CLAIM_SQL = "UPDATE user_notification_preferences SET delivered_at = ? " +
+            "WHERE id = ? AND enabled = TRUE AND delivered_at IS NULL AND scheduled_time <= ?";
+    private static final String TITLE = "Scheduled Reminder";
+
+    private final UserNotificationPreferenceRepository preferenceRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration window;
+    private final Duration catchUp;
+    private final Duration sweepGrace;
+    private final int batchSize;
+    private final int pageSize;
+    private final HierarchicalTimingWheel<Long, Long> wheel;
+    // Scheduled times up to here are in the wheel; later ones are loaded as the window moves
+    private volatile Instant loadedUntil;
+
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong swept = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong notClaimed = new AtomicLong();
+
+    public ScheduledNotificationDelivery(UserNotificationPreferenceRepository preferenceRepository,
+                                         NotificationDispatcher notificationDispatcher,
+                                         DataSource dataSource,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${notification.scheduled.window-minutes:60}") long windowMinutes,
+                                         @Value("${notification.scheduled.catch-up-hours:24}") long catchUpHours,
+                                         @Value("${notification.scheduled.sweep-grace-seconds:60}") long sweepGraceSeconds,
+                                         @Value("${notification.scheduled.batch-size:200}") int batchSize,
+                                         @Value("${notification.scheduled.page-size:1000}") int pageSize,
+                                         @Value("${notification.scheduled.tick-ms:1000}") long tickMillis) {
+        this.preferenceRepository = preferenceRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.window = Duration.ofMinutes(windowMinutes);
+        this.catchUp = Duration.ofHours(catchUpHours);
+        this.sweepGrace = Duration.ofSeconds(sweepGraceSeconds);
+        this.batchSize = batchSize;
+        this.pageSize = pageSize;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, 64, 3, System.currentTimeMillis());
+    }
+
+    /**
+     * Track a created or updated preference once the current transaction commits. Preferences beyond the
+     * loaded window are left to the window load.
+     */
+    public void schedule(UserNotificationPreference preference) {
+        Long id = preference.getId();
+        Instant scheduledTime = preference.getScheduledTime();
+        boolean pending = Boolean.TRUE.equals(preference.getEnabled()) && preference.getDeliveredAt() == null
+                && scheduledTime != null;
+        afterCommit(() -> {
+            Instant until = loadedUntil;
+            if (pending && until != null && !scheduledTime.isAfter(until)
+                    && scheduledTime.isAfter(Instant.now().minus(catchUp))) {
+                wheel.schedule(id, id, scheduledTime.toEpochMilli());
+            } else {
+                wheel.cancel(id);
+            }
+        });
+    }
+
+    public void cancel(Long preferenceId) {
+        afterCommit(() -> wheel.cancel(preferenceId));
+    }
+
+    /**
+     * Extend the window. The first run also loads undelivered preferences missed within the catch-up period.
+     */
+    @Scheduled(fixedDelayString = "${notification.scheduled.load-interval-ms:300000}")
+    public void loadWindow() {
+        Instant now = Instant.now();
+        Instant from = loadedUntil != null ? loadedUntil : now.minus(catchUp);
+        Instant to = now.plus(window);
+        if (to.isAfter(from)) {
+            loaded.addAndGet(loadRange(from, to));
+            loadedUntil = to;
+        }
+    }
+
+    /**
+     * Re-queue preferences that are overdue but still undelivered, so one instance going down does not lose them.
+     */
+    @Scheduled(initialDelayString = "${notification.scheduled.sweep-interval-ms:60000}",
+            fixedDelayString = "${notification.scheduled.sweep-interval-ms:60000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        swept.addAndGet(loadRange(now.minus(catchUp), now.minus(sweepGrace)));
+    }
+
+    @Scheduled(fixedRateString = "${notification.scheduled.tick-ms:1000}")
+    public void tick() {
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        for (int start = 0; start < due.size(); start += batchSize) {
+            List<Long> batch = due.subList(start, Math.min(start + batchSize, due.size()));
+            try {
+                deliver(batch);
+            } catch (Exception e) {
+                // Left undelivered in the table; the sweep will retry them
+                logger.error("Failed to deliver {} scheduled notifications: {}", batch.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    public void clear() {
+        wheel.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(wheel.getStats());
+        stats.put("loadedUntil", loadedUntil);
+        stats.put("loaded", loaded.get());
+        stats.put("swept", swept.get());
+        stats.put("delivered", delivered.get());
+        stats.put("notClaimed", notClaimed.get());
+        return stats;
+    }
+
+    private int loadRange(Instant from, Instant to) {
+        int count = 0;
+        Instant cursorTime = from;
+        Long cursorId = Long.MAX_VALUE;
+        while (true) {
+            List<Object[]> page = preferenceRepository.findUndeliveredScheduled(
+                    cursorTime, cursorId, to, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                Long id = (Long) row[0];
+                Instant scheduledTime = (Instant) row[1];
+                wheel.schedule(id, id, scheduledTime.toEpochMilli());
+                cursorTime = scheduledTime;
+                cursorId = id;
+            }
+            count += page.size();
+            if (page.size() < pageSize) {
+                return count;
+            }
+        }
+    }
+
+    private void deliver(List<Long> ids) {
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            int[][] results = jdbcTemplate.batchUpdate(CLAIM_SQL, ids, ids.size(), (ps, id) -> {
+                ps.setObject(1, now.atOffset(ZoneOffset.UTC));
+                ps.setLong(2, id);
+                ps.setObject(3, now.atOffset(ZoneOffset.UTC));
+            });
+            // Rows another instance claimed, or that were disabled or moved later, update nothing
+            List<Long> claimed = new ArrayList<>();
+            int index = 0;
+            for (int[] batch : results) {
+                for (int updated : batch) {
+                    if (updated > 0) {
+                        claimed.add(ids.get(index));
+                    }
+                    index++;
+                }
+            }
+            notClaimed.addAndGet(ids.size() - claimed.size());
+            if (claimed.isEmpty()) {
+                return;
+            }
+            List<NotificationEvent> events = new ArrayList<>();
+            for (UserNotificationPreference preference : preferenceRepository.findAllById(claimed)) {
+                events.add(new NotificationEvent(preference.getUser().getId(), preference.getType(),
+                        TITLE, preference.getCustomText(), now));
+            }
+            // Queued when the claim commits
+            notificationDispatcher.publishAll(events);
+            delivered.addAndGet(events.size());
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package me.devziyad.unipoolbackend.notification;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user unread notification counts for the badge, so reading it never scans the notification table.
+ * A user's count is loaded with one COUNT query on first use and then adjusted as notifications are
+ * written and read. Callers adjust only after their changes have committed, so a change that commits
+ * while its user's count is being loaded may or may not be in it; such a change drops the count instead,
+ * and the next read loads it again. The map is dropped periodically so any remaining drift heals itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class UnreadNotificationCounter {
+
+    private final NotificationRepository notificationRepository;
+    private final Map<Long, AtomicLong> counts = new ConcurrentHashMap<>();
+    // Loads in flight; a change removes its user's token so a count that raced it is not kept
+    private final Map<Long, Object> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public long get(Long userId) {
+        AtomicLong count = counts.get(userId);
+        if (count != null) {
+            hits.incrementAndGet();
+            return count.get();
+        }
+        misses.incrementAndGet();
+        // Counted outside the map, so a change committing meanwhile can see the load and keep it out
+        Object token = new Object();
+        loading.put(userId, token);
+        AtomicLong loaded;
+        try {
+            loaded = new AtomicLong(notificationRepository.countByUserIdAndReadFalse(userId));
+        } catch (RuntimeException e) {
+            loading.remove(userId, token);
+            throw e;
+        }
+        AtomicLong existing = counts.putIfAbsent(userId, loaded);
+        if (existing != null) {
+            loading.remove(userId, token);
+            return existing.get();
+        }
+        // Published before the token is checked, so a change either sees the count or removes the token
+        if (!loading.remove(userId, token)) {
+            counts.remove(userId, loaded);
+        }
+        return loaded.get();
+    }
+
+    /**
+     * Apply a committed change; users without a loaded count are skipped, their next read counts afresh.
+     * While a load is running the change may already be in it, so the count is dropped instead.
+     */
+    public void adjust(Long userId, long delta) {
+        if (loading.remove(userId) != null) {
+            counts.remove(userId);
+            return;
+        }
+        AtomicLong count = counts.get(userId);
+        if (count != null) {
+            count.updateAndGet(value -> Math.max(0, value + delta));
+        }
+    }
+
+    public void invalidate(Long userId) {
+        loading.remove(userId);
+        counts.remove(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${notification.unread.resync-interval-ms:600000}")
+    public void clear() {
+        counts.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        long total = hits.get() + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", counts.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hits.get() / total);
+        return stats;
+    }
+}
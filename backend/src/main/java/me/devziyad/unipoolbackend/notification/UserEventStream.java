@@ -0,0 +1,392 @@
+package me.devziyad.unipoolbackend.notification;
+
+import jakarta.annotation.PreDestroy;
+import me.devziyad.unipoolbackend.notification.dto.NotificationResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user server-sent event streams, so clients hear about notifications and ride/booking status
+ * changes without polling.
+ * Notification events carry the notification id as the SSE id and are always read back from the
+ * notification table, so a client reconnecting with Last-Event-ID gets what it missed. Ids are taken
+ * before a row commits, so rows can become visible out of id order; each delivery also re-checks a
+ * window of ids below the newest one sent. A reconnecting client can therefore see a notification twice
+ * and should ignore ids it already has. Digests merged into since the Last-Event-ID notification are
+ * replayed as updates.
+ * Status events are live only and carry no id. Delivery and the heartbeat comment that keeps idle
+ * connections open through proxies run on one background thread.
+ */
+@Component
+public class UserEventStream {
+
+    public static final String EVENT_NOTIFICATION = "notification";
+    public static final String EVENT_NOTIFICATION_UPDATED = "notification-updated";
+    public static final String EVENT_UNREAD_COUNT = "unread-count";
+    public static final String EVENT_BOOKING_STATUS = "booking-status";
+    public static final String EVENT_RIDE_STATUS = "ride-status";
+
+    private final NotificationRepository notificationRepository;
+    private final UnreadNotificationCounter unreadCounter;
+    private final long timeoutMillis;
+    private final int maxConnectionsPerUser;
+    private final int replayLimit;
+    private final long resumeWindow;
+    private final Map<Long, List<Connection>> connections = new ConcurrentHashMap<>();
+    // Users with a delivery already queued, so a burst of writes triggers one read per user
+    private final Set<Long> pendingUsers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor delivery;
+    private final AtomicBoolean heartbeatPending = new AtomicBoolean();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong notificationsPushed = new AtomicLong();
+    private final AtomicLong lateNotificationsPushed = new AtomicLong();
+    private final AtomicLong statusEventsPushed = new AtomicLong();
+    private final AtomicLong droppedDeliveries = new AtomicLong();
+
+    public UserEventStream(NotificationRepository notificationRepository,
+                           UnreadNotificationCounter unreadCounter,
+                           @Value("${notification.stream.timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${notification.stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+                           @Value("${notification.stream.replay-limit:100}") int replayLimit,
+                           @Value("${notification.stream.resume-window:1000}") long resumeWindow,
+                           @Value("${notification.stream.delivery-queue-capacity:10000}") int deliveryQueueCapacity) {
+        this.notificationRepository = notificationRepository;
+        this.unreadCounter = unreadCounter;
+        this.timeoutMillis = timeoutMillis;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.replayLimit = replayLimit;
+        this.resumeWindow = resumeWindow;
+        this.delivery = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(deliveryQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "user-event-delivery");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Open a stream. With a last event id, notifications after it (and late commits in the window below
+     * it) are replayed first, followed by digests updated since; without one, only notifications written
+     * from now on are sent.
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection;
+        if (lastEventId != null) {
+            connection = new Connection(userId, emitter, lastEventId, Math.max(0, lastEventId - resumeWindow),
+                    lastEventId);
+        } else {
+            Long latest = notificationRepository.findMaxIdByUserId(userId);
+            long startAfter = latest != null ? latest : 0L;
+            // Rows below the newest one existed before the stream opened, however late they commit
+            connection = new Connection(userId, emitter, startAfter, startAfter, null);
+        }
+
+        List<Connection> userConnections = connections.compute(userId, (id, existing) -> {
+            List<Connection> list = existing != null ? existing : new CopyOnWriteArrayList<>();
+            list.add(connection);
+            return list;
+        });
+        openConnections.incrementAndGet();
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(error -> remove(connection));
+        // Keep a user's open tabs and devices bounded; the oldest stream gives way
+        while (userConnections.size() > maxConnectionsPerUser) {
+            Connection oldest = userConnections.get(0);
+            remove(oldest);
+            oldest.emitter.complete();
+        }
+
+        connection.send(SseEmitter.event().name(EVENT_UNREAD_COUNT).data(Map.of("count", unreadCounter.get(userId))));
+        if (lastEventId != null) {
+            scheduleDelivery(userId);
+        }
+        return emitter;
+    }
+
+    /**
+     * Newly committed notifications exist for these users; push them to any open streams.
+     */
+    public void notificationsWritten(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            if (connections.containsKey(userId)) {
+                scheduleDelivery(userId);
+            }
+        }
+    }
+
+    /**
+     * Push a live status event to the users once the current transaction commits.
+     */
+    public void publishStatus(Collection<Long> userIds, String eventName, Map<String, Object> data) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendStatus(userIds, eventName, data);
+                }
+            });
+        } else {
+            sendStatus(userIds, eventName, data);
+        }
+    }
+
+    /**
+     * A digest row absorbed more notifications. Sent live without an id, so a client's Last-Event-ID
+     * keeps pointing at the newest notification it has seen.
+     */
+    public void notificationUpdated(Long userId, NotificationResponse notification) {
+        sendStatus(List.of(userId), EVENT_NOTIFICATION_UPDATED, notification);
+    }
+
+    /**
+     * Queue a heartbeat on the delivery thread; sends can block on slow clients, which must not hold up
+     * the shared scheduler. Skipped while one is still queued or the queue is full.
+     */
+    @Scheduled(fixedDelayString = "${notification.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        if (connections.isEmpty() || !heartbeatPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            delivery.execute(() -> {
+                heartbeatPending.set(false);
+                for (List<Connection> userConnections : connections.values()) {
+                    for (Connection connection : userConnections) {
+                        connection.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            heartbeatPending.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openConnections", openConnections.get());
+        stats.put("connectedUsers", connections.size());
+        stats.put("notificationsPushed", notificationsPushed.get());
+        stats.put("lateNotificationsPushed", lateNotificationsPushed.get());
+        stats.put("statusEventsPushed", statusEventsPushed.get());
+        stats.put("droppedDeliveries", droppedDeliveries.get());
+        stats.put("deliveryQueued", delivery.getQueue().size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delivery.shutdownNow();
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.emitter.complete();
+            }
+        }
+        connections.clear();
+    }
+
+    private void scheduleDelivery(Long userId) {
+        if (!pendingUsers.add(userId)) {
+            return;
+        }
+        try {
+            delivery.execute(() -> {
+                pendingUsers.remove(userId);
+                deliverNotifications(userId);
+            });
+        } catch (RejectedExecutionException e) {
+            pendingUsers.remove(userId);
+            droppedDeliveries.incrementAndGet();
+        }
+    }
+
+    private void deliverNotifications(Long userId) {
+        List<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        boolean sentAny = false;
+        for (Connection connection : userConnections) {
+            sentAny |= deliverLate(connection);
+            List<Notification> missed = notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                    userId, connection.lastNotificationId, PageRequest.of(0, replayLimit));
+            for (Notification notification : missed) {
+                if (!connection.sendNotification(notification)) {
+                    break;
+                }
+                connection.lastNotificationId = notification.getId();
+                notificationsPushed.incrementAndGet();
+                sentAny = true;
+            }
+            if (missed.size() == replayLimit) {
+                // More than one page behind; continue after this page instead of holding the thread
+                scheduleDelivery(userId);
+            } else if (connection.resumedFrom != null) {
+                Long resumedFrom = connection.resumedFrom;
+                connection.resumedFrom = null;
+                replayUpdates(connection, resumedFrom);
+            }
+        }
+        if (sentAny) {
+            Map<String, Object> count = Map.of("count", unreadCounter.get(userId));
+            userConnections.forEach(connection -> connection.send(SseEmitter.event().name(EVENT_UNREAD_COUNT).data(count)));
+        }
+    }
+
+    // Rows in the window below the newest id sent that committed after it was read
+    private boolean deliverLate(Connection connection) {
+        long from = Math.max(connection.floor, connection.lastNotificationId - resumeWindow);
+        connection.sentIds.removeIf(id -> id <= from);
+        List<Long> late = new ArrayList<>();
+        for (Long id : notificationRepository.findIdsBetween(connection.userId, from, connection.lastNotificationId)) {
+            if (!connection.sentIds.contains(id)) {
+                late.add(id);
+            }
+        }
+        if (late.isEmpty()) {
+            return false;
+        }
+        List<Notification> notifications = new ArrayList<>(notificationRepository.findAllById(late));
+        notifications.sort(Comparator.comparing(Notification::getId));
+        boolean sentAny = false;
+        for (Notification notification : notifications) {
+            if (!connection.sendNotification(notification)) {
+                break;
+            }
+            lateNotificationsPushed.incrementAndGet();
+            sentAny = true;
+        }
+        return sentAny;
+    }
+
+    // Digests the client has seen may have absorbed more notifications while it was away
+    private void replayUpdates(Connection connection, Long resumedFrom) {
+        Instant since = notificationRepository.findCreatedAt(connection.userId, resumedFrom);
+        if (since == null) {
+            // The last seen notification is gone (read and purged); nothing to anchor on
+            return;
+        }
+        for (Notification notification : notificationRepository.findUpdatedSince(
+                connection.userId, resumedFrom, since, PageRequest.of(0, replayLimit))) {
+            if (!connection.send(SseEmitter.event().name(EVENT_NOTIFICATION_UPDATED)
+                    .data(toResponse(notification), MediaType.APPLICATION_JSON))) {
+                return;
+            }
+            statusEventsPushed.incrementAndGet();
+        }
+    }
+
+    private void sendStatus(Collection<Long> userIds, String eventName, Object data) {
+        for (Long userId : userIds) {
+            List<Connection> userConnections = connections.get(userId);
+            if (userConnections == null) {
+                continue;
+            }
+            for (Connection connection : userConnections) {
+                if (connection.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON))) {
+                    statusEventsPushed.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void remove(Connection connection) {
+        // Per-key compute keeps a concurrent subscribe from adding to a list that is being dropped
+        AtomicBoolean removed = new AtomicBoolean();
+        connections.computeIfPresent(connection.userId, (id, list) -> {
+            removed.set(list.remove(connection));
+            return list.isEmpty() ? null : list;
+        });
+        if (removed.get()) {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private static NotificationResponse toResponse(Notification notification) {
+        return NotificationResponse.builder()
+                .id(notification.getId())
+                .userId(notification.getUser().getId())
+                .type(notification.getType())
+                .title(notification.getTitle())
+                .body(notification.getBody())
+                .read(notification.getRead())
+                .groupCount(notification.getGroupCount())
+                .createdAt(notification.getCreatedAt())
+                // Null on rows written before the column existed
+                .updatedAt(notification.getUpdatedAt() != null ? notification.getUpdatedAt() : notification.getCreatedAt())
+                .build();
+    }
+
+    private final class Connection {
+        private final Long userId;
+        private final SseEmitter emitter;
+        // Lowest id the late-row check looks at
+        private final long floor;
+        // Only touched by the delivery thread after subscribe
+        private volatile long lastNotificationId;
+        // Last-Event-ID of a resumed stream until its digest updates have been replayed
+        private volatile Long resumedFrom;
+        // Ids sent that are still inside the resume window
+        private final Set<Long> sentIds = new HashSet<>();
+
+        private Connection(Long userId, SseEmitter emitter, long lastNotificationId, long floor,
+                           Long resumedFrom) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.lastNotificationId = lastNotificationId;
+            this.floor = floor;
+            this.resumedFrom = resumedFrom;
+        }
+
+        private boolean sendNotification(Notification notification) {
+            if (!send(SseEmitter.event()
+                    .id(String.valueOf(notification.getId()))
+                    .name(EVENT_NOTIFICATION)
+                    .data(toResponse(notification), MediaType.APPLICATION_JSON))) {
+                return false;
+            }
+            sentIds.add(notification.getId());
+            return true;
+        }
+
+        // SseEmitter is not safe for concurrent sends (heartbeat, delivery and status threads)
+        private synchronized boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
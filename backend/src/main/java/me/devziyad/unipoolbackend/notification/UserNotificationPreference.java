@@ -11,7 +11,8 @@ import java.time.Instant;
 @Table(name = "user_notification_preferences", indexes = {
     @Index(name = "idx_user_notification_pref_user_id", columnList = "user_id"),
     @Index(name = "idx_user_notification_pref_type", columnList = "type"),
-    @Index(name = "idx_user_notification_pref_enabled", columnList = "enabled")
+    @Index(name = "idx_user_notification_pref_enabled", columnList = "enabled"),
+    @Index(name = "idx_user_notification_pref_due", columnList = "deliveredAt, scheduledTime")
 })
 @Getter
 @Setter
@@ -38,6 +39,9 @@ public class UserNotificationPreference {
     @Column(nullable = true)
     private Instant scheduledTime; // When to receive the notification (null = immediate or event-based)
 
+    @Column(nullable = true)
+    private Instant deliveredAt; // Set when the scheduled notification is claimed for delivery; cleared on reschedule
+
     @Column(nullable = false)
     @Builder.Default
     private Boolean enabled = true;
@@ -3,7 +3,10 @@ package me.devziyad.unipoolbackend.notification;
 import lombok.NonNull;
 import me.devziyad.unipoolbackend.common.NotificationType;
 import me.devziyad.unipoolbackend.user.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
@@ -29,5 +32,14 @@ public interface UserNotificationPreferenceRepository extends JpaRepository<@Non
 
     @NonNull
     List<@NonNull UserNotificationPreference> findByEnabledTrueAndScheduledTimeIsNotNullAndScheduledTimeBefore(Instant time);
-}
 
+    @Query("SELECT p.id, p.scheduledTime FROM UserNotificationPreference p " +
+           "WHERE p.deliveredAt IS NULL AND p.enabled = true AND p.scheduledTime <= :to " +
+           "AND (p.scheduledTime > :from OR (p.scheduledTime = :from AND p.id > :afterId)) " +
+           "ORDER BY p.scheduledTime ASC, p.id ASC")
+    @NonNull
+    List<Object[]> findUndeliveredScheduled(@Param("from") Instant from,
+                                            @Param("afterId") Long afterId,
+                                            @Param("to") Instant to,
+                                            Pageable pageable);
+}
@@ -18,6 +18,7 @@ public class NotificationPreferenceResponse {
     private NotificationType type;
     private String customText;
     private Instant scheduledTime;
+    private Instant deliveredAt;
     private Boolean enabled;
     private Instant createdAt;
     private Instant updatedAt;
@@ -19,6 +19,8 @@ public class NotificationResponse {
     private String title;
     private String body;
     private Boolean read;
+    private Integer groupCount;
     private Instant createdAt;
+    private Instant updatedAt;
 }
 
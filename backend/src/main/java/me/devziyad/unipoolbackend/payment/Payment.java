@@ -14,7 +14,8 @@ import java.time.Instant;
 @Table(name = "payments", indexes = {
     @Index(name = "idx_payment_booking_id", columnList = "booking_id"),
     @Index(name = "idx_payment_payer_id", columnList = "payer_id"),
-    @Index(name = "idx_payment_driver_id", columnList = "driver_id")
+    @Index(name = "idx_payment_driver_id", columnList = "driver_id"),
+    @Index(name = "idx_payment_status_refund", columnList = "status, refundRequestedAt")
 })
 @Getter
 @Setter
@@ -68,4 +69,7 @@ public class Payment {
     @Column(nullable = false)
     @Builder.Default
     private Instant updatedAt = Instant.now();
+
+    // Set when a refund has been queued, e.g. because the ride was cancelled; PaymentRefundJob settles it
+    private Instant refundRequestedAt;
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package me.devziyad.unipoolbackend.payment;
+
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.common.NotificationType;
+import me.devziyad.unipoolbackend.common.PaymentMethod;
+import me.devziyad.unipoolbackend.common.PaymentStatus;
+import me.devziyad.unipoolbackend.notification.NotificationEvent;
+import me.devziyad.unipoolbackend.notification.NotificationService;
+import me.devziyad.unipoolbackend.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Settles refunds queued in bulk, e.g. for every paid booking on a cancelled ride, so the request that
+ * queued them does constant work however many riders were on the ride.
+ * Settled payments have both legs reversed. Failed wallet payments (failed while still being processed) only
+ * return the payer's held amount, since the driver was never paid.
+ * Each chunk of payments is claimed with a conditional UPDATE (same status and still flagged), so a payment is
+ * refunded once even with several instances running or a manual refund racing the job (which claims the
+ * same way). Wallet changes are summed per user and applied as one atomic balance update per user, in the
+ * same transaction as the claim.
+ */
+@Component
+@Slf4j
+public class PaymentRefundJob {
+
+    private static final String CLAIM_SQL = "UPDATE payments SET status = 'REFUNDED', updated_at = ? " +
+            "WHERE id = ? AND status = ? AND refund_requested_at IS NOT NULL";
+    private static final List<PaymentStatus> REFUNDABLE_STATUSES = List.of(PaymentStatus.SETTLED, PaymentStatus.FAILED);
+
+    private final PaymentRepository paymentRepository;
+    private final UserRepository userRepository;
+    private final NotificationService notificationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final AtomicLong refunded = new AtomicLong();
+    private final AtomicLong notClaimed = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public PaymentRefundJob(PaymentRepository paymentRepository,
+                            UserRepository userRepository,
+                            NotificationService notificationService,
+                            DataSource dataSource,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${payment.refund.batch-size:200}") int batchSize,
+                            @Value("${payment.refund.max-batches-per-run:50}") int maxBatchesPerRun) {
+        this.paymentRepository = paymentRepository;
+        this.userRepository = userRepository;
+        this.notificationService = notificationService;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(initialDelayString = "${payment.refund.interval-ms:5000}",
+            fixedDelayString = "${payment.refund.interval-ms:5000}")
+    public void run() {
+        int batches = 0;
+        for (PaymentStatus from : REFUNDABLE_STATUSES) {
+            for (; batches < maxBatchesPerRun; batches++) {
+                List<Long> ids = paymentRepository.findRefundRequestedIds(from, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                try {
+                    refund(ids, from);
+                } catch (RuntimeException e) {
+                    // Rolled back and still flagged; the next run retries the chunk
+                    failedBatches.incrementAndGet();
+                    log.error("Failed to refund {} payments: {}", ids.size(), e.getMessage(), e);
+                    return;
+                }
+                if (ids.size() < batchSize) {
+                    break;
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("refunded", refunded.get());
+        stats.put("notClaimed", notClaimed.get());
+        stats.put("failedBatches", failedBatches.get());
+        return stats;
+    }
+
+    private void refund(List<Long> ids, PaymentStatus from) {
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            int[][] results = jdbcTemplate.batchUpdate(CLAIM_SQL, ids, ids.size(), (ps, id) -> {
+                ps.setObject(1, now.atOffset(ZoneOffset.UTC));
+                ps.setLong(2, id);
+                ps.setString(3, from.name());
+            });
+            // Payments refunded by hand or by another instance update nothing
+            List<Long> claimed = new ArrayList<>();
+            int index = 0;
+            for (int[] batch : results) {
+                for (int updated : batch) {
+                    if (updated > 0) {
+                        claimed.add(ids.get(index));
+                    }
+                    index++;
+                }
+            }
+            notClaimed.addAndGet(ids.size() - claimed.size());
+            if (claimed.isEmpty()) {
+                return;
+            }
+
+            Map<Long, BigDecimal> walletChanges = new HashMap<>();
+            List<NotificationEvent> events = new ArrayList<>();
+            for (Payment payment : paymentRepository.findByIdIn(claimed)) {
+                Long payerId = payment.getPayer().getId();
+                if (payment.getMethod() == PaymentMethod.WALLET) {
+                    walletChanges.merge(payerId, payment.getAmount(), BigDecimal::add);
+                }
+                if (from == PaymentStatus.SETTLED && payment.getDriver() != null) {
+                    walletChanges.merge(payment.getDriver().getId(), payment.getDriverEarnings().negate(), BigDecimal::add);
+                }
+                events.add(new NotificationEvent(payerId, NotificationType.PAYMENT_RECEIVED, "Refund Issued",
+                        String.format("Your payment of %s for booking #%d was refunded",
+                                payment.getAmount(), payment.getBooking().getId()), now));
+            }
+            walletChanges.forEach(userRepository::adjustWalletBalance);
+            // Queued when the claim commits
+            notificationService.publishNotifications(events);
+            refunded.addAndGet(claimed.size());
+        });
+    }
+}
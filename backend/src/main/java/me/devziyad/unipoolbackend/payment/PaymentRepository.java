@@ -1,14 +1,21 @@
 package me.devziyad.unipoolbackend.payment;
 
 import lombok.NonNull;
+import me.devziyad.unipoolbackend.common.BookingStatus;
+import me.devziyad.unipoolbackend.common.PaymentMethod;
 import me.devziyad.unipoolbackend.common.PaymentStatus;
 import me.devziyad.unipoolbackend.user.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -36,4 +43,55 @@ public interface PaymentRepository extends JpaRepository<@NonNull Payment, @NonN
     @Query("SELECT COALESCE(SUM(p.platformFee), 0) FROM Payment p WHERE p.status = :status")
     @NonNull
     BigDecimal sumPlatformFeeByStatus(@Param("status") PaymentStatus status);
+
+    // Flags the settled payments of the ride's bookings still in bookingStatuses for refund, in a single statement
+    @Modifying
+    @Query("UPDATE Payment p SET p.refundRequestedAt = :requestedAt " +
+           "WHERE p.status = :status AND p.refundRequestedAt IS NULL AND p.booking.id IN " +
+           "(SELECT b.id FROM Booking b WHERE b.ride.id = :rideId AND b.status IN :bookingStatuses)")
+    int requestRefundsByRideId(@Param("rideId") Long rideId,
+                               @Param("bookingStatuses") Collection<BookingStatus> bookingStatuses,
+                               @Param("status") PaymentStatus status,
+                               @Param("requestedAt") Instant requestedAt);
+
+    // Fails the ride's payments still being processed for bookings in bookingStatuses, in a single statement.
+    // Wallet payments already took the payer's money, so they are also flagged for PaymentRefundJob to return it
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :failed, p.updatedAt = :now, " +
+           "p.refundRequestedAt = CASE WHEN p.method = :wallet THEN :now ELSE p.refundRequestedAt END " +
+           "WHERE p.status IN :statuses AND p.booking.id IN " +
+           "(SELECT b.id FROM Booking b WHERE b.ride.id = :rideId AND b.status IN :bookingStatuses)")
+    int failPendingByRideId(@Param("rideId") Long rideId,
+                            @Param("bookingStatuses") Collection<BookingStatus> bookingStatuses,
+                            @Param("statuses") Collection<PaymentStatus> statuses,
+                            @Param("failed") PaymentStatus failed,
+                            @Param("wallet") PaymentMethod wallet,
+                            @Param("now") Instant now);
+
+    // Single-payment form of failPendingByRideId; 0 when the payment has already moved on
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :failed, p.updatedAt = :now, " +
+           "p.refundRequestedAt = CASE WHEN p.method = :wallet THEN :now ELSE p.refundRequestedAt END " +
+           "WHERE p.id = :id AND p.status IN :statuses")
+    int failIfPending(@Param("id") Long id,
+                      @Param("statuses") Collection<PaymentStatus> statuses,
+                      @Param("failed") PaymentStatus failed,
+                      @Param("wallet") PaymentMethod wallet,
+                      @Param("now") Instant now);
+
+    // Conditional claim: only one of several concurrent refunds of the same payment updates a row
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :to, p.updatedAt = :updatedAt WHERE p.id = :id AND p.status = :from")
+    int updateStatusIfCurrent(@Param("id") Long id,
+                              @Param("from") PaymentStatus from,
+                              @Param("to") PaymentStatus to,
+                              @Param("updatedAt") Instant updatedAt);
+
+    @Query("SELECT p.id FROM Payment p WHERE p.status = :status AND p.refundRequestedAt IS NOT NULL ORDER BY p.id")
+    @NonNull
+    List<Long> findRefundRequestedIds(@Param("status") PaymentStatus status, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"payer", "driver"})
+    @NonNull
+    List<@NonNull Payment> findByIdIn(Collection<Long> ids);
 }
\ No newline at end of file
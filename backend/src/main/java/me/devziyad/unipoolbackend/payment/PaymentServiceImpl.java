@@ -25,7 +25,9 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -40,6 +42,9 @@ public class PaymentServiceImpl implements PaymentService {
     private final NotificationService notificationService;
     private final AuditService auditService;
 
+    private static final Set<PaymentStatus> PENDING_STATUSES =
+            EnumSet.of(PaymentStatus.INITIATED, PaymentStatus.PROCESSING);
+
     @Value("${payment.platform-fee-percentage:10}")
     private double platformFeePercentage;
 
@@ -64,6 +69,7 @@ public class PaymentServiceImpl implements PaymentService {
                 .transactionRef(payment.getTransactionRef())
                 .createdAt(payment.getCreatedAt())
                 .updatedAt(payment.getUpdatedAt())
+                .refundRequestedAt(payment.getRefundRequestedAt())
                 .build();
     }
 
@@ -101,12 +107,9 @@ public class PaymentServiceImpl implements PaymentService {
         BigDecimal driverEarnings = amount.subtract(platformFee);
 
         // Handle wallet payment
-        if (request.getMethod() == PaymentMethod.WALLET) {
-            if (payer.getWalletBalance().compareTo(amount) < 0) {
-                throw new BusinessException("Insufficient wallet balance");
-            }
-            payer.setWalletBalance(payer.getWalletBalance().subtract(amount));
-            userRepository.save(payer);
+        if (request.getMethod() == PaymentMethod.WALLET
+                && userRepository.debitWalletIfSufficient(payerId, amount) == 0) {
+            throw new BusinessException("Insufficient wallet balance");
         }
 
         Payment payment = Payment.builder()
@@ -145,11 +148,10 @@ public class PaymentServiceImpl implements PaymentService {
             auditService.logAction(ActionType.PAYMENT_COMPLETE, payerId, metadata, getCurrentRequest());
 
             // Update driver wallet
-            driver.setWalletBalance(driver.getWalletBalance().add(driverEarnings));
-            userRepository.save(driver);
+            userRepository.adjustWalletBalance(driver.getId(), driverEarnings);
 
             // Create notification
-            notificationService.createNotification(
+            notificationService.publishNotification(
                     driver.getId(),
                     "Payment Received",
                     String.format("You received %s from %s", amount, payer.getFullName()),
@@ -181,9 +183,29 @@ public class PaymentServiceImpl implements PaymentService {
             throw new BusinessException("Payment is not in INITIATED status");
         }
 
+        // Never settle for a cancelled booking: fail the payment instead, and a wallet payment's held
+        // amount goes back to the payer through PaymentRefundJob
+        if (payment.getBooking().getStatus() == me.devziyad.unipoolbackend.common.BookingStatus.CANCELLED) {
+            Instant now = Instant.now();
+            if (paymentRepository.failIfPending(paymentId, PENDING_STATUSES, PaymentStatus.FAILED,
+                    PaymentMethod.WALLET, now) == 0) {
+                throw new BusinessException("Payment is not in INITIATED status");
+            }
+            payment.setStatus(PaymentStatus.FAILED);
+            payment.setUpdatedAt(now);
+            if (payment.getMethod() == PaymentMethod.WALLET) {
+                payment.setRefundRequestedAt(now);
+            }
+            return toResponse(payment);
+        }
+
+        // Each step is a conditional UPDATE, so a ride cancellation failing the payment meanwhile wins
+        Instant now = Instant.now();
+        if (paymentRepository.updateStatusIfCurrent(paymentId, PaymentStatus.INITIATED, PaymentStatus.PROCESSING, now) == 0) {
+            throw new BusinessException("Payment is not in INITIATED status");
+        }
         payment.setStatus(PaymentStatus.PROCESSING);
-        payment.setUpdatedAt(Instant.now());
-        payment = paymentRepository.save(payment);
+        payment.setUpdatedAt(now);
 
         // Simulate processing delay
         try {
@@ -193,14 +215,16 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         // Settle payment
+        now = Instant.now();
+        if (paymentRepository.updateStatusIfCurrent(paymentId, PaymentStatus.PROCESSING, PaymentStatus.SETTLED, now) == 0) {
+            throw new BusinessException("Payment is no longer being processed");
+        }
         payment.setStatus(PaymentStatus.SETTLED);
-        payment.setUpdatedAt(Instant.now());
-        payment = paymentRepository.save(payment);
+        payment.setUpdatedAt(now);
 
         // Update driver wallet
         User driver = payment.getDriver();
-        driver.setWalletBalance(driver.getWalletBalance().add(payment.getDriverEarnings()));
-        userRepository.save(driver);
+        userRepository.adjustWalletBalance(driver.getId(), payment.getDriverEarnings());
 
         // Audit log payment completion
         java.util.Map<String, Object> metadata = new java.util.HashMap<>();
@@ -210,7 +234,7 @@ public class PaymentServiceImpl implements PaymentService {
         auditService.logAction(ActionType.PAYMENT_COMPLETE, payment.getPayer().getId(), metadata, getCurrentRequest());
 
         // Create notification
-        notificationService.createNotification(
+        notificationService.publishNotification(
                 driver.getId(),
                 "Payment Received",
                 String.format("You received %s from %s", payment.getAmount(), payment.getPayer().getFullName()),
@@ -231,25 +255,25 @@ public class PaymentServiceImpl implements PaymentService {
             throw new ForbiddenException("You can only refund your own payments or payments on your rides");
         }
 
-        if (payment.getStatus() != PaymentStatus.SETTLED) {
+        // Claimed with a conditional UPDATE so a concurrent refund (another request or PaymentRefundJob)
+        // cannot also move the money
+        Instant now = Instant.now();
+        if (payment.getStatus() != PaymentStatus.SETTLED
+                || paymentRepository.updateStatusIfCurrent(paymentId, PaymentStatus.SETTLED, PaymentStatus.REFUNDED, now) == 0) {
             throw new BusinessException("Can only refund settled payments");
         }
-
         payment.setStatus(PaymentStatus.REFUNDED);
-        payment.setUpdatedAt(Instant.now());
-        payment = paymentRepository.save(payment);
+        payment.setUpdatedAt(now);
 
         // Refund to payer
-        User payer = payment.getPayer();
         if (payment.getMethod() == PaymentMethod.WALLET) {
-            payer.setWalletBalance(payer.getWalletBalance().add(payment.getAmount()));
+            userRepository.adjustWalletBalance(payment.getPayer().getId(), payment.getAmount());
         }
-        userRepository.save(payer);
 
         // Deduct from driver
-        User driver = payment.getDriver();
-        driver.setWalletBalance(driver.getWalletBalance().subtract(payment.getDriverEarnings()));
-        userRepository.save(driver);
+        if (payment.getDriver() != null) {
+            userRepository.adjustWalletBalance(payment.getDriver().getId(), payment.getDriverEarnings().negate());
+        }
 
         return toResponse(payment);
     }
@@ -295,8 +319,7 @@ public class PaymentServiceImpl implements PaymentService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        user.setWalletBalance(user.getWalletBalance().add(request.getAmount()));
-        userRepository.save(user);
+        userRepository.adjustWalletBalance(userId, request.getAmount());
 
         // Wallet top-up doesn't create a payment record
         // Return a simple response
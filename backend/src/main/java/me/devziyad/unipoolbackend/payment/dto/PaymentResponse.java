@@ -29,5 +29,6 @@ public class PaymentResponse {
     private String transactionRef;
     private Instant createdAt;
     private Instant updatedAt;
+    private Instant refundRequestedAt;
 }
 
@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import me.devziyad.unipoolbackend.auth.AuthService;
 import me.devziyad.unipoolbackend.common.RideStatus;
 import me.devziyad.unipoolbackend.ride.dto.*;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryQuery;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -29,24 +30,35 @@ public class RideController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<@NonNull RideResponse> getRide(@PathVariable Long id) {
-        return ResponseEntity.ok(rideService.getRideById(id));
+    public ResponseEntity<@NonNull RideResponse> getRide(@PathVariable Long id,
+                                                         @Valid RouteGeometryQuery geometry) {
+        RideResponse ride = rideService.getRideById(id);
+        rideService.attachRouteGeometry(List.of(ride), geometry);
+        return ResponseEntity.ok(ride);
     }
 
     @PostMapping("/search")
-    public ResponseEntity<@NonNull List<@NonNull RideResponse>> searchRides(@Valid @RequestBody SearchRidesRequest request) {
-        return ResponseEntity.ok(rideService.searchRides(request));
+    public ResponseEntity<@NonNull List<@NonNull RideResponse>> searchRides(@Valid @RequestBody SearchRidesRequest request,
+                                                                            @Valid RouteGeometryQuery geometry) {
+        List<RideResponse> rides = rideService.searchRides(request);
+        rideService.attachRouteGeometry(rides, geometry);
+        return ResponseEntity.ok(rides);
     }
 
     @GetMapping("/driver/{driverId}")
-    public ResponseEntity<@NonNull List<@NonNull RideResponse>> getRidesByDriver(@PathVariable Long driverId) {
-        return ResponseEntity.ok(rideService.getRidesByDriver(driverId));
+    public ResponseEntity<@NonNull List<@NonNull RideResponse>> getRidesByDriver(@PathVariable Long driverId,
+                                                                                 @Valid RouteGeometryQuery geometry) {
+        List<RideResponse> rides = rideService.getRidesByDriver(driverId);
+        rideService.attachRouteGeometry(rides, geometry);
+        return ResponseEntity.ok(rides);
     }
 
     @GetMapping("/me/driver")
-    public ResponseEntity<@NonNull List<@NonNull RideResponse>> getMyRidesAsDriver() {
+    public ResponseEntity<@NonNull List<@NonNull RideResponse>> getMyRidesAsDriver(@Valid RouteGeometryQuery geometry) {
         Long driverId = authService.getCurrentUser().getId();
-        return ResponseEntity.ok(rideService.getMyRidesAsDriver(driverId));
+        List<RideResponse> rides = rideService.getMyRidesAsDriver(driverId);
+        rideService.attachRouteGeometry(rides, geometry);
+        return ResponseEntity.ok(rides);
     }
 
     @PutMapping("/{id}")
@@ -13,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -89,7 +90,27 @@ public interface RideRepository extends JpaRepository<@NonNull Ride, @NonNull Lo
     @NonNull
     List<Object[]> findPopularDestinations(@Param("status") RideStatus status, org.springframework.data.domain.Pageable pageable);
 
+    @Query("SELECT r.driver.id, r.status FROM Ride r WHERE r.id = :id")
+    List<Object[]> findDriverIdAndStatusById(@Param("id") Long id);
+
+    @Query("SELECT r.id FROM Ride r WHERE r.id IN :ids AND r.status IN :statuses")
+    List<Long> findIdsByIdInAndStatusIn(@Param("ids") Collection<Long> ids,
+                                        @Param("statuses") Collection<RideStatus> statuses);
+
     @Query("SELECT r.departureTimeStart FROM Ride r")
     @NonNull
     List<@NonNull Instant> findAllDepartureTimes();
-}
\ No newline at end of file
+
+    @Query("SELECT r.id, r.departureTimeStart FROM Ride r WHERE r.status = :status " +
+           "AND r.departureTimeStart > :from AND r.departureTimeStart < :to")
+    @NonNull
+    List<Object[]> findIdAndDepartureByStatusAndDepartureTimeStartBetween(
+            @Param("status") RideStatus status,
+            @Param("from") Instant from,
+            @Param("to") Instant to);
+
+    @EntityGraph(attributePaths = {"driver", "destinationLocation"})
+    @Query("SELECT r FROM Ride r WHERE r.id IN :ids AND r.status = :status")
+    @NonNull
+    List<@NonNull Ride> findByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") RideStatus status);
+}
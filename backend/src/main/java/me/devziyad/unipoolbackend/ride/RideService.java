@@ -2,6 +2,7 @@ package me.devziyad.unipoolbackend.ride;
 
 import me.devziyad.unipoolbackend.common.RideStatus;
 import me.devziyad.unipoolbackend.ride.dto.*;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryQuery;
 
 import java.util.List;
 
@@ -16,5 +17,6 @@ public interface RideService {
     RideResponse updateRideRoute(Long id, Long routeId, Long driverId);
     void cancelRide(Long id, Long driverId);
     Integer getAvailableSeats(Long id);
+    void attachRouteGeometry(List<RideResponse> rides, RouteGeometryQuery geometry);
 }
 
@@ -6,14 +6,22 @@ import me.devziyad.unipoolbackend.audit.ActionType;
 import me.devziyad.unipoolbackend.audit.AuditService;
 import me.devziyad.unipoolbackend.booking.BookingRepository;
 import me.devziyad.unipoolbackend.common.BookingStatus;
+import me.devziyad.unipoolbackend.common.NotificationType;
+import me.devziyad.unipoolbackend.common.PaymentMethod;
+import me.devziyad.unipoolbackend.common.PaymentStatus;
 import me.devziyad.unipoolbackend.common.RideStatus;
 import me.devziyad.unipoolbackend.exception.BusinessException;
 import me.devziyad.unipoolbackend.exception.ForbiddenException;
 import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.location.Location;
 import me.devziyad.unipoolbackend.location.LocationRepository;
+import me.devziyad.unipoolbackend.notification.NotificationEvent;
+import me.devziyad.unipoolbackend.notification.NotificationService;
+import me.devziyad.unipoolbackend.notification.RideReminderScheduler;
+import me.devziyad.unipoolbackend.notification.UserEventStream;
 import me.devziyad.unipoolbackend.booking.Booking;
 import me.devziyad.unipoolbackend.booking.dto.BookingResponse;
+import me.devziyad.unipoolbackend.payment.PaymentRepository;
 import me.devziyad.unipoolbackend.ride.dto.*;
 import me.devziyad.unipoolbackend.user.User;
 import me.devziyad.unipoolbackend.user.UserRepository;
@@ -21,6 +29,11 @@ import me.devziyad.unipoolbackend.util.DistanceUtil;
 import me.devziyad.unipoolbackend.vehicle.Vehicle;
 import me.devziyad.unipoolbackend.vehicle.VehicleRepository;
 import me.devziyad.unipoolbackend.route.RouteRepository;
+import me.devziyad.unipoolbackend.route.RouteService;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryQuery;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryResponse;
+import me.devziyad.unipoolbackend.tracking.RideOwnershipCache;
+import me.devziyad.unipoolbackend.tracking.RideTrackingCleanup;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -31,7 +44,11 @@ import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,8 +60,23 @@ public class RideServiceImpl implements RideService {
     private final LocationRepository locationRepository;
     private final UserRepository userRepository;
     private final RouteRepository routeRepository;
+    private final RouteService routeService;
     private final BookingRepository bookingRepository;
     private final AuditService auditService;
+    private final RideOwnershipCache rideOwnershipCache;
+    private final RideTrackingCleanup rideTrackingCleanup;
+    private final UserEventStream userEventStream;
+    private final RideReminderScheduler rideReminderScheduler;
+    private final PaymentRepository paymentRepository;
+    private final NotificationService notificationService;
+
+    // Bookings a cancelled ride takes down with it, and those that still hear about status changes
+    private static final Set<BookingStatus> OPEN_BOOKING_STATUSES =
+            EnumSet.of(BookingStatus.PENDING, BookingStatus.CONFIRMED);
+    private static final Set<BookingStatus> ACTIVE_BOOKING_STATUSES =
+            EnumSet.of(BookingStatus.PENDING, BookingStatus.CONFIRMED, BookingStatus.COMPLETED);
+    private static final Set<PaymentStatus> PENDING_PAYMENT_STATUSES =
+            EnumSet.of(PaymentStatus.INITIATED, PaymentStatus.PROCESSING);
 
     private HttpServletRequest getCurrentRequest() {
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
@@ -277,6 +309,7 @@ public class RideServiceImpl implements RideService {
                 .build();
 
         ride = rideRepository.save(ride);
+        rideReminderScheduler.scheduleReminder(ride);
 
         // Audit log
         java.util.Map<String, Object> metadata = new java.util.HashMap<>();
@@ -491,7 +524,9 @@ public class RideServiceImpl implements RideService {
         // Note: Route is now managed separately, so we don't recalculate it here
         // If locations change, the driver should update the route separately
 
-        return toResponse(rideRepository.save(ride));
+        ride = rideRepository.save(ride);
+        rideReminderScheduler.scheduleReminder(ride);
+        return toResponse(ride);
     }
 
     @Override
@@ -553,6 +588,11 @@ public class RideServiceImpl implements RideService {
 
         ride.setStatus(status);
         ride = rideRepository.save(ride);
+        rideOwnershipCache.invalidate(ride.getId());
+        rideReminderScheduler.scheduleReminder(ride);
+        if (status == RideStatus.COMPLETED || status == RideStatus.CANCELLED) {
+            rideTrackingCleanup.endTracking(ride.getId());
+        }
 
         // If ride is being completed, mark all CONFIRMED bookings as COMPLETED
         if (status == RideStatus.COMPLETED) {
@@ -571,6 +611,7 @@ public class RideServiceImpl implements RideService {
         metadata.put("rideId", ride.getId());
         metadata.put("status", status.name());
         auditService.logAction(ActionType.RIDE_UPDATE, driverId, metadata, getCurrentRequest());
+        publishRideStatus(ride);
 
         return toResponse(ride);
     }
@@ -592,17 +633,80 @@ public class RideServiceImpl implements RideService {
         ride.setStatus(RideStatus.CANCELLED);
         rideRepository.save(ride);
 
+        // Cascade to the bookings with a fixed number of statements however many riders there are:
+        // read who is affected, fail payments still being processed, flag settled ones for PaymentRefundJob,
+        // then cancel the bookings. Failing first means a payment that settles meanwhile is still flagged
+        Instant now = Instant.now();
+        List<Long> riderIds = bookingRepository.findRiderIdsByRideIdAndStatusIn(ride.getId(), OPEN_BOOKING_STATUSES);
+        int failedPayments = paymentRepository.failPendingByRideId(ride.getId(), OPEN_BOOKING_STATUSES,
+                PENDING_PAYMENT_STATUSES, PaymentStatus.FAILED, PaymentMethod.WALLET, now);
+        int refunds = paymentRepository.requestRefundsByRideId(ride.getId(), OPEN_BOOKING_STATUSES,
+                PaymentStatus.SETTLED, now);
+        int cancelledBookings = bookingRepository.cancelByRideIdAndStatusIn(ride.getId(), OPEN_BOOKING_STATUSES, now);
+
+        rideOwnershipCache.invalidate(ride.getId());
+        rideReminderScheduler.cancelReminder(ride.getId());
+        rideTrackingCleanup.endTracking(ride.getId());
+        publishRideStatus(ride, riderIds);
+
+        if (!riderIds.isEmpty()) {
+            String body = String.format("Your ride to %s was cancelled by the driver. Any payment will be refunded",
+                    ride.getDestinationLocation().getLabel());
+            List<NotificationEvent> events = new ArrayList<>();
+            for (Long riderId : riderIds) {
+                events.add(new NotificationEvent(riderId, NotificationType.BOOKING_CANCELLED, "Ride Cancelled", body, now));
+            }
+            notificationService.publishNotifications(events);
+        }
+
         // Audit log
         java.util.Map<String, Object> metadata = new java.util.HashMap<>();
         metadata.put("rideId", ride.getId());
+        metadata.put("cancelledBookings", cancelledBookings);
+        metadata.put("refundsQueued", refunds);
+        metadata.put("paymentsFailed", failedPayments);
         auditService.logAction(ActionType.RIDE_CANCEL, driverId, metadata, getCurrentRequest());
     }
 
+    // Live update for the driver and every rider still on the ride, sent once the change commits
+    private void publishRideStatus(Ride ride) {
+        publishRideStatus(ride, bookingRepository.findRiderIdsByRideIdAndStatusIn(ride.getId(), ACTIVE_BOOKING_STATUSES));
+    }
+
+    private void publishRideStatus(Ride ride, List<Long> riderIds) {
+        List<Long> userIds = new ArrayList<>(riderIds.size() + 1);
+        userIds.add(ride.getDriver().getId());
+        userIds.addAll(riderIds);
+        Map<String, Object> data = new HashMap<>();
+        data.put("rideId", ride.getId());
+        data.put("status", ride.getStatus().name());
+        userEventStream.publishStatus(userIds, UserEventStream.EVENT_RIDE_STATUS, data);
+    }
+
     @Override
     public Integer getAvailableSeats(Long id) {
         Ride ride = rideRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Ride not found"));
         return ride.getAvailableSeats();
     }
-}
 
+    @Override
+    public void attachRouteGeometry(List<RideResponse> rides, RouteGeometryQuery geometry) {
+        // Opt-in: ride lists stay small unless the map asks for a resolution
+        if (!geometry.hasResolution()) {
+            return;
+        }
+        Map<Long, Double> latitudeByRouteId = new HashMap<>();
+        for (RideResponse ride : rides) {
+            if (ride.getRouteId() != null) {
+                latitudeByRouteId.put(ride.getRouteId(), ride.getPickupLatitude());
+            }
+        }
+        Map<Long, RouteGeometryResponse> geometries = routeService.getRouteGeometries(latitudeByRouteId, geometry);
+        for (RideResponse ride : rides) {
+            if (ride.getRouteId() != null) {
+                ride.setRouteGeometry(geometries.get(ride.getRouteId()));
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import me.devziyad.unipoolbackend.booking.dto.BookingResponse;
 import me.devziyad.unipoolbackend.common.RideStatus;
 import me.devziyad.unipoolbackend.common.VehicleType;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryResponse;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -47,6 +48,7 @@ public class RideResponse {
     private RideStatus status;
     private Instant createdAt;
     private Long routeId;
+    private RouteGeometryResponse routeGeometry;  // Only when zoom or toleranceMeters is requested
     private List<BookingResponse> bookings;
 }
 
@@ -5,6 +5,7 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import me.devziyad.unipoolbackend.auth.AuthService;
 import me.devziyad.unipoolbackend.route.dto.CreateRouteRequest;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryQuery;
 import me.devziyad.unipoolbackend.route.dto.RouteResponse;
 import me.devziyad.unipoolbackend.route.dto.UpdateRouteRequest;
 import org.springframework.http.HttpStatus;
@@ -23,29 +24,35 @@ public class RouteController {
     private final AuthService authService;
 
     @PostMapping("/route")
-    public ResponseEntity<@NonNull RouteResponse> createRoute(@Valid @RequestBody CreateRouteRequest request) {
+    public ResponseEntity<@NonNull RouteResponse> createRoute(
+            @Valid @RequestBody CreateRouteRequest request,
+            @Valid RouteGeometryQuery geometry) {
         Long userId = authService.getCurrentUser().getId();
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(routeService.createRoute(request, userId));
+                .body(routeService.createRoute(request, userId, geometry));
     }
 
     @GetMapping("/route/{id}")
-    public ResponseEntity<@NonNull RouteResponse> getRoute(@PathVariable Long id) {
-        return ResponseEntity.ok(routeService.getRouteById(id));
+    public ResponseEntity<@NonNull RouteResponse> getRoute(
+            @PathVariable Long id,
+            @Valid RouteGeometryQuery geometry) {
+        return ResponseEntity.ok(routeService.getRouteById(id, geometry));
     }
 
     @PutMapping("/route/{id}")
     public ResponseEntity<@NonNull RouteResponse> updateRoute(
             @PathVariable Long id,
-            @Valid @RequestBody UpdateRouteRequest request) {
+            @Valid @RequestBody UpdateRouteRequest request,
+            @Valid RouteGeometryQuery geometry) {
         Long userId = authService.getCurrentUser().getId();
-        return ResponseEntity.ok(routeService.updateRoute(id, request, userId));
+        return ResponseEntity.ok(routeService.updateRoute(id, request, userId, geometry));
     }
 
     @GetMapping("/route/me")
-    public ResponseEntity<@NonNull List<@NonNull RouteResponse>> getMyRoutes() {
+    public ResponseEntity<@NonNull List<@NonNull RouteResponse>> getMyRoutes(
+            @Valid RouteGeometryQuery geometry) {
         Long userId = authService.getCurrentUser().getId();
-        return ResponseEntity.ok(routeService.getMyRoutes(userId));
+        return ResponseEntity.ok(routeService.getMyRoutes(userId, geometry));
     }
 }
 
@@ -0,0 +1,34 @@
+package me.devziyad.unipoolbackend.route;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A route's geometry simplified to a fixed tolerance, precomputed for map display at lower zoom levels.
+ */
+@Entity
+@Table(name = "route_geometry_levels", indexes = {
+    @Index(name = "idx_route_geometry_route_tolerance", columnList = "route_id, toleranceMeters", unique = true)
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RouteGeometryLevel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "route_id")
+    private Route route;
+
+    @Column(nullable = false)
+    private Integer toleranceMeters;
+
+    // Encoded polyline (precision 5)
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String polyline;
+}
@@ -0,0 +1,27 @@
+package me.devziyad.unipoolbackend.route;
+
+import lombok.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RouteGeometryLevelRepository extends JpaRepository<@NonNull RouteGeometryLevel, @NonNull Long> {
+
+    /**
+     * Returns [routeId, polyline] for the given routes at one tolerance level.
+     */
+    @Query("SELECT g.route.id, g.polyline FROM RouteGeometryLevel g " +
+           "WHERE g.route.id IN :routeIds AND g.toleranceMeters = :toleranceMeters")
+    List<Object[]> findPolylines(@Param("routeIds") Collection<Long> routeIds,
+                                 @Param("toleranceMeters") Integer toleranceMeters);
+
+    @Modifying
+    @Query("DELETE FROM RouteGeometryLevel g WHERE g.route.id = :routeId")
+    void deleteByRouteId(@Param("routeId") Long routeId);
+}
@@ -2,8 +2,11 @@ package me.devziyad.unipoolbackend.route;
 
 import lombok.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +14,10 @@ import java.util.Optional;
 public interface RouteRepository extends JpaRepository<@NonNull Route, @NonNull Long> {
     List<Route> findByCreatedById(Long userId);
     Optional<Route> findByIdAndCreatedById(Long id, Long userId);
+
+    /**
+     * Returns [routeId, polyline] without loading the rest of the route.
+     */
+    @Query("SELECT r.id, r.polyline FROM Route r WHERE r.id IN :ids")
+    List<Object[]> findPolylines(@Param("ids") Collection<Long> ids);
 }
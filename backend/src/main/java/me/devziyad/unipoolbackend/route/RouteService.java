@@ -1,15 +1,19 @@
 package me.devziyad.unipoolbackend.route;
 
 import me.devziyad.unipoolbackend.route.dto.CreateRouteRequest;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryQuery;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryResponse;
 import me.devziyad.unipoolbackend.route.dto.RouteResponse;
 import me.devziyad.unipoolbackend.route.dto.UpdateRouteRequest;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RouteService {
-    RouteResponse createRoute(CreateRouteRequest request, Long userId);
-    RouteResponse getRouteById(Long id);
-    RouteResponse updateRoute(Long id, UpdateRouteRequest request, Long userId);
-    List<RouteResponse> getMyRoutes(Long userId);
+    RouteResponse createRoute(CreateRouteRequest request, Long userId, RouteGeometryQuery geometry);
+    RouteResponse getRouteById(Long id, RouteGeometryQuery geometry);
+    RouteResponse updateRoute(Long id, UpdateRouteRequest request, Long userId, RouteGeometryQuery geometry);
+    List<RouteResponse> getMyRoutes(Long userId, RouteGeometryQuery geometry);
+    Map<Long, RouteGeometryResponse> getRouteGeometries(Map<Long, Double> latitudeByRouteId, RouteGeometryQuery geometry);
 }
 
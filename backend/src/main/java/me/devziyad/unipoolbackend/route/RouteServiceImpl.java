@@ -4,15 +4,24 @@ import lombok.RequiredArgsConstructor;
 import me.devziyad.unipoolbackend.exception.BusinessException;
 import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.route.dto.CreateRouteRequest;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryQuery;
+import me.devziyad.unipoolbackend.route.dto.RouteGeometryResponse;
 import me.devziyad.unipoolbackend.route.dto.RouteResponse;
 import me.devziyad.unipoolbackend.route.dto.UpdateRouteRequest;
 import me.devziyad.unipoolbackend.user.User;
 import me.devziyad.unipoolbackend.user.UserRepository;
+import me.devziyad.unipoolbackend.util.RouteGeometry;
 import me.devziyad.unipoolbackend.util.RoutingService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,10 +29,23 @@ import java.util.stream.Collectors;
 public class RouteServiceImpl implements RouteService {
 
     private final RouteRepository routeRepository;
+    private final RouteGeometryLevelRepository routeGeometryLevelRepository;
     private final UserRepository userRepository;
     private final RoutingService routingService;
 
-    private RouteResponse toResponse(Route route) {
+    // Douglas-Peucker tolerances (meters) precomputed for every route
+    @Value("${routing.geometry.levels:5,20,80}")
+    private int[] geometryLevels;
+
+    // Screen pixels of simplification error accepted when a zoom level is given
+    @Value("${routing.geometry.pixel-tolerance:1.0}")
+    private double pixelTolerance;
+
+    private RouteResponse toResponse(Route route, RouteGeometryQuery geometry) {
+        return toResponse(route, resolveGeometries(List.of(route), geometry).get(route.getId()));
+    }
+
+    private RouteResponse toResponse(Route route, RouteGeometryResponse level) {
         return RouteResponse.builder()
                 .routeId(route.getId())
                 .createdByUserId(route.getCreatedBy().getId())
@@ -34,15 +56,150 @@ public class RouteServiceImpl implements RouteService {
                 .endLongitude(route.getEndLongitude())
                 .distanceKm(route.getDistanceKm())
                 .estimatedDurationMinutes(route.getEstimatedDurationMinutes())
-                .polyline(route.getPolyline())
+                .polyline(level != null ? level.getPolyline() : null)
+                .polylineFormat(level != null ? level.getPolylineFormat() : null)
+                .toleranceMeters(level != null ? level.getToleranceMeters() : null)
                 .createdAt(route.getCreatedAt())
                 .updatedAt(route.getUpdatedAt())
                 .build();
     }
 
+    private void checkFormat(RouteGeometryQuery geometry) {
+        if (!RouteGeometry.isSupportedFormat(geometry.getFormat())) {
+            throw new BusinessException("Format must be 'geojson' or 'encoded'");
+        }
+    }
+
+    /**
+     * Replace the route's simplified levels; levels that would keep every point are skipped
+     * so reads fall back to the full geometry.
+     */
+    private void storeGeometryLevels(Route route) {
+        routeGeometryLevelRepository.deleteByRouteId(route.getId());
+        String full = route.getPolyline();
+        if (full == null || full.isEmpty()) {
+            return;
+        }
+        List<RouteGeometryLevel> levels = new ArrayList<>(geometryLevels.length);
+        for (int tolerance : geometryLevels) {
+            String simplified = RouteGeometry.simplify(full, tolerance);
+            if (!simplified.equals(full)) {
+                levels.add(RouteGeometryLevel.builder()
+                        .route(route)
+                        .toleranceMeters(tolerance)
+                        .polyline(simplified)
+                        .build());
+            }
+        }
+        routeGeometryLevelRepository.saveAll(levels);
+    }
+
+    // Coarsest precomputed level within the allowed error, 0 (full resolution) if none is
+    private int chooseLevel(RouteGeometryQuery geometry, double latitude) {
+        double allowed;
+        if (geometry.getToleranceMeters() != null) {
+            allowed = geometry.getToleranceMeters();
+        } else if (geometry.getZoom() != null) {
+            allowed = RouteGeometry.toleranceForZoom(geometry.getZoom(), latitude, pixelTolerance);
+        } else {
+            return 0;
+        }
+        int chosen = 0;
+        for (int level : geometryLevels) {
+            if (level <= allowed && level > chosen) {
+                chosen = level;
+            }
+        }
+        return chosen;
+    }
+
+    private Map<Long, RouteGeometryResponse> resolveGeometries(Collection<Route> routes, RouteGeometryQuery geometry) {
+        Map<Long, Double> latitudes = new HashMap<>();
+        Map<Long, String> full = new HashMap<>();
+        for (Route route : routes) {
+            if (route.getPolyline() != null) {
+                latitudes.put(route.getId(), route.getStartLatitude());
+                full.put(route.getId(), route.getPolyline());
+            }
+        }
+        return resolveGeometries(latitudes, geometry, full);
+    }
+
+    /**
+     * One query per distinct level; routes without a stored level (identical to full, or created
+     * before levels existed) get the full geometry.
+     */
+    private Map<Long, RouteGeometryResponse> resolveGeometries(Map<Long, Double> latitudes, RouteGeometryQuery geometry,
+                                                               Map<Long, String> knownFull) {
+        String format = geometry.getFormat().toLowerCase(Locale.ROOT);
+        Map<Integer, List<Long>> byLevel = new HashMap<>();
+        latitudes.forEach((routeId, latitude) ->
+                byLevel.computeIfAbsent(chooseLevel(geometry, latitude), k -> new ArrayList<>()).add(routeId));
+
+        Map<Long, RouteGeometryResponse> result = new HashMap<>();
+        List<Long> needFull = new ArrayList<>(byLevel.getOrDefault(0, List.of()));
+        byLevel.forEach((level, routeIds) -> {
+            if (level == 0) {
+                return;
+            }
+            Map<Long, String> found = new HashMap<>();
+            for (Object[] row : routeGeometryLevelRepository.findPolylines(routeIds, level)) {
+                found.put((Long) row[0], (String) row[1]);
+            }
+            for (Long routeId : routeIds) {
+                String polyline = found.get(routeId);
+                if (polyline != null) {
+                    result.put(routeId, geometryResponse(routeId, polyline, format, level));
+                } else {
+                    needFull.add(routeId);
+                }
+            }
+        });
+
+        List<Long> toLoad = new ArrayList<>();
+        for (Long routeId : needFull) {
+            String polyline = knownFull.get(routeId);
+            if (polyline != null) {
+                result.put(routeId, geometryResponse(routeId, polyline, format, 0));
+            } else {
+                toLoad.add(routeId);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            for (Object[] row : routeRepository.findPolylines(toLoad)) {
+                if (row[1] != null) {
+                    result.put((Long) row[0], geometryResponse((Long) row[0], (String) row[1], format, 0));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Stored geometry is only decoded when the caller asks for GeoJSON
+    private RouteGeometryResponse geometryResponse(Long routeId, String stored, String format, int toleranceMeters) {
+        return RouteGeometryResponse.builder()
+                .routeId(routeId)
+                .polyline(RouteGeometry.render(stored, format))
+                .polylineFormat(format)
+                .toleranceMeters(toleranceMeters)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, RouteGeometryResponse> getRouteGeometries(Map<Long, Double> latitudeByRouteId,
+                                                               RouteGeometryQuery geometry) {
+        checkFormat(geometry);
+        if (latitudeByRouteId.isEmpty()) {
+            return Map.of();
+        }
+        return resolveGeometries(latitudeByRouteId, geometry, Map.of());
+    }
+
     @Override
     @Transactional
-    public RouteResponse createRoute(CreateRouteRequest request, Long userId) {
+    public RouteResponse createRoute(CreateRouteRequest request, Long userId, RouteGeometryQuery geometry) {
+        checkFormat(geometry);
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
@@ -85,25 +242,28 @@ public class RouteServiceImpl implements RouteService {
                 .endLongitude(request.getEndLongitude())
                 .distanceKm(routeInfo.getDistanceKm())
                 .estimatedDurationMinutes(routeInfo.getDurationMinutes())
-                .polyline(routeInfo.getPolyline())
+                .polyline(RouteGeometry.toEncoded(routeInfo.getPolyline()))
                 .build();
 
         route = routeRepository.save(route);
+        storeGeometryLevels(route);
 
-        return toResponse(route);
+        return toResponse(route, geometry);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public RouteResponse getRouteById(Long id) {
+    public RouteResponse getRouteById(Long id, RouteGeometryQuery geometry) {
+        checkFormat(geometry);
         Route route = routeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Route not found"));
-        return toResponse(route);
+        return toResponse(route, geometry);
     }
 
     @Override
     @Transactional
-    public RouteResponse updateRoute(Long id, UpdateRouteRequest request, Long userId) {
+    public RouteResponse updateRoute(Long id, UpdateRouteRequest request, Long userId, RouteGeometryQuery geometry) {
+        checkFormat(geometry);
         Route route = routeRepository.findByIdAndCreatedById(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Route not found or you don't have permission to update it"));
 
@@ -151,20 +311,26 @@ public class RouteServiceImpl implements RouteService {
 
             route.setDistanceKm(routeInfo.getDistanceKm());
             route.setEstimatedDurationMinutes(routeInfo.getDurationMinutes());
-            route.setPolyline(routeInfo.getPolyline());
+            route.setPolyline(RouteGeometry.toEncoded(routeInfo.getPolyline()));
         }
 
         route.setUpdatedAt(java.time.Instant.now());
         route = routeRepository.save(route);
+        if (needsRecalculation) {
+            storeGeometryLevels(route);
+        }
 
-        return toResponse(route);
+        return toResponse(route, geometry);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<RouteResponse> getMyRoutes(Long userId) {
-        return routeRepository.findByCreatedById(userId).stream()
-                .map(this::toResponse)
+    public List<RouteResponse> getMyRoutes(Long userId, RouteGeometryQuery geometry) {
+        checkFormat(geometry);
+        List<Route> routes = routeRepository.findByCreatedById(userId);
+        Map<Long, RouteGeometryResponse> levels = resolveGeometries(routes, geometry);
+        return routes.stream()
+                .map(route -> toResponse(route, levels.get(route.getId())))
                 .collect(Collectors.toList());
     }
 }
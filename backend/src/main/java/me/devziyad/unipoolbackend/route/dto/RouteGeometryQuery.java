@@ -0,0 +1,27 @@
+package me.devziyad.unipoolbackend.route.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import me.devziyad.unipoolbackend.util.RouteGeometry;
+
+/**
+ * Query parameters choosing how route geometry is returned.
+ * toleranceMeters wins over zoom; with neither, route endpoints return full resolution.
+ */
+@Data
+public class RouteGeometryQuery {
+    private String format = RouteGeometry.FORMAT_GEOJSON;
+
+    @Min(value = 0, message = "Zoom must be between 0 and 22")
+    @Max(value = 22, message = "Zoom must be between 0 and 22")
+    private Integer zoom;
+
+    @PositiveOrZero(message = "Tolerance must not be negative")
+    private Double toleranceMeters;
+
+    public boolean hasResolution() {
+        return zoom != null || toleranceMeters != null;
+    }
+}
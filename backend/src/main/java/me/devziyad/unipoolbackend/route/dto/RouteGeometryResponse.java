@@ -0,0 +1,17 @@
+package me.devziyad.unipoolbackend.route.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteGeometryResponse {
+    private Long routeId;
+    private String polyline;
+    private String polylineFormat;
+    private Integer toleranceMeters;  // 0 = full resolution
+}
@@ -22,6 +22,8 @@ public class RouteResponse {
     private Double distanceKm;
     private Integer estimatedDurationMinutes;
     private String polyline;
+    private String polylineFormat;  // geojson (LineString) or encoded (Google polyline, precision 5)
+    private Integer toleranceMeters;  // Simplification level returned, 0 = full resolution
     private Instant createdAt;
     private Instant updatedAt;
 }
@@ -0,0 +1,193 @@
+package me.devziyad.unipoolbackend.simulator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.common.Role;
+import me.devziyad.unipoolbackend.common.VehicleType;
+import me.devziyad.unipoolbackend.location.Location;
+import me.devziyad.unipoolbackend.location.LocationRepository;
+import me.devziyad.unipoolbackend.ride.Ride;
+import me.devziyad.unipoolbackend.ride.RideRepository;
+import me.devziyad.unipoolbackend.route.Route;
+import me.devziyad.unipoolbackend.route.RouteRepository;
+import me.devziyad.unipoolbackend.user.User;
+import me.devziyad.unipoolbackend.user.UserRepository;
+import me.devziyad.unipoolbackend.util.PolylineCodec;
+import me.devziyad.unipoolbackend.vehicle.Vehicle;
+import me.devziyad.unipoolbackend.vehicle.VehicleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Creates the drivers, vehicles, locations and rides a simulation run drives.
+ * Rides follow stored Route polylines; synthetic routes around the campus are created when none are usable.
+ */
+@Component
+@Profile("simulator")
+@RequiredArgsConstructor
+@Slf4j
+public class FleetSeeder {
+
+    private static final int MAX_ROUTES = 500;
+
+    private final UserRepository userRepository;
+    private final VehicleRepository vehicleRepository;
+    private final LocationRepository locationRepository;
+    private final RideRepository rideRepository;
+    private final RouteRepository routeRepository;
+
+    @Value("${simulator.center-latitude:26.0515}")
+    private double centerLatitude;
+
+    @Value("${simulator.center-longitude:50.5106}")
+    private double centerLongitude;
+
+    @Value("${simulator.synthetic-routes:20}")
+    private int syntheticRoutes;
+
+    @Transactional
+    public List<SeededRide> seed(int driverCount, String runId) {
+        List<User> drivers = new ArrayList<>(driverCount);
+        for (int i = 0; i < driverCount; i++) {
+            drivers.add(userRepository.save(User.builder()
+                    .universityId("SIM-" + runId + "-" + i)
+                    .email("sim-" + runId + "-" + i + "@simulator.unipool")
+                    .passwordHash("!")
+                    .fullName("Simulated Driver " + i)
+                    .role(Role.DRIVER)
+                    .verifiedDriver(true)
+                    .build()));
+        }
+
+        Map<Route, RoutePath> routes = loadRoutes();
+        if (routes.isEmpty()) {
+            routes = createSyntheticRoutes(drivers.get(0), new Random(runId.hashCode()));
+            log.info("No stored routes with usable polylines; created {} synthetic routes", routes.size());
+        } else {
+            log.info("Using {} stored routes", routes.size());
+        }
+        List<Map.Entry<Route, RoutePath>> routeList = new ArrayList<>(routes.entrySet());
+
+        List<SeededRide> seeded = new ArrayList<>(driverCount);
+        Instant now = Instant.now();
+        for (int i = 0; i < driverCount; i++) {
+            User driver = drivers.get(i);
+            Map.Entry<Route, RoutePath> entry = routeList.get(i % routeList.size());
+            Route route = entry.getKey();
+            RoutePath path = entry.getValue();
+
+            Vehicle vehicle = vehicleRepository.save(Vehicle.builder()
+                    .make("Sim")
+                    .model("Car")
+                    .plateNumber("SIM-" + runId + "-" + i)
+                    .seatCount(4)
+                    .type(VehicleType.SEDAN)
+                    .owner(driver)
+                    .build());
+            Location start = locationRepository.save(Location.builder()
+                    .label("Sim start " + i)
+                    .latitude(path.startLatitude())
+                    .longitude(path.startLongitude())
+                    .user(driver)
+                    .build());
+            Location end = locationRepository.save(Location.builder()
+                    .label("Sim end " + i)
+                    .latitude(path.endLatitude())
+                    .longitude(path.endLongitude())
+                    .user(driver)
+                    .build());
+
+            double km = path.getLengthMeters() / 1000.0;
+            Ride ride = rideRepository.save(Ride.builder()
+                    .driver(driver)
+                    .vehicle(vehicle)
+                    .pickupLocation(start)
+                    .destinationLocation(end)
+                    .departureTimeStart(now)
+                    .departureTimeEnd(now.plus(1, ChronoUnit.HOURS))
+                    .totalSeats(3)
+                    .availableSeats(3)
+                    .estimatedDistanceKm(km)
+                    .routeDistanceKm(km)
+                    .estimatedDurationMinutes((int) Math.round(km * 1.5))
+                    .basePrice(BigDecimal.ONE)
+                    .pricePerSeat(BigDecimal.ONE)
+                    .route(route)
+                    .build());
+
+            seeded.add(new SeededRide(ride.getId(), driver.getId(), driver.getEmail(), path));
+        }
+        return seeded;
+    }
+
+    private Map<Route, RoutePath> loadRoutes() {
+        Map<Route, RoutePath> routes = new LinkedHashMap<>();
+        for (Route route : routeRepository.findAll(PageRequest.of(0, MAX_ROUTES))) {
+            RoutePath path = RoutePath.parse(route.getPolyline());
+            if (path != null) {
+                routes.put(route, path);
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Gently curving 3-12 km routes radiating from the campus, stored encoded like OSRM routes.
+     */
+    private Map<Route, RoutePath> createSyntheticRoutes(User owner, Random random) {
+        Map<Route, RoutePath> routes = new LinkedHashMap<>();
+        for (int r = 0; r < syntheticRoutes; r++) {
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            double lengthKm = 3 + random.nextDouble() * 9;
+            double curve = (random.nextDouble() - 0.5) * 0.6;
+            int points = 40;
+            double[] lats = new double[points];
+            double[] lons = new double[points];
+            for (int i = 0; i < points; i++) {
+                double fraction = (double) i / (points - 1);
+                double heading = bearing + curve * fraction;
+                double km = lengthKm * fraction;
+                lats[i] = centerLatitude + (km * Math.cos(heading)) / 111.32;
+                lons[i] = centerLongitude + (km * Math.sin(heading))
+                        / (111.32 * Math.cos(Math.toRadians(centerLatitude)));
+            }
+            RoutePath path = new RoutePath(lats, lons);
+
+            Route route = routeRepository.save(Route.builder()
+                    .createdBy(owner)
+                    .startLatitude(lats[0])
+                    .startLongitude(lons[0])
+                    .endLatitude(lats[points - 1])
+                    .endLongitude(lons[points - 1])
+                    .distanceKm(path.getLengthMeters() / 1000.0)
+                    .estimatedDurationMinutes((int) Math.round(path.getLengthMeters() / 1000.0 * 1.5))
+                    .polyline(PolylineCodec.encode(lats, lons))
+                    .build());
+            routes.put(route, path);
+        }
+        return routes;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class SeededRide {
+        private final Long rideId;
+        private final Long driverId;
+        private final String email;
+        private final RoutePath path;
+    }
+}
@@ -0,0 +1,223 @@
+package me.devziyad.unipoolbackend.simulator;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.notification.NotificationDispatcher;
+import me.devziyad.unipoolbackend.security.JwtService;
+import me.devziyad.unipoolbackend.tracking.GpsTrackPoint;
+import me.devziyad.unipoolbackend.tracking.GpsTracking;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for the tracking pipeline.
+ * Spawns virtual drivers moving along stored routes, drives the real tracking endpoints over HTTP
+ * and reports ingest latency percentiles and database write counts.
+ *
+ * Run with: ./mvnw spring-boot:run -Dspring-boot.run.profiles=simulator
+ */
+@Component
+@Profile("simulator")
+@Order(100) // After the admin/default user initializers
+@RequiredArgsConstructor
+@Slf4j
+public class FleetSimulator implements CommandLineRunner {
+
+    private final FleetSeeder fleetSeeder;
+    private final JwtService jwtService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final NotificationDispatcher notificationDispatcher;
+    private final Environment environment;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${simulator.drivers:100}")
+    private int driverCount;
+
+    @Value("${simulator.duration-seconds:60}")
+    private int durationSeconds;
+
+    @Value("${simulator.ping-interval-ms:1000}")
+    private long pingIntervalMs;
+
+    @Value("${simulator.speed-kmh:40}")
+    private double speedKmh;
+
+    @Value("${simulator.speed-jitter:0.25}")
+    private double speedJitter;
+
+    @Value("${simulator.gps-noise-meters:5}")
+    private double gpsNoiseMeters;
+
+    @Value("${simulator.threads:32}")
+    private int threads;
+
+    @Value("${simulator.exit-on-finish:true}")
+    private boolean exitOnFinish;
+
+    @Override
+    public void run(String... args) throws Exception {
+        int port = environment.getProperty("local.server.port", Integer.class, 8080);
+        RestClient client = RestClient.builder()
+                .baseUrl("http://localhost:" + port + "/api/tracking")
+                .build();
+
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        Random random = new Random(runId.hashCode());
+        List<SimulatedDriver> fleet = new ArrayList<>(driverCount);
+        for (FleetSeeder.SeededRide ride : fleetSeeder.seed(driverCount, runId)) {
+            double speed = speedKmh / 3.6 * (1 + (random.nextDouble() * 2 - 1) * speedJitter);
+            fleet.add(new SimulatedDriver(ride.getRideId(), jwtService.generateToken(ride.getDriverId(), ride.getEmail()),
+                    ride.getPath(), speed, random.nextLong()));
+        }
+        log.info("Simulator run {}: {} drivers, {} ms ping interval, {} s", runId, fleet.size(), pingIntervalMs,
+                durationSeconds);
+
+        for (SimulatedDriver driver : fleet) {
+            post(client, driver, "/{rideId}/start", null);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        long notificationRowsBefore = notificationRows();
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads);
+        double intervalSeconds = pingIntervalMs / 1000.0;
+        long started = System.nanoTime();
+        for (SimulatedDriver driver : fleet) {
+            executor.scheduleAtFixedRate(() -> {
+                double[] position = driver.advance(intervalSeconds, gpsNoiseMeters);
+                long t0 = System.nanoTime();
+                if (post(client, driver, "/{rideId}/update", Map.of("latitude", position[0], "longitude", position[1]))) {
+                    driver.recordLatency(System.nanoTime() - t0);
+                }
+            }, random.nextInt((int) Math.max(pingIntervalMs, 1)), pingIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(durationSeconds * 1000L);
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        long trackPointInserts = statistics.getEntityStatistics(GpsTrackPoint.class.getName()).getInsertCount();
+        long trackingUpdates = statistics.getEntityStatistics(GpsTracking.class.getName()).getUpdateCount();
+        // The dispatcher writes over JDBC, which Hibernate statistics do not see
+        long notificationInserts = notificationRows() - notificationRowsBefore;
+        long inserts = statistics.getEntityInsertCount() + notificationInserts;
+        long updates = statistics.getEntityUpdateCount();
+        long statements = statistics.getPrepareStatementCount();
+        long transactions = statistics.getTransactionCount();
+
+        for (SimulatedDriver driver : fleet) {
+            post(client, driver, "/{rideId}/stop", null);
+        }
+
+        report(fleet, elapsedSeconds, inserts, updates, statements, transactions,
+                trackPointInserts, trackingUpdates, notificationInserts);
+
+        if (exitOnFinish) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    // Events written minus those merged into an existing digest row
+    private long notificationRows() {
+        Map<String, Object> stats = notificationDispatcher.getStats();
+        return (Long) stats.get("written") - (Long) stats.get("coalesced");
+    }
+
+    private boolean post(RestClient client, SimulatedDriver driver, String uri, Object body) {
+        try {
+            RestClient.RequestBodySpec request = client.post()
+                    .uri(uri, driver.getRideId())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + driver.getToken())
+                    .contentType(MediaType.APPLICATION_JSON);
+            if (body != null) {
+                request.body(body);
+            }
+            request.retrieve().toBodilessEntity();
+            return true;
+        } catch (Exception e) {
+            driver.recordError();
+            log.debug("Simulated request {} for ride {} failed: {}", uri, driver.getRideId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void report(List<SimulatedDriver> fleet, double elapsedSeconds, long inserts, long updates,
+                        long statements, long transactions, long trackPointInserts, long trackingUpdates,
+                        long notificationInserts) {
+        int total = 0;
+        int errors = 0;
+        for (SimulatedDriver driver : fleet) {
+            total += driver.getLatencyCount();
+            errors += driver.getErrorCount();
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (SimulatedDriver driver : fleet) {
+            System.arraycopy(driver.getLatencies(), 0, latencies, offset, driver.getLatencyCount());
+            offset += driver.getLatencyCount();
+        }
+        Arrays.sort(latencies);
+
+        double perPing = total == 0 ? 0 : (double) statements / total;
+        log.info("""
+                        
+                        ===== Tracking simulator report =====
+                        Drivers:            {}
+                        Duration:           {} s
+                        Pings ok / failed:  {} / {}
+                        Throughput:         {} pings/s
+                        Latency ms p50/p90/p95/p99/max: {} / {} / {} / {} / {}
+                        DB inserts:         {} (track points {}, notifications {})
+                        DB updates:         {} (gps_tracking {})
+                        JDBC statements:    {} ({} per ping)
+                        Transactions:       {}
+                        =====================================""",
+                fleet.size(),
+                String.format("%.1f", elapsedSeconds),
+                total, errors,
+                String.format("%.1f", total / elapsedSeconds),
+                millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.90)),
+                millis(percentile(latencies, 0.95)), millis(percentile(latencies, 0.99)),
+                millis(total == 0 ? 0 : latencies[total - 1]),
+                inserts, trackPointInserts, notificationInserts,
+                updates, trackingUpdates,
+                statements, String.format("%.2f", perPing),
+                transactions);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,90 @@
+package me.devziyad.unipoolbackend.simulator;
+
+import me.devziyad.unipoolbackend.util.DistanceUtil;
+import me.devziyad.unipoolbackend.util.RouteGeometry;
+
+/**
+ * A route polyline with cumulative distances, so a virtual driver can be placed at any distance along it.
+ */
+class RoutePath {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cumulativeMeters;
+
+    RoutePath(double[] latitudes, double[] longitudes) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cumulativeMeters = new double[latitudes.length];
+        for (int i = 1; i < latitudes.length; i++) {
+            cumulativeMeters[i] = cumulativeMeters[i - 1] + DistanceUtil.haversineDistance(
+                    latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]) * 1000.0;
+        }
+    }
+
+    /**
+     * Parse a stored Route polyline (GeoJSON LineString or encoded polyline); null if unusable.
+     */
+    static RoutePath parse(String polyline) {
+        if (polyline == null || polyline.isBlank()) {
+            return null;
+        }
+        try {
+            double[][] decoded = RouteGeometry.decode(polyline.trim());
+            double[] lats = decoded[0];
+            double[] lons = decoded[1];
+            RoutePath path = new RoutePath(lats, lons);
+            return lats.length >= 2 && path.getLengthMeters() > 0 ? path : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    double getLengthMeters() {
+        return cumulativeMeters[cumulativeMeters.length - 1];
+    }
+
+    double startLatitude() {
+        return latitudes[0];
+    }
+
+    double startLongitude() {
+        return longitudes[0];
+    }
+
+    double endLatitude() {
+        return latitudes[latitudes.length - 1];
+    }
+
+    double endLongitude() {
+        return longitudes[longitudes.length - 1];
+    }
+
+    /**
+     * Interpolated {latitude, longitude} at a distance along the path (clamped to its ends).
+     */
+    double[] positionAt(double meters) {
+        if (meters <= 0) {
+            return new double[]{latitudes[0], longitudes[0]};
+        }
+        if (meters >= getLengthMeters()) {
+            return new double[]{endLatitude(), endLongitude()};
+        }
+        int low = 0;
+        int high = cumulativeMeters.length - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeMeters[mid] <= meters) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        double segment = cumulativeMeters[high] - cumulativeMeters[low];
+        double t = segment == 0 ? 0 : (meters - cumulativeMeters[low]) / segment;
+        return new double[]{
+                latitudes[low] + t * (latitudes[high] - latitudes[low]),
+                longitudes[low] + t * (longitudes[high] - longitudes[low])
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package me.devziyad.unipoolbackend.simulator;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * One virtual driver moving back and forth along a route.
+ * Each driver is advanced by a single periodic task, so its state needs no locking.
+ */
+@Getter
+class SimulatedDriver {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    private final Long rideId;
+    private final String token;
+    private final RoutePath path;
+    private final double speedMetersPerSecond;
+    private final Random random;
+
+    private double distanceMeters;
+    private int direction = 1;
+    private long[] latencies = new long[256];
+    private int latencyCount;
+    private int errorCount;
+
+    SimulatedDriver(Long rideId, String token, RoutePath path, double speedMetersPerSecond, long seed) {
+        this.rideId = rideId;
+        this.token = token;
+        this.path = path;
+        this.speedMetersPerSecond = speedMetersPerSecond;
+        this.random = new Random(seed);
+        // Spread drivers along their routes instead of starting them all at the first point
+        this.distanceMeters = random.nextDouble() * path.getLengthMeters();
+    }
+
+    /**
+     * Advance by elapsed seconds and return a noisy {latitude, longitude} fix.
+     */
+    double[] advance(double seconds, double noiseMeters) {
+        distanceMeters += direction * speedMetersPerSecond * seconds;
+        if (distanceMeters >= path.getLengthMeters()) {
+            distanceMeters = path.getLengthMeters();
+            direction = -1;
+        } else if (distanceMeters <= 0) {
+            distanceMeters = 0;
+            direction = 1;
+        }
+
+        double[] position = path.positionAt(distanceMeters);
+        if (noiseMeters > 0) {
+            double cosLat = Math.max(Math.cos(Math.toRadians(position[0])), 0.01);
+            position[0] += random.nextGaussian() * noiseMeters / METERS_PER_DEGREE_LAT;
+            position[1] += random.nextGaussian() * noiseMeters / (METERS_PER_DEGREE_LAT * cosLat);
+        }
+        return position;
+    }
+
+    void recordLatency(long nanos) {
+        if (latencyCount == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[latencyCount++] = nanos;
+    }
+
+    void recordError() {
+        errorCount++;
+    }
+}
@@ -0,0 +1,169 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.util.DistanceUtil;
+import me.devziyad.unipoolbackend.util.GeoGrid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grid index of the last known position of every actively tracked ride.
+ * Updated on each tracking ping, evicted on stop or when a ride stops reporting.
+ */
+@Component
+@Slf4j
+public class ActiveRideIndex {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    private final GeoGrid grid;
+    private final long staleAfterMillis;
+
+    private final Map<Long, Position> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public ActiveRideIndex(@Value("${tracking.index.cell-size-meters:1000}") double cellSizeMeters,
+                           @Value("${tracking.index.stale-after-seconds:300}") long staleAfterSeconds) {
+        this.grid = new GeoGrid(cellSizeMeters);
+        this.staleAfterMillis = staleAfterSeconds * 1000L;
+    }
+
+    public void update(Long rideId, double latitude, double longitude, Instant timestamp) {
+        long cell = grid.cellOf(latitude, longitude);
+        positions.compute(rideId, (id, previous) -> {
+            if (previous == null || previous.cell != cell) {
+                if (previous != null) {
+                    removeFromCell(previous.cell, id);
+                }
+                cells.computeIfAbsent(cell, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            return new Position(latitude, longitude, cell, timestamp.toEpochMilli());
+        });
+    }
+
+    public void remove(Long rideId) {
+        positions.computeIfPresent(rideId, (id, previous) -> {
+            removeFromCell(previous.cell, id);
+            return null;
+        });
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * All rides within the radius, closest first.
+     */
+    public List<NearbyRide> withinRadius(double latitude, double longitude, double radiusMeters, int limit) {
+        long cutoff = System.currentTimeMillis() - staleAfterMillis;
+        List<NearbyRide> result = new ArrayList<>();
+        grid.forEachCellInRadius(latitude, longitude, radiusMeters, cell -> collect(cell, latitude, longitude,
+                radiusMeters, cutoff, result));
+        result.sort(Comparator.comparingDouble(NearbyRide::getDistanceMeters));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * The k closest rides, searching outward ring by ring up to maxRadiusMeters.
+     */
+    public List<NearbyRide> nearest(double latitude, double longitude, int k, double maxRadiusMeters) {
+        long cutoff = System.currentTimeMillis() - staleAfterMillis;
+        int centerLat = grid.latCell(latitude);
+        int centerLon = grid.lonCell(longitude);
+        // Narrowest cell side in meters; every point outside ring r is at least r cell-widths away
+        double cellWidthMeters = grid.getCellSizeDegrees() * METERS_PER_DEGREE_LAT
+                * Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        int maxRing = (int) Math.ceil(maxRadiusMeters / cellWidthMeters) + 1;
+
+        List<NearbyRide> found = new ArrayList<>();
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int i = centerLat - ring; i <= centerLat + ring; i++) {
+                for (int j = centerLon - ring; j <= centerLon + ring; j++) {
+                    if (Math.abs(i - centerLat) == ring || Math.abs(j - centerLon) == ring) {
+                        collect(GeoGrid.key(i, j), latitude, longitude, maxRadiusMeters, cutoff, found);
+                    }
+                }
+            }
+            if (found.size() >= k) {
+                found.sort(Comparator.comparingDouble(NearbyRide::getDistanceMeters));
+                if (found.get(k - 1).getDistanceMeters() <= ring * cellWidthMeters) {
+                    break;
+                }
+            }
+        }
+        found.sort(Comparator.comparingDouble(NearbyRide::getDistanceMeters));
+        return found.size() > k ? new ArrayList<>(found.subList(0, k)) : found;
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.index.sweep-interval-ms:60000}")
+    public void evictStale() {
+        long cutoff = System.currentTimeMillis() - staleAfterMillis;
+        int before = positions.size();
+        positions.forEach((rideId, position) -> {
+            if (position.timestamp < cutoff) {
+                remove(rideId);
+            }
+        });
+        int evicted = before - positions.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} stale rides from active ride index", evicted);
+        }
+    }
+
+    private void collect(long cell, double latitude, double longitude, double radiusMeters, long cutoff,
+                         List<NearbyRide> out) {
+        Set<Long> rideIds = cells.get(cell);
+        if (rideIds == null) {
+            return;
+        }
+        for (Long rideId : rideIds) {
+            Position position = positions.get(rideId);
+            if (position == null || position.cell != cell || position.timestamp < cutoff) {
+                continue;
+            }
+            double distance = DistanceUtil.haversineDistance(latitude, longitude,
+                    position.latitude, position.longitude) * 1000.0;
+            if (distance <= radiusMeters) {
+                out.add(new NearbyRide(rideId, position.latitude, position.longitude, distance,
+                        Instant.ofEpochMilli(position.timestamp)));
+            }
+        }
+    }
+
+    private void removeFromCell(long cell, Long rideId) {
+        cells.computeIfPresent(cell, (k, set) -> {
+            set.remove(rideId);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @AllArgsConstructor
+    private static class Position {
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+        private final long timestamp;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class NearbyRide {
+        private final Long rideId;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceMeters;
+        private final Instant lastUpdate;
+    }
+}
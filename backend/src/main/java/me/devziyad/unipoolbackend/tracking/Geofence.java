@@ -0,0 +1,60 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import me.devziyad.unipoolbackend.util.DistanceUtil;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circular fence around a pickup, dropoff or ride destination.
+ * Each fence fires its enter and exit transitions at most once.
+ */
+@Getter
+public class Geofence {
+
+    static final int OUTSIDE = 0;
+    static final int INSIDE = 1;
+    static final int EXITED = 2;
+
+    private final Long rideId;
+    private final Long bookingId; // null for the ride destination fence
+    private final Long userId; // rider for pickup/dropoff, driver for destination
+    private final GeofenceType type;
+    private final double latitude;
+    private final double longitude;
+    private final double radiusMeters;
+    private final String label;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger state = new AtomicInteger(OUTSIDE);
+
+    public Geofence(Long rideId, Long bookingId, Long userId, GeofenceType type,
+                    double latitude, double longitude, double radiusMeters, String label) {
+        this.rideId = rideId;
+        this.bookingId = bookingId;
+        this.userId = userId;
+        this.type = type;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusMeters = radiusMeters;
+        this.label = label;
+    }
+
+    boolean contains(double lat, double lon) {
+        return DistanceUtil.haversineDistance(latitude, longitude, lat, lon) * 1000.0
+                <= radiusMeters;
+    }
+
+    boolean isInside() {
+        return state.get() == INSIDE;
+    }
+
+    boolean markEntered() {
+        return state.compareAndSet(OUTSIDE, INSIDE);
+    }
+
+    boolean markExited() {
+        return state.compareAndSet(INSIDE, EXITED);
+    }
+}
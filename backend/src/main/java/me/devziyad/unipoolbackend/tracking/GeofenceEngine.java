@@ -0,0 +1,140 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.booking.Booking;
+import me.devziyad.unipoolbackend.common.BookingStatus;
+import me.devziyad.unipoolbackend.ride.Ride;
+import me.devziyad.unipoolbackend.util.GeoGrid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory geofence registry.
+ * Fences are bucketed in a spatial hash so a GPS point is only tested against
+ * fences in its own cell; exits are detected from the ride's currently-entered fences.
+ */
+@Component
+@Slf4j
+public class GeofenceEngine {
+
+    private final GeoGrid grid;
+    private final double radiusMeters;
+
+    // cell key -> fences overlapping that cell
+    private final Map<Long, Set<Geofence>> cells = new ConcurrentHashMap<>();
+    // ride id -> all fences registered for the ride
+    private final Map<Long, List<Geofence>> fencesByRide = new ConcurrentHashMap<>();
+
+    public GeofenceEngine(@Value("${geofence.cell-size-meters:500}") double cellSizeMeters,
+                          @Value("${geofence.arrival-radius-meters:150}") double radiusMeters) {
+        this.grid = new GeoGrid(cellSizeMeters);
+        this.radiusMeters = radiusMeters;
+    }
+
+    /**
+     * Register fences for the ride destination and every CONFIRMED booking's pickup and dropoff.
+     * Any fences previously registered for the ride are replaced.
+     */
+    public void registerRide(Ride ride, Collection<Booking> bookings) {
+        unregisterRide(ride.getId());
+
+        List<Geofence> fences = new ArrayList<>();
+        fences.add(new Geofence(ride.getId(), null, ride.getDriver().getId(), GeofenceType.DESTINATION,
+                ride.getDestinationLocation().getLatitude(), ride.getDestinationLocation().getLongitude(),
+                radiusMeters, ride.getDestinationLocation().getLabel()));
+
+        for (Booking booking : bookings) {
+            if (booking.getStatus() != BookingStatus.CONFIRMED) {
+                continue;
+            }
+            fences.add(new Geofence(ride.getId(), booking.getId(), booking.getRider().getId(), GeofenceType.PICKUP,
+                    booking.getPickupLocation().getLatitude(), booking.getPickupLocation().getLongitude(),
+                    radiusMeters, booking.getPickupLocation().getLabel()));
+            fences.add(new Geofence(ride.getId(), booking.getId(), booking.getRider().getId(), GeofenceType.DROPOFF,
+                    booking.getDropoffLocation().getLatitude(), booking.getDropoffLocation().getLongitude(),
+                    radiusMeters, booking.getDropoffLocation().getLabel()));
+        }
+
+        register(ride.getId(), fences);
+    }
+
+    void register(Long rideId, List<Geofence> fences) {
+        for (Geofence fence : fences) {
+            grid.forEachCellInRadius(fence.getLatitude(), fence.getLongitude(), fence.getRadiusMeters(),
+                    cell -> cells.computeIfAbsent(cell, k -> ConcurrentHashMap.newKeySet()).add(fence));
+        }
+        fencesByRide.put(rideId, List.copyOf(fences));
+        log.debug("Registered {} geofences for ride {}", fences.size(), rideId);
+    }
+
+    public void unregisterRide(Long rideId) {
+        List<Geofence> fences = fencesByRide.remove(rideId);
+        if (fences == null) {
+            return;
+        }
+        for (Geofence fence : fences) {
+            grid.forEachCellInRadius(fence.getLatitude(), fence.getLongitude(), fence.getRadiusMeters(),
+                    cell -> cells.computeIfPresent(cell, (k, set) -> {
+                        set.remove(fence);
+                        return set.isEmpty() ? null : set;
+                    }));
+        }
+    }
+
+    public boolean hasFences(Long rideId) {
+        return fencesByRide.containsKey(rideId);
+    }
+
+    public int getActiveFenceCount() {
+        return fencesByRide.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Replay a ride's recorded trail (oldest first, {latitude, longitude} per point) through its fences
+     * without emitting transitions. Fence state is in memory only, so fences registered again after a
+     * restart would otherwise fire their enter and exit notifications a second time.
+     */
+    public void restore(Long rideId, List<double[]> trail) {
+        for (double[] point : trail) {
+            evaluate(rideId, point[0], point[1]);
+        }
+    }
+
+    /**
+     * Evaluate a GPS point for a ride and return the transitions it triggered.
+     */
+    public List<GeofenceEvent> evaluate(Long rideId, double latitude, double longitude) {
+        List<Geofence> rideFences = fencesByRide.get(rideId);
+        if (rideFences == null) {
+            return List.of();
+        }
+
+        List<GeofenceEvent> events = new ArrayList<>(2);
+
+        // Exits: only fences the ride is currently inside can be left
+        for (Geofence fence : rideFences) {
+            if (fence.isInside() && !fence.contains(latitude, longitude) && fence.markExited()) {
+                events.add(new GeofenceEvent(fence, GeofenceEvent.Transition.EXIT));
+            }
+        }
+
+        // Entries: only fences hashed into the point's cell are candidates
+        Set<Geofence> candidates = cells.get(grid.cellOf(latitude, longitude));
+        if (candidates != null) {
+            for (Geofence fence : candidates) {
+                if (fence.getRideId().equals(rideId) && fence.contains(latitude, longitude) && fence.markEntered()) {
+                    events.add(new GeofenceEvent(fence, GeofenceEvent.Transition.ENTER));
+                }
+            }
+        }
+
+        return events;
+    }
+}
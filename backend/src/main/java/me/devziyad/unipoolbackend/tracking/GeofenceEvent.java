@@ -0,0 +1,17 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class GeofenceEvent {
+
+    public enum Transition {
+        ENTER,
+        EXIT
+    }
+
+    private final Geofence fence;
+    private final Transition transition;
+}
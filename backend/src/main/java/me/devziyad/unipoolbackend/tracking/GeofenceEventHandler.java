@@ -0,0 +1,109 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.devziyad.unipoolbackend.common.NotificationType;
+import me.devziyad.unipoolbackend.common.RideStatus;
+import me.devziyad.unipoolbackend.notification.NotificationService;
+import me.devziyad.unipoolbackend.ride.Ride;
+import me.devziyad.unipoolbackend.ride.RideRepository;
+import me.devziyad.unipoolbackend.ride.RideService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Turns geofence transitions into rider/driver notifications and,
+ * when enabled, automatic ride status changes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GeofenceEventHandler {
+
+    private final NotificationService notificationService;
+    private final RideService rideService;
+    private final RideRepository rideRepository;
+
+    @Value("${geofence.auto-status-enabled:false}")
+    private boolean autoStatusEnabled;
+
+    public void handle(List<GeofenceEvent> events) {
+        for (GeofenceEvent event : events) {
+            Geofence fence = event.getFence();
+            boolean entered = event.getTransition() == GeofenceEvent.Transition.ENTER;
+
+            switch (fence.getType()) {
+                case PICKUP -> {
+                    if (entered) {
+                        notificationService.publishNotification(
+                                fence.getUserId(),
+                                "Driver Arriving",
+                                String.format("Your driver is arriving at %s", fence.getLabel()),
+                                NotificationType.DRIVER_ARRIVING
+                        );
+                    } else {
+                        notificationService.publishNotification(
+                                fence.getUserId(),
+                                "Picked Up",
+                                String.format("You have been picked up from %s", fence.getLabel()),
+                                NotificationType.RIDE_IN_PROGRESS
+                        );
+                        advanceRideStatus(fence.getRideId(), RideStatus.IN_PROGRESS);
+                    }
+                }
+                case DROPOFF -> {
+                    if (entered) {
+                        notificationService.publishNotification(
+                                fence.getUserId(),
+                                "Arrived",
+                                String.format("You have arrived at %s", fence.getLabel()),
+                                NotificationType.RIDE_COMPLETED
+                        );
+                    }
+                }
+                case DESTINATION -> {
+                    if (entered) {
+                        notificationService.publishNotification(
+                                fence.getUserId(),
+                                "Arrived",
+                                String.format("You have arrived at %s", fence.getLabel()),
+                                NotificationType.RIDE_COMPLETED
+                        );
+                        advanceRideStatus(fence.getRideId(), RideStatus.COMPLETED);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the ride forward only; never touches finished rides so the status update cannot fail
+     * (and mark the surrounding tracking transaction for rollback).
+     * Completing goes through RideService, which ends tracking for the ride: its tracking row is deactivated
+     * and its fences and index entry are dropped once the update commits.
+     */
+    private void advanceRideStatus(Long rideId, RideStatus target) {
+        if (!autoStatusEnabled) {
+            return;
+        }
+
+        Ride ride = rideRepository.findById(rideId).orElse(null);
+        if (ride == null) {
+            return;
+        }
+
+        RideStatus current = ride.getStatus();
+        // A ride is only completed once a pickup has started it; a driver passing the destination
+        // before picking anyone up must not close the ride
+        boolean allowed = (target == RideStatus.IN_PROGRESS && current == RideStatus.POSTED)
+                || (target == RideStatus.COMPLETED && current == RideStatus.IN_PROGRESS);
+        if (!allowed) {
+            return;
+        }
+
+        log.info("Geofence moving ride {} from {} to {}", rideId, current, target);
+        rideService.updateRideStatus(rideId, target, ride.getDriver().getId());
+    }
+}
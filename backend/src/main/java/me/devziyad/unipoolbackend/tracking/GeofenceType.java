@@ -0,0 +1,7 @@
+package me.devziyad.unipoolbackend.tracking;
+
+public enum GeofenceType {
+    PICKUP,
+    DROPOFF,
+    DESTINATION
+}
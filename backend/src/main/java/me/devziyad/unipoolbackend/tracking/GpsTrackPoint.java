@@ -0,0 +1,40 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import jakarta.persistence.*;
+import lombok.*;
+import me.devziyad.unipoolbackend.ride.Ride;
+
+import java.time.Instant;
+
+/**
+ * One recorded GPS ping of an actively tracked ride; the ride's trail is used for replay.
+ */
+@Entity
+@Table(name = "gps_track_points", indexes = {
+    @Index(name = "idx_track_point_ride_time", columnList = "ride_id, recordedAt"),
+    @Index(name = "idx_track_point_time", columnList = "recordedAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GpsTrackPoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "ride_id")
+    private Ride ride;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+
+    @Column(nullable = false)
+    private Instant recordedAt;
+}
@@ -0,0 +1,17 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.NonNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GpsTrackPointRepository extends JpaRepository<@NonNull GpsTrackPoint, @NonNull Long> {
+
+    @Query("SELECT p.latitude, p.longitude, p.recordedAt FROM GpsTrackPoint p " +
+           "WHERE p.ride.id = :rideId ORDER BY p.recordedAt, p.id")
+    List<Object[]> findTrailByRideId(@Param("rideId") Long rideId);
+}
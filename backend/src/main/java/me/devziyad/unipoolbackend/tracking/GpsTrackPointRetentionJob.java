@@ -0,0 +1,92 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the track point table bounded: every tracking ping adds a row, so points older than the retention
+ * age are deleted. Work is done in small chunks, each deleted in its own short transaction, and a run stops
+ * after a fixed number of chunks so it never holds locks for long.
+ */
+@Component
+@Slf4j
+public class GpsTrackPointRetentionJob {
+
+    private static final String SELECT_EXPIRED_SQL =
+            "SELECT id FROM gps_track_points WHERE recorded_at < ? LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM gps_track_points WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration maxAge;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private volatile Instant lastRunAt;
+    private volatile long lastRunMillis;
+
+    public GpsTrackPointRetentionJob(DataSource dataSource,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${tracking.points.retention.max-age-days:90}") long maxAgeDays,
+                                     @Value("${tracking.points.retention.chunk-size:1000}") int chunkSize,
+                                     @Value("${tracking.points.retention.max-chunks-per-run:50}") int maxChunksPerRun) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAge = Duration.ofDays(maxAgeDays);
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+    }
+
+    @Scheduled(initialDelayString = "${tracking.points.retention.initial-delay-ms:60000}",
+            fixedDelayString = "${tracking.points.retention.interval-ms:3600000}")
+    public void run() {
+        long started = System.currentTimeMillis();
+        try {
+            Instant cutoff = Instant.now().minus(maxAge);
+            for (int chunks = 0; chunks < maxChunksPerRun; chunks++) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_EXPIRED_SQL, Long.class,
+                        cutoff.atOffset(ZoneOffset.UTC), chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(DELETE_SQL, ids,
+                        ids.size(), (ps, id) -> ps.setLong(1, id)));
+                deleted.addAndGet(ids.size());
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Track point retention run failed: {}", e.getMessage(), e);
+        } finally {
+            runs.incrementAndGet();
+            lastRunAt = Instant.now();
+            lastRunMillis = System.currentTimeMillis() - started;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("deleted", deleted.get());
+        return stats;
+    }
+}
@@ -22,7 +22,7 @@ public class GpsTracking {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @OneToOne(optional = false)
+    @OneToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "ride_id", unique = true)
     private Ride ride;
 
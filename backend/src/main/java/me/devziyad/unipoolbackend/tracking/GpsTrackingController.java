@@ -5,52 +5,80 @@ import lombok.Data;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import me.devziyad.unipoolbackend.auth.AuthService;
+import me.devziyad.unipoolbackend.common.Role;
+import me.devziyad.unipoolbackend.exception.BusinessException;
 import me.devziyad.unipoolbackend.exception.ForbiddenException;
-import me.devziyad.unipoolbackend.ride.Ride;
-import me.devziyad.unipoolbackend.ride.RideRepository;
+import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.tracking.dto.GpsLocationResponse;
+import me.devziyad.unipoolbackend.tracking.dto.NearbyRideResponse;
+import me.devziyad.unipoolbackend.tracking.dto.TrackReplayResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/tracking")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
 public class GpsTrackingController {
 
+    // Replay tolerances are snapped to this step so each ride has few replay cache keys
+    private static final int REPLAY_TOLERANCE_STEP_METERS = 5;
+
     private final GpsTrackingService trackingService;
     private final AuthService authService;
-    private final RideRepository rideRepository;
+    private final RideOwnershipCache ownershipCache;
 
     @PostMapping("/{rideId}/update")
     public ResponseEntity<@NonNull Void> updateLocation(@PathVariable Long rideId,
                                                 @Valid @RequestBody UpdateLocationRequest request) {
-        Long userId = authService.getCurrentUser().getId();
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new me.devziyad.unipoolbackend.exception.ResourceNotFoundException("Ride not found"));
-
-        if (!ride.getDriver().getId().equals(userId)) {
-            throw new ForbiddenException("Only the driver can update location");
-        }
+        checkDriver(rideId, "Only the driver can update location");
 
         trackingService.updateLocation(rideId, request.getLatitude(), request.getLongitude());
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/nearby")
+    public ResponseEntity<@NonNull List<NearbyRideResponse>> getNearbyRides(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new BusinessException("Invalid coordinates");
+        }
+        if (radiusKm != null && (radiusKm <= 0 || radiusKm > 50)) {
+            throw new BusinessException("radiusKm must be between 0 and 50");
+        }
+        if (limit < 1 || limit > 100) {
+            throw new BusinessException("limit must be between 1 and 100");
+        }
+        return ResponseEntity.ok(trackingService.findNearbyRides(latitude, longitude, radiusKm, limit));
+    }
+
     @GetMapping("/{rideId}")
     public ResponseEntity<@NonNull GpsLocationResponse> getCurrentLocation(@PathVariable Long rideId) {
         return ResponseEntity.ok(trackingService.getCurrentLocation(rideId));
     }
 
+    @GetMapping("/{rideId}/replay")
+    public ResponseEntity<@NonNull TrackReplayResponse> getTrackReplay(
+            @PathVariable Long rideId,
+            @RequestParam(defaultValue = "10") Integer toleranceMeters) {
+        if (authService.getCurrentUser().getRole() != Role.ADMIN) {
+            throw new ForbiddenException("Admin access required");
+        }
+        if (toleranceMeters < 0 || toleranceMeters > 1000) {
+            throw new BusinessException("toleranceMeters must be between 0 and 1000");
+        }
+        int tolerance = Math.round((float) toleranceMeters / REPLAY_TOLERANCE_STEP_METERS) * REPLAY_TOLERANCE_STEP_METERS;
+        return ResponseEntity.ok(trackingService.getTrackReplay(rideId, tolerance));
+    }
+
     @PostMapping("/{rideId}/start")
     public ResponseEntity<@NonNull Void> startTracking(@PathVariable Long rideId) {
-        Long userId = authService.getCurrentUser().getId();
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new me.devziyad.unipoolbackend.exception.ResourceNotFoundException("Ride not found"));
-
-        if (!ride.getDriver().getId().equals(userId)) {
-            throw new ForbiddenException("Only the driver can start tracking");
-        }
+        checkDriver(rideId, "Only the driver can start tracking");
 
         trackingService.startTracking(rideId);
         return ResponseEntity.ok().build();
@@ -58,18 +86,33 @@ public class GpsTrackingController {
 
     @PostMapping("/{rideId}/stop")
     public ResponseEntity<@NonNull Void> stopTracking(@PathVariable Long rideId) {
-        Long userId = authService.getCurrentUser().getId();
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new me.devziyad.unipoolbackend.exception.ResourceNotFoundException("Ride not found"));
-
-        if (!ride.getDriver().getId().equals(userId)) {
-            throw new ForbiddenException("Only the driver can stop tracking");
-        }
+        // Ownership only: stopping must still work once the ride is completed or cancelled
+        checkOwner(rideId, "Only the driver can stop tracking");
 
         trackingService.stopTracking(rideId);
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Authorization from the ownership cache; a tracking ping never loads the ride entity.
+     */
+    private void checkDriver(Long rideId, String message) {
+        if (checkOwner(rideId, message).isFinished()) {
+            throw new BusinessException("Ride is no longer active");
+        }
+    }
+
+    private RideOwnershipCache.Ownership checkOwner(Long rideId, String message) {
+        Long userId = authService.getCurrentUser().getId();
+        RideOwnershipCache.Ownership ownership = ownershipCache.get(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride not found"));
+
+        if (!ownership.isOwnedBy(userId)) {
+            throw new ForbiddenException(message);
+        }
+        return ownership;
+    }
+
     @Data
     public static class UpdateLocationRequest {
         private Double latitude;
@@ -1,13 +1,28 @@
 package me.devziyad.unipoolbackend.tracking;
 
 import lombok.NonNull;
+import me.devziyad.unipoolbackend.common.RideStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface GpsTrackingRepository extends JpaRepository<@NonNull GpsTracking, @NonNull Long> {
     Optional<GpsTracking> findByRideId(Long rideId);
-}
 
+    @Query("SELECT t.ride.id, t.latitude, t.longitude, t.lastUpdate FROM GpsTracking t " +
+           "WHERE t.isActive = true AND t.ride.status IN :rideStatuses")
+    List<Object[]> findActivePositions(@Param("rideStatuses") Collection<RideStatus> rideStatuses);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE GpsTracking t SET t.isActive = false WHERE t.ride.id = :rideId AND t.isActive = true")
+    int deactivateByRideId(@Param("rideId") Long rideId);
+}
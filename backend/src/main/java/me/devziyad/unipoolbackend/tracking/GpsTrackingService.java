@@ -1,11 +1,17 @@
 package me.devziyad.unipoolbackend.tracking;
 
 import me.devziyad.unipoolbackend.tracking.dto.GpsLocationResponse;
+import me.devziyad.unipoolbackend.tracking.dto.NearbyRideResponse;
+import me.devziyad.unipoolbackend.tracking.dto.TrackReplayResponse;
+
+import java.util.List;
 
 public interface GpsTrackingService {
     void updateLocation(Long rideId, Double latitude, Double longitude);
     GpsLocationResponse getCurrentLocation(Long rideId);
     void startTracking(Long rideId);
     void stopTracking(Long rideId);
+    List<NearbyRideResponse> findNearbyRides(double latitude, double longitude, Double radiusKm, int limit);
+    TrackReplayResponse getTrackReplay(Long rideId, int toleranceMeters);
 }
 
@@ -1,32 +1,71 @@
 package me.devziyad.unipoolbackend.tracking;
 
 import lombok.RequiredArgsConstructor;
+import me.devziyad.unipoolbackend.common.RideStatus;
 import me.devziyad.unipoolbackend.exception.ResourceNotFoundException;
 import me.devziyad.unipoolbackend.ride.Ride;
 import me.devziyad.unipoolbackend.ride.RideRepository;
 import me.devziyad.unipoolbackend.tracking.dto.GpsLocationResponse;
+import me.devziyad.unipoolbackend.tracking.dto.NearbyRideResponse;
+import me.devziyad.unipoolbackend.tracking.dto.TrackReplayResponse;
+import me.devziyad.unipoolbackend.util.PolylineCodec;
+import me.devziyad.unipoolbackend.util.PolylineSimplifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class GpsTrackingServiceImpl implements GpsTrackingService {
 
+    private static final List<RideStatus> ACTIVE_RIDE_STATUSES = List.of(RideStatus.POSTED, RideStatus.IN_PROGRESS);
+
     private final GpsTrackingRepository trackingRepository;
+    private final GpsTrackPointRepository trackPointRepository;
     private final RideRepository rideRepository;
+    private final GeofenceEngine geofenceEngine;
+    private final GeofenceEventHandler geofenceEventHandler;
+    private final ActiveRideIndex activeRideIndex;
+    private final RideOwnershipCache ownershipCache;
+    private final RideTrackingCleanup trackingCleanup;
+
+    @Value("${tracking.index.max-search-radius-km:20}")
+    private double maxSearchRadiusKm;
+
+    /**
+     * Rebuild the in-memory index of moving rides and their geofences from the persisted positions.
+     * Rides finished while tracking was still flagged active are left out.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rehydrateActiveRideIndex() {
+        for (Object[] row : trackingRepository.findActivePositions(ACTIVE_RIDE_STATUSES)) {
+            Long rideId = (Long) row[0];
+            Instant lastUpdate = (Instant) row[3];
+            if (row[1] != null && row[2] != null && lastUpdate != null) {
+                activeRideIndex.update(rideId, (Double) row[1], (Double) row[2], lastUpdate);
+            }
+            rideRepository.findById(rideId).ifPresent(this::registerFences);
+        }
+    }
 
     @Override
     @Transactional
     public void updateLocation(Long rideId, Double latitude, Double longitude) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new ResourceNotFoundException("Ride not found"));
-
+        // Callers have already authorized the ride via the ownership cache; a reference avoids loading it
         GpsTracking tracking = trackingRepository.findByRideId(rideId)
                 .orElseGet(() -> {
                     GpsTracking newTracking = GpsTracking.builder()
-                            .ride(ride)
+                            .ride(rideRepository.getReferenceById(rideId))
                             .latitude(latitude)
                             .longitude(longitude)
                             .isActive(false)
@@ -34,10 +73,38 @@ public class GpsTrackingServiceImpl implements GpsTrackingService {
                     return trackingRepository.save(newTracking);
                 });
 
+        Instant now = Instant.now();
         tracking.setLatitude(latitude);
         tracking.setLongitude(longitude);
-        tracking.setLastUpdate(Instant.now());
+        tracking.setLastUpdate(now);
         trackingRepository.save(tracking);
+
+        if (Boolean.TRUE.equals(tracking.getIsActive())) {
+            // Fences are in memory only; re-register them if startup missed the ride. This runs before the
+            // point is recorded, so the replayed trail stops short of it and it is still evaluated below.
+            if (!geofenceEngine.hasFences(rideId)) {
+                rideRepository.findById(rideId).ifPresent(this::registerFences);
+            }
+            activeRideIndex.update(rideId, latitude, longitude, now);
+            trackPointRepository.save(GpsTrackPoint.builder()
+                    .ride(rideRepository.getReferenceById(rideId))
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .recordedAt(now)
+                    .build());
+        }
+
+        geofenceEventHandler.handle(geofenceEngine.evaluate(rideId, latitude, longitude));
+    }
+
+    // Register the ride's fences with the state its recorded trail left them in
+    private void registerFences(Ride ride) {
+        geofenceEngine.registerRide(ride, ride.getBookings());
+        List<double[]> trail = new ArrayList<>();
+        for (Object[] point : trackPointRepository.findTrailByRideId(ride.getId())) {
+            trail.add(new double[]{(Double) point[0], (Double) point[1]});
+        }
+        geofenceEngine.restore(ride.getId(), trail);
     }
 
     @Override
@@ -69,19 +136,97 @@ public class GpsTrackingServiceImpl implements GpsTrackingService {
                     return trackingRepository.save(newTracking);
                 });
 
+        Instant now = Instant.now();
         tracking.setIsActive(true);
-        tracking.setLastUpdate(Instant.now());
+        tracking.setLastUpdate(now);
         trackingRepository.save(tracking);
+
+        if (tracking.getLatitude() != null && tracking.getLongitude() != null) {
+            activeRideIndex.update(rideId, tracking.getLatitude(), tracking.getLongitude(), now);
+        }
+
+        // Tracking restarted mid-ride keeps the fences it already passed
+        registerFences(ride);
+        ownershipCache.put(rideId, ride.getDriver().getId(), ride.getStatus());
     }
 
     @Override
     @Transactional
     public void stopTracking(Long rideId) {
-        GpsTracking tracking = trackingRepository.findByRideId(rideId)
-                .orElseThrow(() -> new ResourceNotFoundException("Tracking not found"));
+        if (trackingRepository.findByRideId(rideId).isEmpty()) {
+            throw new ResourceNotFoundException("Tracking not found");
+        }
+        trackingCleanup.endTracking(rideId);
+    }
 
-        tracking.setIsActive(false);
-        trackingRepository.save(tracking);
+    @Override
+    public List<NearbyRideResponse> findNearbyRides(double latitude, double longitude, Double radiusKm, int limit) {
+        List<ActiveRideIndex.NearbyRide> rides = radiusKm != null
+                ? activeRideIndex.withinRadius(latitude, longitude, radiusKm * 1000.0, limit)
+                : activeRideIndex.nearest(latitude, longitude, limit, maxSearchRadiusKm * 1000.0);
+        if (rides.isEmpty()) {
+            return List.of();
+        }
+
+        // Finishing a ride drops it from the index, but only on this instance and only after commit
+        Set<Long> active = new HashSet<>(rideRepository.findIdsByIdInAndStatusIn(
+                rides.stream().map(ActiveRideIndex.NearbyRide::getRideId).toList(), ACTIVE_RIDE_STATUSES));
+        for (ActiveRideIndex.NearbyRide ride : rides) {
+            if (!active.contains(ride.getRideId())) {
+                activeRideIndex.remove(ride.getRideId());
+            }
+        }
+
+        return rides.stream()
+                .filter(r -> active.contains(r.getRideId()))
+                .map(r -> NearbyRideResponse.builder()
+                        .rideId(r.getRideId())
+                        .latitude(r.getLatitude())
+                        .longitude(r.getLongitude())
+                        .distanceKm(r.getDistanceMeters() / 1000.0)
+                        .lastUpdate(r.getLastUpdate())
+                        .build())
+                .toList();
     }
-}
 
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "trackReplay", key = "#rideId + ':' + #toleranceMeters", unless = "!#result.complete")
+    public TrackReplayResponse getTrackReplay(Long rideId, int toleranceMeters) {
+        RideOwnershipCache.Ownership ownership = ownershipCache.get(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride not found"));
+
+        List<Object[]> trail = trackPointRepository.findTrailByRideId(rideId);
+        int n = trail.size();
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int i = 0; i < n; i++) {
+            Object[] row = trail.get(i);
+            lats[i] = (Double) row[0];
+            lons[i] = (Double) row[1];
+        }
+
+        int[] kept = PolylineSimplifier.simplify(lats, lons, toleranceMeters);
+        double[] keptLats = new double[kept.length];
+        double[] keptLons = new double[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            keptLats[i] = lats[kept[i]];
+            keptLons[i] = lons[kept[i]];
+        }
+
+        boolean trackingActive = trackingRepository.findByRideId(rideId)
+                .map(t -> Boolean.TRUE.equals(t.getIsActive()))
+                .orElse(false);
+
+        return TrackReplayResponse.builder()
+                .rideId(rideId)
+                .toleranceMeters(toleranceMeters)
+                .recordedPoints(n)
+                .simplifiedPoints(kept.length)
+                .startedAt(n > 0 ? (Instant) trail.get(0)[2] : null)
+                .endedAt(n > 0 ? (Instant) trail.get(n - 1)[2] : null)
+                .polyline(PolylineCodec.encode(keptLats, keptLons))
+                .complete(ownership.isFinished() && !trackingActive)
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.devziyad.unipoolbackend.common.RideStatus;
+import me.devziyad.unipoolbackend.ride.RideRepository;
+import me.devziyad.unipoolbackend.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride id -> (driver id, status) used to authorize tracking requests without loading the ride.
+ * Entries are filled at startTracking (or on first miss), invalidated whenever the ride status changes and
+ * evicted when tracking ends; the cache is size- and TTL-bounded so misses on arbitrary ride ids cannot grow it.
+ */
+@Component
+public class RideOwnershipCache {
+
+    private final RideRepository rideRepository;
+    private final BoundedCache<Long, Ownership> entries;
+
+    public RideOwnershipCache(RideRepository rideRepository,
+                              @Value("${tracking.ownership-cache.max-entries:10000}") int maxEntries,
+                              @Value("${tracking.ownership-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.rideRepository = rideRepository;
+        this.entries = new BoundedCache<>(maxEntries, TimeUnit.MINUTES.toMillis(ttlMinutes));
+    }
+
+    public Optional<Ownership> get(Long rideId) {
+        Ownership cached = entries.get(rideId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        List<Object[]> rows = rideRepository.findDriverIdAndStatusById(rideId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Ownership loaded = new Ownership((Long) rows.get(0)[0], (RideStatus) rows.get(0)[1]);
+        entries.put(rideId, loaded);
+        return Optional.of(loaded);
+    }
+
+    public void put(Long rideId, Long driverId, RideStatus status) {
+        entries.put(rideId, new Ownership(driverId, status));
+    }
+
+    /**
+     * Drop the entry now and again after the surrounding transaction commits,
+     * so a concurrent miss cannot re-cache the pre-commit status.
+     */
+    public void invalidate(Long rideId) {
+        entries.remove(rideId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entries.remove(rideId);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Ownership {
+        private final Long driverId;
+        private final RideStatus status;
+
+        public boolean isOwnedBy(Long userId) {
+            return driverId.equals(userId);
+        }
+
+        public boolean isFinished() {
+            return status == RideStatus.COMPLETED || status == RideStatus.CANCELLED;
+        }
+    }
+}
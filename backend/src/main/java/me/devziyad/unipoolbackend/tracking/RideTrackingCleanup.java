@@ -0,0 +1,44 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ends tracking for a ride: deactivates its GpsTracking row and, once that commits, drops its geofences,
+ * its active ride index entry and its cached ownership.
+ * Used when the driver stops tracking and when the ride is completed or cancelled, so a finished ride never
+ * stays "live". Safe to call for rides that were never tracked.
+ */
+@Component
+@RequiredArgsConstructor
+public class RideTrackingCleanup {
+
+    private final GpsTrackingRepository trackingRepository;
+    private final GeofenceEngine geofenceEngine;
+    private final ActiveRideIndex activeRideIndex;
+    private final RideOwnershipCache ownershipCache;
+
+    public void endTracking(Long rideId) {
+        trackingRepository.deactivateByRideId(rideId);
+        ownershipCache.invalidate(rideId);
+        afterCommit(() -> {
+            geofenceEngine.unregisterRide(rideId);
+            activeRideIndex.remove(rideId);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
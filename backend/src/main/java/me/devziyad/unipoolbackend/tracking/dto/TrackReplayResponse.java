@@ -0,0 +1,23 @@
+package me.devziyad.unipoolbackend.tracking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackReplayResponse {
+    private Long rideId;
+    private Integer toleranceMeters;
+    private Integer recordedPoints;
+    private Integer simplifiedPoints;
+    private Instant startedAt;
+    private Instant endedAt;
+    private String polyline;  // Encoded polyline (precision 5)
+    private Boolean complete; // False while the ride is still being tracked
+}
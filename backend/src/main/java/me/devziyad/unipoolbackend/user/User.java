@@ -3,6 +3,7 @@ package me.devziyad.unipoolbackend.user;
 import jakarta.persistence.*;
 import lombok.*;
 import me.devziyad.unipoolbackend.common.Role;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -17,6 +18,8 @@ import java.time.Instant;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+// Saving a user writes only the changed columns, so a stale entity never overwrites a concurrent wallet change
+@DynamicUpdate
 public class User {
 
     @Id
@@ -65,6 +68,7 @@ public class User {
     @Builder.Default
     private Instant createdAt = Instant.now();
 
+    // Changed only through UserRepository's atomic wallet updates
     @Column(nullable = false)
     @Builder.Default
     private BigDecimal walletBalance = BigDecimal.ZERO;
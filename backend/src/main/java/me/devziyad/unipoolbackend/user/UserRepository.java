@@ -2,8 +2,12 @@ package me.devziyad.unipoolbackend.user;
 
 import lombok.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +17,15 @@ public interface UserRepository extends JpaRepository<@NonNull User, @NonNull Lo
     Optional<User> findByEmail(String email);
     boolean existsByPhoneNumberAndIdNot(String phoneNumber, Long id);
     Optional<User> findByPhoneNumber(String phoneNumber);
-}
\ No newline at end of file
+
+    // Applied in the database so concurrent balance changes to the same user cannot overwrite each other
+    @Modifying
+    @Query("UPDATE User u SET u.walletBalance = u.walletBalance + :delta WHERE u.id = :userId")
+    int adjustWalletBalance(@Param("userId") Long userId, @Param("delta") BigDecimal delta);
+
+    // Check and debit in one statement; 0 when the balance is short
+    @Modifying
+    @Query("UPDATE User u SET u.walletBalance = u.walletBalance - :amount " +
+           "WHERE u.id = :userId AND u.walletBalance >= :amount")
+    int debitWalletIfSufficient(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+}
@@ -2,11 +2,21 @@ package me.devziyad.unipoolbackend.user;
 
 import lombok.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserSettingsRepository extends JpaRepository<@NonNull UserSettings, @NonNull Long> {
     Optional<UserSettings> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    // Contact details and channel flags for each user; settings columns are null for users without a settings row
+    @Query("SELECT u.id, u.email, u.phoneNumber, s.emailNotifications, s.smsNotifications, s.pushNotifications " +
+           "FROM User u LEFT JOIN UserSettings s ON s.user = u WHERE u.id IN :userIds")
+    @NonNull
+    List<Object[]> findChannelSettings(@Param("userIds") Collection<Long> userIds);
+}
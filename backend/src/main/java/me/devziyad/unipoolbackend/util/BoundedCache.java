@@ -0,0 +1,166 @@
+package me.devziyad.unipoolbackend.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Size- and TTL-bounded LRU cache with hit/miss/eviction counters.
+ * Entries expire ttlMillis after they were written; the least recently used entry is evicted when full.
+ * An optional removal listener hears about entries dropped by eviction, expiry, remove or clear (not overwrites),
+ * so side structures keyed like the cache stay bounded with it. It is called while holding the cache lock.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final BiConsumer<K, V> removalListener;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public BoundedCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, null);
+    }
+
+    public BoundedCache(int maxEntries, long ttlMillis, BiConsumer<K, V> removalListener) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.removalListener = removalListener;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(key);
+            removed(key, entry);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public boolean put(K key, V value) {
+        return put(key, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Put with an explicit write time, used when restoring persisted entries.
+     * Returns false when the entry was not stored (caching disabled, or already expired).
+     */
+    public synchronized boolean put(K key, V value, long writtenAt) {
+        if (maxEntries <= 0 || isExpired(new Entry<>(value, writtenAt), System.currentTimeMillis())) {
+            return false;
+        }
+        entries.put(key, new Entry<>(value, writtenAt));
+        if (entries.size() > maxEntries) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            Map.Entry<K, Entry<V>> evicted = eldest.next();
+            eldest.remove();
+            removed(evicted.getKey(), evicted.getValue());
+            evictions++;
+        }
+        return true;
+    }
+
+    public synchronized void remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            removed(key, entry);
+        }
+    }
+
+    public synchronized void clear() {
+        if (removalListener != null) {
+            entries.forEach(this::removed);
+        }
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Visit a snapshot of the live entries (least recently used first) with their write times.
+     */
+    public void forEachLive(BiConsumer<K, TimestampedValue<V>> consumer) {
+        List<Map.Entry<K, Entry<V>>> snapshot;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.entrySet().size());
+            for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                if (!isExpired(e.getValue(), now)) {
+                    snapshot.add(Map.entry(e.getKey(), e.getValue()));
+                }
+            }
+        }
+        for (Map.Entry<K, Entry<V>> e : snapshot) {
+            consumer.accept(e.getKey(), new TimestampedValue<>(e.getValue().value, e.getValue().writtenAt));
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long lookups = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        return stats;
+    }
+
+    private void removed(K key, Entry<V> entry) {
+        if (removalListener != null) {
+            removalListener.accept(key, entry.value);
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlMillis > 0 && now - entry.writtenAt > ttlMillis;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long writtenAt;
+
+        private Entry(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    public static final class TimestampedValue<V> {
+        private final V value;
+        private final long writtenAt;
+
+        private TimestampedValue(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getWrittenAt() {
+            return writtenAt;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package me.devziyad.unipoolbackend.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many-to-many travel times and distances.
+ * Each origin row is served from the row cache, the local road graph (one Dijkstra sweep per origin),
+ * a batched OSRM /table call, or a straight-line estimate, in that order. A row is only taken from a source
+ * when that source routes every destination; cells it can't route (off the graph, unreachable, or null in
+ * the OSRM table) are filled from the next source down.
+ */
+@Service
+public class DistanceMatrixService {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+    // Same 40 km/h estimate RoutingService uses for its single-route fallback
+    private static final double FALLBACK_SPEED_MPS = 40 / 3.6;
+
+    private final RoutingService routingService;
+    private final LocalGraphRoutingEngine localEngine;
+    private final GeoGrid grid;
+    private final BoundedCache<RowKey, Row> rowCache;
+    private final int maxTableCoordinates;
+
+    private final AtomicLong localRows = new AtomicLong();
+    private final AtomicLong osrmRows = new AtomicLong();
+    private final AtomicLong haversineRows = new AtomicLong();
+    private final AtomicLong mixedRows = new AtomicLong();
+
+    public DistanceMatrixService(RoutingService routingService,
+                                 LocalGraphRoutingEngine localEngine,
+                                 @Value("${routing.cache.grid-meters:50}") double gridMeters,
+                                 @Value("${routing.matrix.cache-max-rows:2000}") int maxRows,
+                                 @Value("${routing.matrix.cache-ttl-minutes:60}") long ttlMinutes,
+                                 @Value("${routing.matrix.osrm-max-coordinates:100}") int maxTableCoordinates) {
+        this.routingService = routingService;
+        this.localEngine = localEngine;
+        this.grid = new GeoGrid(gridMeters);
+        this.rowCache = new BoundedCache<>(maxRows, ttlMinutes * 60_000L);
+        this.maxTableCoordinates = maxTableCoordinates;
+    }
+
+    /**
+     * Matrix of origins x destinations. Every pair has a value; pairs no road source could route get the
+     * straight-line estimate.
+     */
+    public Matrix compute(double[] originLats, double[] originLons, double[] destLats, double[] destLons) {
+        int origins = originLats.length;
+        int destinations = destLats.length;
+        double[][] seconds = new double[origins][];
+        double[][] meters = new double[origins][];
+        String[] sources = new String[origins];
+        // Local rows with unroutable cells, completed from OSRM and haversine below
+        double[][][] partial = new double[origins][][];
+
+        long[] destCells = new long[destinations];
+        for (int j = 0; j < destinations; j++) {
+            destCells[j] = grid.cellOf(destLats[j], destLons[j]);
+        }
+
+        int[] missing = new int[origins];
+        int missingCount = 0;
+        RowKey[] keys = new RowKey[origins];
+        for (int i = 0; i < origins; i++) {
+            keys[i] = new RowKey(grid.cellOf(originLats[i], originLons[i]), destCells);
+            Row cached = rowCache.get(keys[i]);
+            if (cached != null) {
+                seconds[i] = cached.seconds;
+                meters[i] = cached.meters;
+                sources[i] = cached.source;
+                continue;
+            }
+
+            if (localEngine.isAvailable()) {
+                double[][] row = localEngine.oneToMany(originLats[i], originLons[i], destLats, destLons);
+                if (row != null && !hasGaps(row[0])) {
+                    store(keys[i], new Row(row[0], row[1], "local", false), i, seconds, meters, sources);
+                    localRows.incrementAndGet();
+                    continue;
+                }
+                partial[i] = row;
+            }
+            missing[missingCount++] = i;
+        }
+
+        // Remaining origins go to OSRM in as few /table calls as its coordinate limit allows
+        int chunkSize = Math.max(1, maxTableCoordinates - destinations);
+        for (int start = 0; start < missingCount; start += chunkSize) {
+            int end = Math.min(missingCount, start + chunkSize);
+            double[] chunkLats = new double[end - start];
+            double[] chunkLons = new double[end - start];
+            for (int k = start; k < end; k++) {
+                chunkLats[k - start] = originLats[missing[k]];
+                chunkLons[k - start] = originLons[missing[k]];
+            }
+
+            double[][][] table = destinations < maxTableCoordinates
+                    ? routingService.getTable(chunkLats, chunkLons, destLats, destLons)
+                    : null;
+            for (int k = start; k < end; k++) {
+                int i = missing[k];
+                double[][] osrm = table == null ? null : new double[][]{table[0][k - start], table[1][k - start]};
+                Row row = merge(partial[i], osrm, originLats[i], originLons[i], destLats, destLons);
+                if (row.estimated) {
+                    // Not cached, so the next request retries the road network
+                    seconds[i] = row.seconds;
+                    meters[i] = row.meters;
+                    sources[i] = row.source;
+                } else {
+                    store(keys[i], row, i, seconds, meters, sources);
+                }
+                switch (row.source) {
+                    case "osrm" -> osrmRows.incrementAndGet();
+                    case "haversine" -> haversineRows.incrementAndGet();
+                    default -> mixedRows.incrementAndGet();
+                }
+            }
+        }
+
+        return new Matrix(seconds, meters, summarize(sources));
+    }
+
+    public void clearCache() {
+        rowCache.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(rowCache.getStats());
+        stats.put("localRows", localRows.get());
+        stats.put("osrmRows", osrmRows.get());
+        stats.put("haversineRows", haversineRows.get());
+        stats.put("mixedRows", mixedRows.get());
+        return stats;
+    }
+
+    private void store(RowKey key, Row row, int i, double[][] seconds, double[][] meters, String[] sources) {
+        rowCache.put(key, row);
+        seconds[i] = row.seconds;
+        meters[i] = row.meters;
+        sources[i] = row.source;
+    }
+
+    /**
+     * Fills each cell from the first source that routes it: the local graph, then OSRM, then the straight line.
+     * Either road row may be null; a row needing no straight-line cells is safe to cache.
+     */
+    static Row merge(double[][] local, double[][] osrm, double lat, double lon, double[] destLats, double[] destLons) {
+        int n = destLats.length;
+        double[] seconds = new double[n];
+        double[] meters = new double[n];
+        double[][] estimate = null;
+        boolean fromLocal = false;
+        boolean fromOsrm = false;
+        boolean estimated = false;
+        for (int j = 0; j < n; j++) {
+            if (local != null && !Double.isNaN(local[0][j])) {
+                seconds[j] = local[0][j];
+                meters[j] = local[1][j];
+                fromLocal = true;
+            } else if (osrm != null && !Double.isNaN(osrm[0][j]) && !Double.isNaN(osrm[1][j])) {
+                seconds[j] = osrm[0][j];
+                meters[j] = osrm[1][j];
+                fromOsrm = true;
+            } else {
+                if (estimate == null) {
+                    estimate = haversineRow(lat, lon, destLats, destLons);
+                }
+                seconds[j] = estimate[0][j];
+                meters[j] = estimate[1][j];
+                estimated = true;
+            }
+        }
+        String source;
+        if ((fromLocal ? 1 : 0) + (fromOsrm ? 1 : 0) + (estimated ? 1 : 0) > 1) {
+            source = "mixed";
+        } else if (fromLocal) {
+            source = "local";
+        } else if (fromOsrm || !estimated && osrm != null) {
+            source = "osrm";
+        } else {
+            source = "haversine";
+        }
+        return new Row(seconds, meters, source, estimated);
+    }
+
+    private static boolean hasGaps(double[] row) {
+        for (double value : row) {
+            if (Double.isNaN(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Great-circle row over primitive arrays; the origin's trigonometry is hoisted out of the loop.
+     */
+    static double[][] haversineRow(double lat, double lon, double[] destLats, double[] destLons) {
+        int n = destLats.length;
+        double[] seconds = new double[n];
+        double[] meters = new double[n];
+        double phi1 = Math.toRadians(lat);
+        double cosPhi1 = Math.cos(phi1);
+        double lambda1 = Math.toRadians(lon);
+        for (int j = 0; j < n; j++) {
+            double phi2 = Math.toRadians(destLats[j]);
+            double sinDPhi = Math.sin((phi2 - phi1) / 2);
+            double sinDLambda = Math.sin((Math.toRadians(destLons[j]) - lambda1) / 2);
+            double a = sinDPhi * sinDPhi + cosPhi1 * Math.cos(phi2) * sinDLambda * sinDLambda;
+            double d = 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            meters[j] = d;
+            seconds[j] = d / FALLBACK_SPEED_MPS;
+        }
+        return new double[][]{seconds, meters};
+    }
+
+    private static String summarize(String[] sources) {
+        String first = null;
+        for (String source : sources) {
+            if (first == null) {
+                first = source;
+            } else if (!first.equals(source)) {
+                return "mixed";
+            }
+        }
+        return first == null ? "none" : first;
+    }
+
+    private static final class RowKey {
+        private final long origin;
+        private final long[] destinations;
+        private final int hash;
+
+        private RowKey(long origin, long[] destinations) {
+            this.origin = origin;
+            this.destinations = destinations;
+            this.hash = 31 * Long.hashCode(origin) + Arrays.hashCode(destinations);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RowKey other && origin == other.origin && Arrays.equals(destinations, other.destinations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static final class Row {
+        final double[] seconds;
+        final double[] meters;
+        final String source;
+        // Some cells are straight-line estimates
+        final boolean estimated;
+
+        private Row(double[] seconds, double[] meters, String source, boolean estimated) {
+            this.seconds = seconds;
+            this.meters = meters;
+            this.source = source;
+            this.estimated = estimated;
+        }
+    }
+
+    public static class Matrix {
+        private final double[][] durationsSeconds;
+        private final double[][] distancesMeters;
+        private final String source;
+
+        public Matrix(double[][] durationsSeconds, double[][] distancesMeters, String source) {
+            this.durationsSeconds = durationsSeconds;
+            this.distancesMeters = distancesMeters;
+            this.source = source;
+        }
+
+        public double[][] getDurationsSeconds() {
+            return durationsSeconds;
+        }
+
+        public double[][] getDistancesMeters() {
+            return distancesMeters;
+        }
+
+        public String getSource() {
+            return source;
+        }
+    }
+}
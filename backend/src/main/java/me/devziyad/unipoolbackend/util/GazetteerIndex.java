@@ -0,0 +1,316 @@
+package me.devziyad.unipoolbackend.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix index over place names for autocomplete.
+ * Every word of a name starts a key ("seef mall" is reachable from "seef" and "mall"); the trie is
+ * flattened into arrays with each node's children contiguous and sorted, and every node keeps the
+ * highest-weighted places below it, so an exact prefix lookup is a walk plus a copy.
+ * Typos are handled by a bounded edit-distance walk over the same trie.
+ */
+public final class GazetteerIndex {
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int TWO_EDIT_LENGTH = 8;
+
+    private final Place[] places;
+    // Node 0 is the root; label[i] is the character on the edge into node i
+    private final char[] label;
+    private final int[] childStart;
+    private final int[] childCount;
+    // Places under node i are top[topStart[i] .. topStart[i + 1]), best first
+    private final int[] topStart;
+    private final int[] top;
+    private final int maxDepth;
+
+    private GazetteerIndex(Place[] places, char[] label, int[] childStart, int[] childCount,
+                           int[] topStart, int[] top, int maxDepth) {
+        this.places = places;
+        this.label = label;
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.top = top;
+        this.maxDepth = maxDepth;
+    }
+
+    public static GazetteerIndex build(List<Place> places, int topPerNode) {
+        Place[] byId = places.toArray(new Place[0]);
+        BuildNode root = new BuildNode();
+        int maxDepth = 0;
+        for (int id = 0; id < byId.length; id++) {
+            String name = normalize(byId[id].getName());
+            for (int start = 0; start < name.length(); start++) {
+                if (start > 0 && name.charAt(start - 1) != ' ') {
+                    continue;
+                }
+                BuildNode node = root;
+                for (int i = start; i < name.length(); i++) {
+                    node = node.children.computeIfAbsent(name.charAt(i), c -> new BuildNode());
+                }
+                node.terminal.add(id);
+                maxDepth = Math.max(maxDepth, name.length() - start);
+            }
+        }
+        Comparator<Integer> best = Comparator.comparingInt((Integer id) -> byId[id].getWeight()).reversed()
+                .thenComparing(id -> byId[id].getName());
+        collectTop(root, best, topPerNode);
+
+        // Breadth-first numbering keeps each node's children in one contiguous run
+        List<BuildNode> order = new ArrayList<>();
+        List<Character> labels = new ArrayList<>();
+        ArrayDeque<BuildNode> queue = new ArrayDeque<>();
+        order.add(root);
+        labels.add('\0');
+        queue.add(root);
+        Map<BuildNode, Integer> firstChild = new HashMap<>();
+        while (!queue.isEmpty()) {
+            BuildNode node = queue.poll();
+            firstChild.put(node, order.size());
+            for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+                order.add(child.getValue());
+                labels.add(child.getKey());
+                queue.add(child.getValue());
+            }
+        }
+
+        int n = order.size();
+        char[] label = new char[n];
+        int[] childStart = new int[n];
+        int[] childCount = new int[n];
+        int[] topStart = new int[n + 1];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            total += order.get(i).top.size();
+        }
+        int[] top = new int[total];
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            BuildNode node = order.get(i);
+            label[i] = labels.get(i);
+            childStart[i] = firstChild.get(node);
+            childCount[i] = node.children.size();
+            topStart[i] = offset;
+            for (int id : node.top) {
+                top[offset++] = id;
+            }
+        }
+        topStart[n] = offset;
+        return new GazetteerIndex(byId, label, childStart, childCount, topStart, top, maxDepth);
+    }
+
+    /**
+     * Places whose name has a word starting with the query, best first; when there are fewer than
+     * the limit, typo-tolerant matches (one edit from four characters, two from eight) follow.
+     */
+    public List<Match> search(String query, int limit) {
+        String q = normalize(query);
+        List<Match> matches = new ArrayList<>();
+        if (q.isEmpty() || limit <= 0) {
+            return matches;
+        }
+        boolean[] seen = new boolean[places.length];
+        int node = walk(q);
+        if (node >= 0) {
+            for (int i = topStart[node]; i < topStart[node + 1] && matches.size() < limit; i++) {
+                seen[top[i]] = true;
+                matches.add(new Match(places[top[i]], 0));
+            }
+        }
+        if (matches.size() >= limit || q.length() < MIN_FUZZY_LENGTH) {
+            return matches;
+        }
+
+        int maxEdits = q.length() >= TWO_EDIT_LENGTH ? 2 : 1;
+        int[] edits = new int[places.length];
+        Arrays.fill(edits, Integer.MAX_VALUE);
+        int[][] rows = new int[Math.min(maxDepth, q.length() + maxEdits) + 1][q.length() + 1];
+        for (int j = 0; j <= q.length(); j++) {
+            rows[0][j] = j;
+        }
+        fuzzy(0, 0, q, maxEdits, rows, edits);
+
+        List<Match> fuzzy = new ArrayList<>();
+        for (int id = 0; id < places.length; id++) {
+            if (!seen[id] && edits[id] != Integer.MAX_VALUE) {
+                fuzzy.add(new Match(places[id], edits[id]));
+            }
+        }
+        fuzzy.sort(Comparator.comparingInt(Match::getEdits)
+                .thenComparing(Comparator.comparingInt((Match m) -> m.getPlace().getWeight()).reversed()));
+        for (Match match : fuzzy) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            matches.add(match);
+        }
+        return matches;
+    }
+
+    public int getPlaceCount() {
+        return places.length;
+    }
+
+    public int getNodeCount() {
+        return label.length;
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (space && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private int walk(String q) {
+        int node = 0;
+        for (int i = 0; i < q.length(); i++) {
+            node = child(node, q.charAt(i));
+            if (node < 0) {
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    private int child(int node, char c) {
+        int lo = childStart[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (label[mid] < c) {
+                lo = mid + 1;
+            } else if (label[mid] > c) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // One edit-distance row per trie depth (adjacent transpositions count as one edit); a node matches
+    // when the whole query is within the budget of the key so far, and the walk stops once every cell
+    // in the row is over it
+    private void fuzzy(int node, int depth, String q, int maxEdits, int[][] rows, int[] edits) {
+        if (depth + 1 >= rows.length) {
+            return;
+        }
+        int n = q.length();
+        int[] prev = rows[depth];
+        int[] row = rows[depth + 1];
+        char previous = label[node];
+        for (int c = childStart[node]; c < childStart[node] + childCount[node]; c++) {
+            char ch = label[c];
+            row[0] = prev[0] + 1;
+            int min = row[0];
+            for (int j = 1; j <= n; j++) {
+                int substitute = prev[j - 1] + (q.charAt(j - 1) == ch ? 0 : 1);
+                row[j] = Math.min(substitute, Math.min(prev[j], row[j - 1]) + 1);
+                if (depth > 0 && j > 1 && q.charAt(j - 1) == previous && q.charAt(j - 2) == ch) {
+                    row[j] = Math.min(row[j], rows[depth - 1][j - 2] + 1);
+                }
+                min = Math.min(min, row[j]);
+            }
+            if (row[n] <= maxEdits) {
+                for (int i = topStart[c]; i < topStart[c + 1]; i++) {
+                    edits[top[i]] = Math.min(edits[top[i]], row[n]);
+                }
+            }
+            if (min <= maxEdits) {
+                fuzzy(c, depth + 1, q, maxEdits, rows, edits);
+            }
+        }
+    }
+
+    private static List<Integer> collectTop(BuildNode node, Comparator<Integer> best, int limit) {
+        List<Integer> candidates = new ArrayList<>(node.terminal);
+        for (BuildNode child : node.children.values()) {
+            candidates.addAll(collectTop(child, best, limit));
+        }
+        node.top = candidates.stream().distinct().sorted(best).limit(limit).toList();
+        return node.top;
+    }
+
+    private static final class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private final List<Integer> terminal = new ArrayList<>();
+        private List<Integer> top = List.of();
+    }
+
+    public static final class Place {
+        private final String name;
+        private final String address;
+        private final double latitude;
+        private final double longitude;
+        private final int weight;
+
+        public Place(String name, String address, double latitude, double longitude, int weight) {
+            this.name = name;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.weight = weight;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    public static final class Match {
+        private final Place place;
+        private final int edits;
+
+        private Match(Place place, int edits) {
+            this.place = place;
+            this.edits = edits;
+        }
+
+        public Place getPlace() {
+            return place;
+        }
+
+        public int getEdits() {
+            return edits;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package me.devziyad.unipoolbackend.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Fixed-size lat/lon grid used as a spatial hash.
+ * Cells are square in degrees; a cell is addressed by a single long key
+ * (latitude cell index in the high 32 bits, longitude cell index in the low 32 bits).
+ */
+public class GeoGrid {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    private final double cellSizeDegrees;
+
+    public GeoGrid(double cellSizeMeters) {
+        if (cellSizeMeters <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSizeDegrees = cellSizeMeters / METERS_PER_DEGREE_LAT;
+    }
+
+    public static long key(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xFFFFFFFFL);
+    }
+
+    public static int latCellOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int lonCellOf(long key) {
+        return (int) key;
+    }
+
+    public int latCell(double latitude) {
+        return (int) Math.floor(latitude / cellSizeDegrees);
+    }
+
+    public int lonCell(double longitude) {
+        return (int) Math.floor(longitude / cellSizeDegrees);
+    }
+
+    public long cellOf(double latitude, double longitude) {
+        return key(latCell(latitude), lonCell(longitude));
+    }
+
+    public double getCellSizeDegrees() {
+        return cellSizeDegrees;
+    }
+
+    /**
+     * Visit every cell overlapping the bounding box of a circle.
+     */
+    public void forEachCellInRadius(double latitude, double longitude, double radiusMeters, LongConsumer consumer) {
+        int latRadius = latCellRadius(radiusMeters);
+        int lonRadius = lonCellRadius(latitude, radiusMeters);
+        int centerLat = latCell(latitude);
+        int centerLon = lonCell(longitude);
+        for (int i = centerLat - latRadius; i <= centerLat + latRadius; i++) {
+            for (int j = centerLon - lonRadius; j <= centerLon + lonRadius; j++) {
+                consumer.accept(key(i, j));
+            }
+        }
+    }
+
+    /**
+     * Number of latitude cells spanned by a distance (rounded up).
+     */
+    public int latCellRadius(double radiusMeters) {
+        return (int) Math.ceil((radiusMeters / METERS_PER_DEGREE_LAT) / cellSizeDegrees);
+    }
+
+    /**
+     * Number of longitude cells spanned by a distance at the given latitude (rounded up).
+     */
+    public int lonCellRadius(double latitude, double radiusMeters) {
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        return (int) Math.ceil((radiusMeters / (METERS_PER_DEGREE_LAT * cosLat)) / cellSizeDegrees);
+    }
+}
@@ -3,97 +3,202 @@ package me.devziyad.unipoolbackend.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class GeocodingService {
 
     private static final Logger logger = LoggerFactory.getLogger(GeocodingService.class);
-    private static final String NOMINATIM_BASE_URL = "https://nominatim.openstreetmap.org";
-    private static final String NOMINATIM_SEARCH_URL = NOMINATIM_BASE_URL + "/search";
-    private static final String NOMINATIM_REVERSE_URL = NOMINATIM_BASE_URL + "/reverse";
-    private final RestTemplate restTemplate;
+    private static final String NOMINATIM_SEARCH_PATH = "/search";
+    private static final String NOMINATIM_REVERSE_PATH = "/reverse";
+    private final NominatimClient nominatimClient;
+    private final ReverseGeocodeCache reverseCache;
     private final String countryCodes;
+    private final long maxWaitMillis;
+    private final int minPrefixLength;
 
-    public GeocodingService(@Value("${geocoding.country-codes:}") String countryCodes) {
-        this.restTemplate = new RestTemplate();
-        // Set user agent to avoid 403
-        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
-        interceptors.add((request, body, execution) -> {
-            request.getHeaders().set("User-Agent", "UniPool/1.0");
-            return execution.execute(request, body);
-        });
-        restTemplate.setInterceptors(interceptors);
+    // Normalized query -> results; the sorted key set finds cached queries sharing a prefix and holds exactly
+    // the cache's keys (entries leaving the cache take their key with them)
+    private final NavigableSet<String> searchKeys = new ConcurrentSkipListSet<>();
+    private final BoundedCache<String, List<Map<String, Object>>> searchCache;
+
+    public GeocodingService(NominatimClient nominatimClient,
+                            ReverseGeocodeCache reverseCache,
+                            @Value("${geocoding.country-codes:}") String countryCodes,
+                            @Value("${geocoding.search.max-wait-ms:3000}") long maxWaitMillis,
+                            @Value("${geocoding.search.min-prefix-length:3}") int minPrefixLength,
+                            @Value("${geocoding.search.cache-max-entries:5000}") int cacheMaxEntries,
+                            @Value("${geocoding.search.cache-ttl-hours:24}") long cacheTtlHours) {
+        this.nominatimClient = nominatimClient;
+        this.reverseCache = reverseCache;
         this.countryCodes = countryCodes != null && !countryCodes.trim().isEmpty() ? countryCodes.trim() : null;
+        this.maxWaitMillis = maxWaitMillis;
+        this.minPrefixLength = minPrefixLength;
+        this.searchCache = new BoundedCache<>(cacheMaxEntries, cacheTtlHours * 3_600_000L,
+                (key, results) -> searchKeys.remove(key));
     }
 
     /**
-     * Search for locations by query string
+     * Search for locations by query string.
+     * Served from the cache (exact query, or a cached query it is a prefix of / refines) when possible;
+     * otherwise queued to Nominatim. Never waits longer than the configured limit, and returns the best
+     * cached answer or an empty list at once when the queue is too long.
      */
     @SuppressWarnings("unchecked")
     public List<Map<String, Object>> searchLocation(String query) {
-        try {
-            StringBuilder urlBuilder = new StringBuilder();
-            urlBuilder.append(String.format("%s?q=%s&format=json&limit=5&accept-language=en",
-                    NOMINATIM_SEARCH_URL, query.replace(" ", "+")));
-            
-            // Add country code filter if configured
-            if (countryCodes != null) {
-                urlBuilder.append("&countrycodes=").append(countryCodes);
-            }
-            
-            String url = urlBuilder.toString();
-            Object response = restTemplate.getForObject(url, Object.class);
-            if (response instanceof List<?> results) {
-                return (List<Map<String, Object>>) results;
-            }
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
             return List.of();
+        }
+
+        List<Map<String, Object>> cached = searchCache.get(normalized);
+        if (cached != null) {
+            return cached;
+        }
+        List<Map<String, Object>> reused = findByPrefix(normalized);
+        if (reused != null && !reused.isEmpty()) {
+            return reused;
+        }
+
+        if (nominatimClient.estimatedWaitMillis() > maxWaitMillis) {
+            return reused != null ? reused : List.of();
+        }
+
+        StringBuilder urlBuilder = new StringBuilder();
+        urlBuilder.append(String.format("%s?q=%s&format=json&limit=5&accept-language=en",
+                NOMINATIM_SEARCH_PATH, normalized.replace(" ", "+")));
+
+        // Add country code filter if configured
+        if (countryCodes != null) {
+            urlBuilder.append("&countrycodes=").append(countryCodes);
+        }
+
+        CompletableFuture<Object> call = nominatimClient.submit(urlBuilder.toString());
+        if (call == null) {
+            return reused != null ? reused : List.of();
+        }
+        // Cache the answer even if this caller stops waiting; the next keystroke may want it
+        CompletableFuture<List<Map<String, Object>>> results = call.thenApply(response -> {
+            List<Map<String, Object>> list = response instanceof List<?> r ? (List<Map<String, Object>>) r : List.of();
+            // Key first, so an eviction racing the put cannot leave a key without its entry behind
+            searchKeys.add(normalized);
+            if (!searchCache.put(normalized, list)) {
+                searchKeys.remove(normalized);
+            }
+            return list;
+        });
+        try {
+            return results.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             logger.warn("Failed to geocode location: {}", e.getMessage());
-            return List.of();
         }
+        return reused != null ? reused : List.of();
+    }
+
+    public Map<String, Object> getSearchStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(searchCache.getStats());
+        stats.put("prefixKeys", searchKeys.size());
+        stats.put("nominatim", nominatimClient.getStats());
+        return stats;
+    }
+
+    public Map<String, Object> getReverseStats() {
+        return reverseCache.getStats();
     }
 
     /**
-     * Reverse geocode: get address from coordinates
-     * Results are cached to avoid repeated API calls for the same coordinates.
-     * Coordinates are rounded to 6 decimal places (~0.1 meter precision) for cache key.
+     * Reuse a cached query related by prefix: a longer cached query ("manama") answers a shorter one
+     * ("manam") directly, and a shorter cached query's results are filtered for a refinement.
+     * Returns null when nothing related is cached.
+     */
+    private List<Map<String, Object>> findByPrefix(String query) {
+        if (query.length() < minPrefixLength) {
+            return null;
+        }
+        // Longer cached queries starting with this one sort right after it
+        for (String key = searchKeys.higher(query); key != null && key.startsWith(query); key = searchKeys.higher(key)) {
+            List<Map<String, Object>> results = searchCache.get(key);
+            if (results == null) {
+                searchKeys.remove(key);
+            } else if (!results.isEmpty()) {
+                return results;
+            }
+        }
+        for (int length = query.length() - 1; length >= minPrefixLength; length--) {
+            String prefix = query.substring(0, length);
+            List<Map<String, Object>> results = searchCache.get(prefix);
+            if (results == null) {
+                continue;
+            }
+            List<Map<String, Object>> refined = new ArrayList<>();
+            for (Map<String, Object> result : results) {
+                Object displayName = result.get("display_name");
+                if (displayName != null && displayName.toString().toLowerCase(Locale.ROOT).contains(query)) {
+                    refined.add(result);
+                }
+            }
+            return refined;
+        }
+        return null;
+    }
+
+    private static String normalize(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reverse geocode: get address from coordinates.
+     * Answers from the grid-quantized reverse cache when a nearby point was already looked up;
+     * only successful lookups are cached. Returns null when Nominatim is busy or fails.
      */
-    @SuppressWarnings("unchecked")
-    @Cacheable(value = "reverseGeocode", 
-               key = "T(java.lang.String).format('%.6f_%.6f', #lat, #lon)", 
-               unless = "#result == null")
     public String reverseGeocode(double lat, double lon) {
-        // Round coordinates to 6 decimal places (~0.1 meter precision) for consistent caching
-        // This prevents cache misses due to floating point precision differences
-        double roundedLat = Math.round(lat * 1000000.0) / 1000000.0;
-        double roundedLon = Math.round(lon * 1000000.0) / 1000000.0;
-        
+        String cached = reverseCache.get(lat, lon);
+        if (cached != null) {
+            return cached;
+        }
+        // Nominatim resolves to the nearest feature anyway; five decimals (~1 m) keeps identical fixes coalesced
+        double roundedLat = Math.round(lat * 100000.0) / 100000.0;
+        double roundedLon = Math.round(lon * 100000.0) / 100000.0;
+
         try {
             logger.debug("Reverse geocoding coordinates: lat={}, lon={} (rounded from lat={}, lon={})", 
                     roundedLat, roundedLon, lat, lon);
             
             // Nominatim reverse geocoding returns a single object, not a list
             String url = String.format("%s?lat=%s&lon=%s&format=json&accept-language=en",
-                    NOMINATIM_REVERSE_URL, roundedLat, roundedLon);
+                    NOMINATIM_REVERSE_PATH, roundedLat, roundedLon);
 
-            Object response = restTemplate.getForObject(url, Object.class);
-            if (response instanceof Map<?, ?> resultMap) {
-                Map<String, Object> result = (Map<String, Object>) resultMap;
-                Object displayName = result.get("display_name");
-                if (displayName != null) {
-                    String address = displayName.toString();
-                    logger.debug("Reverse geocoded address: {}", address);
-                    return address;
-                }
+            CompletableFuture<Object> call = nominatimClient.submit(url);
+            if (call == null) {
+                logger.debug("Nominatim queue full, skipping reverse geocode");
+                return null;
             }
+            // Cache the address even if this caller stops waiting
+            CompletableFuture<String> address = call.thenApply(response -> {
+                if (response instanceof Map<?, ?> resultMap && resultMap.get("display_name") != null) {
+                    String displayName = resultMap.get("display_name").toString();
+                    reverseCache.put(lat, lon, displayName);
+                    return displayName;
+                }
+                return null;
+            });
+            String result = address.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            logger.debug("Reverse geocoded address: {}", result);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             logger.warn("Failed to reverse geocode: {}", e.getMessage());
         }
@@ -0,0 +1,189 @@
+package me.devziyad.unipoolbackend.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyed hierarchical timing wheel.
+ * Level 0 has one slot per tick, each level above spans a whole revolution of the level below, and entries
+ * cascade down as their slot comes round, so scheduling, cancelling and advancing are O(1) per entry no
+ * matter how many timers are pending. Deadlines past the top level wait in an overflow bucket.
+ * Scheduling an existing key replaces its timer, so each key fires at most once per deadline.
+ */
+public class HierarchicalTimingWheel<K, V> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] levelSpan;
+    private final List<Map<K, Entry<K, V>>[]> levels = new ArrayList<>();
+    private final Map<K, Entry<K, V>> overflow = new LinkedHashMap<>();
+    // Already due when scheduled; handed out on the next advance
+    private final Map<K, Entry<K, V>> due = new LinkedHashMap<>();
+    private final Map<K, Entry<K, V>> index = new HashMap<>();
+    private long currentTick;
+
+    private long scheduled;
+    private long expired;
+    private long cancelled;
+    private long cascaded;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelSpan = new long[levelCount];
+        long span = 1;
+        for (int level = 0; level < levelCount; level++) {
+            levelSpan[level] = span;
+            Map<K, Entry<K, V>>[] slots = new Map[wheelSize];
+            for (int slot = 0; slot < wheelSize; slot++) {
+                slots[slot] = new LinkedHashMap<>();
+            }
+            levels.add(slots);
+            span = Math.multiplyExact(span, wheelSize);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule (or reschedule) the key to expire at the deadline; a deadline already reached expires on the next advance.
+     */
+    public synchronized void schedule(K key, V value, long deadlineMillis) {
+        remove(key);
+        // Round up to the next tick so nothing fires early; late by at most one tick
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Entry<K, V> entry = new Entry<>(key, value, deadlineMillis, deadlineTick);
+        index.put(key, entry);
+        place(entry);
+        scheduled++;
+    }
+
+    public synchronized boolean cancel(K key) {
+        if (remove(key)) {
+            cancelled++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean contains(K key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Move the wheel up to the given time and return the values that expired, in deadline order per tick.
+     */
+    public synchronized List<V> advance(long nowMillis) {
+        List<V> result = new ArrayList<>();
+        drain(due, result);
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade from the top so entries can fall through several levels in one tick
+            if (currentTick % levelSpan[levelSpan.length - 1] == 0 && !overflow.isEmpty()) {
+                List<Entry<K, V>> waiting = new ArrayList<>(overflow.values());
+                overflow.clear();
+                waiting.forEach(this::place);
+            }
+            for (int level = levelSpan.length - 1; level > 0; level--) {
+                if (currentTick % levelSpan[level] == 0) {
+                    Map<K, Entry<K, V>> bucket = levels.get(level)[slotOf(currentTick, level)];
+                    if (!bucket.isEmpty()) {
+                        List<Entry<K, V>> moving = new ArrayList<>(bucket.values());
+                        bucket.clear();
+                        cascaded += moving.size();
+                        moving.forEach(this::place);
+                    }
+                }
+            }
+            drain(levels.get(0)[slotOf(currentTick, 0)], result);
+            drain(due, result);
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        for (Map<K, Entry<K, V>>[] slots : levels) {
+            for (Map<K, Entry<K, V>> slot : slots) {
+                slot.clear();
+            }
+        }
+        overflow.clear();
+        due.clear();
+        index.clear();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", index.size());
+        stats.put("overflow", overflow.size());
+        stats.put("scheduled", scheduled);
+        stats.put("expired", expired);
+        stats.put("cancelled", cancelled);
+        stats.put("cascaded", cascaded);
+        return stats;
+    }
+
+    private void place(Entry<K, V> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta <= 0) {
+            entry.bucket = due;
+        } else {
+            int level = 0;
+            while (level < levelSpan.length && delta >= levelSpan[level] * wheelSize) {
+                level++;
+            }
+            entry.bucket = level == levelSpan.length ? overflow : levels.get(level)[slotOf(entry.deadlineTick, level)];
+        }
+        entry.bucket.put(entry.key, entry);
+    }
+
+    private boolean remove(K key) {
+        Entry<K, V> entry = index.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.bucket.remove(key);
+        return true;
+    }
+
+    private void drain(Map<K, Entry<K, V>> bucket, List<V> result) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<Entry<K, V>> entries = new ArrayList<>(bucket.values());
+        bucket.clear();
+        entries.sort((a, b) -> Long.compare(a.deadlineMillis, b.deadlineMillis));
+        for (Entry<K, V> entry : entries) {
+            index.remove(entry.key);
+            result.add(entry.value);
+            expired++;
+        }
+    }
+
+    private int slotOf(long tick, int level) {
+        return (int) Math.floorMod(tick / levelSpan[level], (long) wheelSize);
+    }
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private Map<K, Entry<K, V>> bucket;
+
+        private Entry(K key, V value, long deadlineMillis, long deadlineTick) {
+            this.key = key;
+            this.value = value;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package me.devziyad.unipoolbackend.util;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Offline routing over a preprocessed {@link RoadGraph} file.
+ * Bidirectional A* on travel time with average (symmetric) straight-line potentials, so the search can stop
+ * as soon as the two frontiers' minimum keys sum to the best meeting path found. Search arrays are pooled
+ * and reset lazily with a query stamp, so a query allocates almost nothing.
+ */
+@Component
+public class LocalGraphRoutingEngine implements RoutingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalGraphRoutingEngine.class);
+    // Slack on the straight-line bound so rounding in stored edge lengths never makes the potential inadmissible
+    private static final double POTENTIAL_SLACK = 0.98;
+    // Speed assumed for the leg between the query point and the snapped node
+    private static final double ACCESS_SPEED_MPS = 30 / 3.6;
+    private static final double METERS_PER_E6 = 111_320.0 / 1e6;
+
+    private final Path graphFile;
+    private final double maxSnapMeters;
+    private final double snapCellMeters;
+
+    @Value("${routing.engine:osrm}")
+    private String engine;
+
+    private volatile RoadGraph graph;
+    // One state per concurrently running query (not per thread) to bound memory on large graphs
+    private final Queue<SearchState> statePool = new ConcurrentLinkedQueue<>();
+
+    public LocalGraphRoutingEngine(@Value("${routing.local.graph-file:}") String graphFile,
+                                   @Value("${routing.local.max-snap-meters:500}") double maxSnapMeters,
+                                   @Value("${routing.local.snap-cell-meters:250}") double snapCellMeters) {
+        this.graphFile = graphFile == null || graphFile.isBlank() ? null : Paths.get(graphFile);
+        this.maxSnapMeters = maxSnapMeters;
+        this.snapCellMeters = snapCellMeters;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (graphFile == null || !"local".equalsIgnoreCase(engine)) {
+            return;
+        }
+        if (!Files.exists(graphFile)) {
+            logger.warn("Road graph file {} not found; local routing disabled", graphFile);
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            RoadGraph loaded = RoadGraph.load(graphFile, snapCellMeters);
+            graph = loaded;
+            logger.info("Loaded road graph {} ({} nodes, {} edges) in {} ms", graphFile, loaded.getNodeCount(),
+                    loaded.getEdgeCount(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.warn("Failed to load road graph {}; local routing disabled: {}", graphFile, e.getMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return graph != null;
+    }
+
+    RoadGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public RoutingService.RouteInfo route(double lat1, double lon1, double lat2, double lon2) {
+        RoadGraph g = graph;
+        if (g == null) {
+            return null;
+        }
+        int source = g.nearestNode(lat1, lon1, maxSnapMeters);
+        int target = g.nearestNode(lat2, lon2, maxSnapMeters);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+
+        SearchState state = acquireState(g);
+        int[] path;
+        try {
+            int meeting = state.search(g, source, target);
+            if (meeting < 0) {
+                return null;
+            }
+            // Walk both parent chains to build the node path
+            path = state.path(meeting);
+        } finally {
+            statePool.offer(state);
+        }
+
+        double meters = 0;
+        double seconds = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            int edge = findEdge(g, path[i], path[i + 1]);
+            meters += g.distanceMeters[edge];
+            seconds += g.durationDs[edge] / 10.0;
+        }
+        double accessMeters = DistanceUtil.haversineDistance(lat1, lon1, g.latitude(source), g.longitude(source)) * 1000
+                + DistanceUtil.haversineDistance(lat2, lon2, g.latitude(target), g.longitude(target)) * 1000;
+        meters += accessMeters;
+        seconds += accessMeters / ACCESS_SPEED_MPS;
+
+        return new RoutingService.RouteInfo(meters / 1000.0, (int) Math.round(seconds / 60.0),
+                toPolyline(g, path, lat1, lon1, lat2, lon2));
+    }
+
+    /**
+     * Travel times (seconds) and distances (meters) from one point to many, from a single forward
+     * Dijkstra sweep that stops once every snapped destination is settled.
+     * Returns null when the origin is off the network; unreachable destinations are NaN.
+     */
+    public double[][] oneToMany(double lat, double lon, double[] destLats, double[] destLons) {
+        RoadGraph g = graph;
+        if (g == null) {
+            return null;
+        }
+        int source = g.nearestNode(lat, lon, maxSnapMeters);
+        if (source < 0) {
+            return null;
+        }
+        int count = destLats.length;
+        int[] targets = new int[count];
+        for (int i = 0; i < count; i++) {
+            targets[i] = g.nearestNode(destLats[i], destLons[i], maxSnapMeters);
+        }
+        int[] pending = Arrays.stream(targets).filter(t -> t >= 0).distinct().sorted().toArray();
+
+        double[] seconds = new double[count];
+        double[] meters = new double[count];
+        Arrays.fill(seconds, Double.NaN);
+        Arrays.fill(meters, Double.NaN);
+
+        SearchState state = acquireState(g);
+        try {
+            state.sweep(g, source, pending);
+            double sourceAccess = DistanceUtil.haversineDistance(lat, lon, g.latitude(source), g.longitude(source)) * 1000;
+            for (int i = 0; i < count; i++) {
+                int target = targets[i];
+                if (target < 0 || !state.reachedForward(target)) {
+                    continue;
+                }
+                double roadMeters = 0;
+                for (int v = target; state.parentF[v] != -1; v = state.parentF[v]) {
+                    roadMeters += g.distanceMeters[findEdge(g, state.parentF[v], v)];
+                }
+                double accessMeters = sourceAccess
+                        + DistanceUtil.haversineDistance(destLats[i], destLons[i], g.latitude(target), g.longitude(target)) * 1000;
+                meters[i] = roadMeters + accessMeters;
+                seconds[i] = state.distF[target] / 10.0 + accessMeters / ACCESS_SPEED_MPS;
+            }
+        } finally {
+            statePool.offer(state);
+        }
+        return new double[][]{seconds, meters};
+    }
+
+    private SearchState acquireState(RoadGraph g) {
+        SearchState state = statePool.poll();
+        return state != null && state.size() == g.getNodeCount() ? state : new SearchState(g.getNodeCount());
+    }
+
+    private static int findEdge(RoadGraph g, int from, int to) {
+        int best = -1;
+        for (int e = g.offsets[from]; e < g.offsets[from + 1]; e++) {
+            if (g.targets[e] == to && (best < 0 || g.durationDs[e] < g.durationDs[best])) {
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    // Same encoded polyline OSRM returns with geometries=polyline
+    private static String toPolyline(RoadGraph g, int[] path, double lat1, double lon1, double lat2, double lon2) {
+        int count = path.length + 2;
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        lats[0] = lat1;
+        lons[0] = lon1;
+        for (int i = 0; i < path.length; i++) {
+            lats[i + 1] = g.latitude(path[i]);
+            lons[i + 1] = g.longitude(path[i]);
+        }
+        lats[count - 1] = lat2;
+        lons[count - 1] = lon2;
+        return PolylineCodec.encode(lats, lons);
+    }
+
+    /**
+     * Search arrays for one query at a time, reset lazily by stamping each touched node with the query number.
+     */
+    static final class SearchState {
+        final int[] stampF;
+        final int[] stampB;
+        final double[] distF;
+        final double[] distB;
+        final int[] parentF;
+        final int[] parentB;
+        final boolean[] settledF;
+        final boolean[] settledB;
+        final MinHeap heapF = new MinHeap();
+        final MinHeap heapB = new MinHeap();
+        int stamp;
+
+        // Local planar frame of the current query, for the straight-line potentials
+        private double cosLat;
+        private double sourceX;
+        private double sourceY;
+        private double targetX;
+        private double targetY;
+        private double potentialScale;
+
+        SearchState(int nodes) {
+            stampF = new int[nodes];
+            stampB = new int[nodes];
+            distF = new double[nodes];
+            distB = new double[nodes];
+            parentF = new int[nodes];
+            parentB = new int[nodes];
+            settledF = new boolean[nodes];
+            settledB = new boolean[nodes];
+        }
+
+        /**
+         * Returns the meeting node of the fastest path, or -1 if the target is unreachable.
+         */
+        int search(RoadGraph g, int source, int target) {
+            stamp++;
+            if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stampF, 0);
+                Arrays.fill(stampB, 0);
+                stamp = 1;
+            }
+            heapF.clear();
+            heapB.clear();
+
+            cosLat = Math.cos(Math.toRadians(g.latitude(source)));
+            sourceX = g.lonE6[source] * cosLat;
+            sourceY = g.latE6[source];
+            targetX = g.lonE6[target] * cosLat;
+            targetY = g.latE6[target];
+            // E6 degrees -> meters -> deciseconds at the graph's top speed
+            potentialScale = POTENTIAL_SLACK * METERS_PER_E6 / g.maxSpeedMps * 10 / 2;
+
+            label(stampF, distF, parentF, settledF, source, 0, -1);
+            label(stampB, distB, parentB, settledB, target, 0, -1);
+            heapF.push(potential(g, source), source);
+            heapB.push(-potential(g, target), target);
+
+            double best = Double.POSITIVE_INFINITY;
+            int meeting = source == target ? source : -1;
+            if (meeting >= 0) {
+                return meeting;
+            }
+
+            while (!heapF.isEmpty() && !heapB.isEmpty()) {
+                // Keys sum to path lengths (potentials cancel), so this bounds every undiscovered path
+                if (heapF.peekKey() + heapB.peekKey() >= best) {
+                    break;
+                }
+                boolean forward = heapF.size() <= heapB.size();
+                MinHeap heap = forward ? heapF : heapB;
+                int u = heap.pop();
+                if (forward) {
+                    if (settledF[u]) continue;
+                    settledF[u] = true;
+                    for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                        int v = g.targets[e];
+                        double d = distF[u] + g.durationDs[e];
+                        if (stampF[v] != stamp || d < distF[v]) {
+                            label(stampF, distF, parentF, settledF, v, d, u);
+                            heapF.push(d + potential(g, v), v);
+                        }
+                        if (stampB[v] == stamp && d + distB[v] < best) {
+                            best = d + distB[v];
+                            meeting = v;
+                        }
+                    }
+                } else {
+                    if (settledB[u]) continue;
+                    settledB[u] = true;
+                    for (int r = g.reverseOffsets[u]; r < g.reverseOffsets[u + 1]; r++) {
+                        int v = g.reverseSources[r];
+                        double d = distB[u] + g.durationDs[g.reverseEdges[r]];
+                        if (stampB[v] != stamp || d < distB[v]) {
+                            label(stampB, distB, parentB, settledB, v, d, u);
+                            heapB.push(d - potential(g, v), v);
+                        }
+                        if (stampF[v] == stamp && d + distF[v] < best) {
+                            best = d + distF[v];
+                            meeting = v;
+                        }
+                    }
+                }
+            }
+            return meeting;
+        }
+
+        /**
+         * Plain forward Dijkstra from source until every node in sortedTargets is settled or the graph is exhausted.
+         */
+        void sweep(RoadGraph g, int source, int[] sortedTargets) {
+            stamp++;
+            if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stampF, 0);
+                Arrays.fill(stampB, 0);
+                stamp = 1;
+            }
+            heapF.clear();
+
+            label(stampF, distF, parentF, settledF, source, 0, -1);
+            heapF.push(0, source);
+            int remaining = sortedTargets.length;
+            while (remaining > 0 && !heapF.isEmpty()) {
+                int u = heapF.pop();
+                if (settledF[u]) continue;
+                settledF[u] = true;
+                if (Arrays.binarySearch(sortedTargets, u) >= 0) {
+                    remaining--;
+                }
+                for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                    int v = g.targets[e];
+                    double d = distF[u] + g.durationDs[e];
+                    if (stampF[v] != stamp || (!settledF[v] && d < distF[v])) {
+                        label(stampF, distF, parentF, settledF, v, d, u);
+                        heapF.push(d, v);
+                    }
+                }
+            }
+        }
+
+        boolean reachedForward(int v) {
+            return stampF[v] == stamp && settledF[v];
+        }
+
+        int size() {
+            return stampF.length;
+        }
+
+        int[] path(int meeting) {
+            int forwardLength = 0;
+            for (int v = meeting; v != -1; v = parentF[v]) forwardLength++;
+            int backwardLength = 0;
+            for (int v = parentB[meeting]; v != -1; v = parentB[v]) backwardLength++;
+
+            int[] path = new int[forwardLength + backwardLength];
+            int i = forwardLength - 1;
+            for (int v = meeting; v != -1; v = parentF[v]) path[i--] = v;
+            i = forwardLength;
+            for (int v = parentB[meeting]; v != -1; v = parentB[v]) path[i++] = v;
+            return path;
+        }
+
+        private void label(int[] stamps, double[] dist, int[] parent, boolean[] settled, int v, double d, int p) {
+            if (stamps[v] != stamp) {
+                stamps[v] = stamp;
+                settled[v] = false;
+            }
+            dist[v] = d;
+            parent[v] = p;
+        }
+
+        /**
+         * Average potential (h_target - h_source) / 2 in deciseconds; the backward search uses its negation.
+         */
+        private double potential(RoadGraph g, int v) {
+            double x = g.lonE6[v] * cosLat;
+            double y = g.latE6[v];
+            double toTarget = Math.sqrt((targetX - x) * (targetX - x) + (targetY - y) * (targetY - y));
+            double fromSource = Math.sqrt((x - sourceX) * (x - sourceX) + (y - sourceY) * (y - sourceY));
+            return (toTarget - fromSource) * potentialScale;
+        }
+    }
+
+    /**
+     * Binary min-heap of (key, node) pairs in primitive arrays; stale entries are skipped by the caller.
+     */
+    static final class MinHeap {
+        private double[] keys = new double[256];
+        private int[] nodes = new int[256];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(double key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                double key = keys[size];
+                int node = nodes[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                    if (keys[child] >= key) break;
+                    keys[i] = keys[child];
+                    nodes[i] = nodes[child];
+                    i = child;
+                }
+                keys[i] = key;
+                nodes[i] = node;
+            }
+            return top;
+        }
+    }
+}
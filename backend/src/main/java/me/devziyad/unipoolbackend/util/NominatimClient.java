@@ -0,0 +1,152 @@
+package me.devziyad.unipoolbackend.util;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound queue for Nominatim that keeps us within its usage policy (about one request per second).
+ * Requests run one at a time on a single dispatcher thread, paced by a token bucket; identical URLs
+ * share one call, and requests are refused up front when the queue is already longer than a caller would wait.
+ */
+@Component
+public class NominatimClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(NominatimClient.class);
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final Bucket pacer;
+    private final long intervalMillis;
+    private final int maxQueued;
+    private final ThreadPoolExecutor dispatcher;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public NominatimClient(@Value("${geocoding.nominatim.base-url:https://nominatim.openstreetmap.org}") String baseUrl,
+                           @Value("${geocoding.nominatim.requests-per-second:1}") int requestsPerSecond,
+                           @Value("${geocoding.nominatim.max-queue:5}") int maxQueued,
+                           @Value("${geocoding.nominatim.timeout-ms:5000}") int timeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        // Set user agent to avoid 403
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+        interceptors.add((request, body, execution) -> {
+            request.getHeaders().set("User-Agent", "UniPool/1.0");
+            return execution.execute(request, body);
+        });
+        restTemplate.setInterceptors(interceptors);
+
+        this.baseUrl = baseUrl;
+        this.intervalMillis = 1000L / Math.max(1, requestsPerSecond);
+        this.maxQueued = maxQueued;
+        // Capacity 1 so a quiet period never banks a burst
+        this.pacer = Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(1)
+                        .refillIntervally(1, Duration.ofMillis(intervalMillis))
+                        .build())
+                .build();
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)), runnable -> {
+                    Thread thread = new Thread(runnable, "nominatim-dispatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queue a GET for the path and query (e.g. "/search?q=..."). Returns null when the queue is full,
+     * otherwise a future that completes with the parsed JSON, or exceptionally on failure.
+     */
+    public CompletableFuture<Object> submit(String pathAndQuery) {
+        String url = baseUrl + pathAndQuery;
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(url, call);
+        if (existing != null) {
+            coalescedCalls.incrementAndGet();
+            return existing;
+        }
+        call.whenComplete((result, error) -> inFlight.remove(url, call));
+
+        if (dispatcher.getQueue().size() >= maxQueued) {
+            reject(call);
+            return null;
+        }
+        try {
+            dispatcher.execute(() -> execute(url, call));
+        } catch (RejectedExecutionException e) {
+            reject(call);
+            return null;
+        }
+        return call;
+    }
+
+    /**
+     * Rough time until a request submitted now would start, for callers deciding whether to wait.
+     */
+    public long estimatedWaitMillis() {
+        return (dispatcher.getQueue().size() + dispatcher.getActiveCount()) * intervalMillis;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("upstreamCalls", upstreamCalls.get());
+        stats.put("coalescedCalls", coalescedCalls.get());
+        stats.put("rejected", rejected.get());
+        stats.put("failures", failures.get());
+        stats.put("queued", dispatcher.getQueue().size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private void reject(CompletableFuture<Object> call) {
+        rejected.incrementAndGet();
+        call.completeExceptionally(new RejectedExecutionException("Nominatim queue is full"));
+    }
+
+    private void execute(String url, CompletableFuture<Object> call) {
+        try {
+            pacer.asBlocking().consume(1);
+            upstreamCalls.incrementAndGet();
+            call.complete(restTemplate.getForObject(url, Object.class));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.completeExceptionally(e);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.warn("Nominatim request failed: {}", e.getMessage());
+            call.completeExceptionally(e);
+        }
+    }
+}
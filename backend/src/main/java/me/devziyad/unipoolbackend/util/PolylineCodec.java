@@ -0,0 +1,86 @@
+package me.devziyad.unipoolbackend.util;
+
+import java.util.Arrays;
+
+/**
+ * Encoded polyline format (Google / OSRM "polyline", precision 1e5).
+ * Works on parallel latitude/longitude arrays to avoid boxing large paths.
+ */
+public final class PolylineCodec {
+
+    private static final double FACTOR = 1e5;
+
+    private PolylineCodec() {
+    }
+
+    public static String encode(double[] latitudes, double[] longitudes) {
+        return encode(latitudes, longitudes, latitudes.length);
+    }
+
+    public static String encode(double[] latitudes, double[] longitudes, int count) {
+        StringBuilder sb = new StringBuilder(count * 8);
+        long prevLat = 0;
+        long prevLon = 0;
+        for (int i = 0; i < count; i++) {
+            long lat = Math.round(latitudes[i] * FACTOR);
+            long lon = Math.round(longitudes[i] * FACTOR);
+            encodeValue(lat - prevLat, sb);
+            encodeValue(lon - prevLon, sb);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decode into {latitudes, longitudes}.
+     */
+    public static double[][] decode(String encoded) {
+        int length = encoded.length();
+        // Every point takes at least two characters
+        double[] lats = new double[length / 2 + 1];
+        double[] lons = new double[length / 2 + 1];
+        int count = 0;
+        int index = 0;
+        long lat = 0;
+        long lon = 0;
+        while (index < length) {
+            long[] result = decodeValue(encoded, index);
+            lat += result[0];
+            index = (int) result[1];
+            result = decodeValue(encoded, index);
+            lon += result[0];
+            index = (int) result[1];
+            lats[count] = lat / FACTOR;
+            lons[count] = lon / FACTOR;
+            count++;
+        }
+        return new double[][]{Arrays.copyOf(lats, count), Arrays.copyOf(lons, count)};
+    }
+
+    private static void encodeValue(long value, StringBuilder sb) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    // Returns {value, nextIndex}
+    private static long[] decodeValue(String encoded, int index) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (index >= encoded.length()) {
+                throw new IllegalArgumentException("Truncated polyline");
+            }
+            b = encoded.charAt(index++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        long value = (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+        return new long[]{value, index};
+    }
+}
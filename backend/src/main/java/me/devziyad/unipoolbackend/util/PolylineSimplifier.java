@@ -0,0 +1,87 @@
+package me.devziyad.unipoolbackend.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Douglas-Peucker line simplification with a tolerance in meters.
+ * Iterative (explicit stack) so long GPS trails cannot overflow the call stack.
+ */
+public final class PolylineSimplifier {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    private PolylineSimplifier() {
+    }
+
+    /**
+     * Indices of the points to keep, in ascending order. First and last points are always kept.
+     */
+    public static int[] simplify(double[] latitudes, double[] longitudes, double toleranceMeters) {
+        int n = latitudes.length;
+        if (n <= 2 || toleranceMeters <= 0) {
+            int[] all = new int[n];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+
+        // Project to a local equirectangular plane in meters around the path's first point
+        double cosLat = Math.cos(Math.toRadians(latitudes[0]));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (longitudes[i] - longitudes[0]) * METERS_PER_DEGREE_LAT * cosLat;
+            y[i] = (latitudes[i] - latitudes[0]) * METERS_PER_DEGREE_LAT;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        double toleranceSq = toleranceMeters * toleranceMeters;
+
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{0, n - 1});
+        while (!stack.isEmpty()) {
+            int[] segment = stack.pop();
+            int first = segment[0];
+            int last = segment[1];
+            double maxSq = -1;
+            int maxIndex = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistanceSq(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (d > maxSq) {
+                    maxSq = d;
+                    maxIndex = i;
+                }
+            }
+            if (maxIndex != -1 && maxSq > toleranceSq) {
+                keep[maxIndex] = true;
+                stack.push(new int[]{first, maxIndex});
+                stack.push(new int[]{maxIndex, last});
+            }
+        }
+
+        int count = 0;
+        for (boolean k : keep) {
+            if (k) count++;
+        }
+        int[] result = new int[count];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) result[j++] = i;
+        }
+        return result;
+    }
+
+    private static double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,133 @@
+package me.devziyad.unipoolbackend.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reverse geocoded addresses keyed by grid cell, so GPS fixes a few meters apart share one Nominatim lookup.
+ * Bounded by size and TTL, and snapshotted to a local file so a restart does not refetch every address.
+ */
+@Component
+public class ReverseGeocodeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReverseGeocodeCache.class);
+    private static final int FILE_MAGIC = 0x55505256; // "UPRV"
+    // Bump when the snapshot layout changes; files with another version are ignored
+    private static final int FILE_VERSION = 1;
+
+    private final GeoGrid grid;
+    private final BoundedCache<Long, String> cache;
+    private final Path file;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public ReverseGeocodeCache(@Value("${geocoding.reverse.grid-meters:20}") double gridMeters,
+                               @Value("${geocoding.reverse.max-entries:20000}") int maxEntries,
+                               @Value("${geocoding.reverse.ttl-hours:720}") long ttlHours,
+                               @Value("${geocoding.reverse.file:./data/reverse-geocode-cache.bin}") String file) {
+        this.grid = new GeoGrid(gridMeters);
+        this.cache = new BoundedCache<>(maxEntries, TimeUnit.HOURS.toMillis(ttlHours));
+        this.file = file == null || file.isBlank() ? null : Paths.get(file);
+    }
+
+    public String get(double latitude, double longitude) {
+        return cache.get(grid.cellOf(latitude, longitude));
+    }
+
+    public void put(double latitude, double longitude, String address) {
+        cache.put(grid.cellOf(latitude, longitude), address);
+        dirty.set(true);
+    }
+
+    public void clear() {
+        cache.clear();
+        dirty.set(true);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.getStats();
+        stats.put("persistent", file != null);
+        return stats;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                logger.info("Ignoring reverse geocode cache file {} with unknown format", file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long cell = in.readLong();
+                long writtenAt = in.readLong();
+                String address = in.readUTF();
+                cache.put(cell, address, writtenAt);
+                loaded++;
+            }
+            logger.info("Loaded {} cached addresses from {}", loaded, file);
+        } catch (IOException e) {
+            logger.warn("Failed to load reverse geocode cache from {} after {} entries: {}", file, loaded, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${geocoding.reverse.flush-interval-ms:300000}")
+    public void flush() {
+        if (file == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        List<Map.Entry<Long, BoundedCache.TimestampedValue<String>>> snapshot = new ArrayList<>();
+        cache.forEachLive((key, entry) -> snapshot.add(Map.entry(key, entry)));
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<Long, BoundedCache.TimestampedValue<String>> e : snapshot) {
+                    out.writeLong(e.getKey());
+                    out.writeLong(e.getValue().getWrittenAt());
+                    // Display names are well under writeUTF's 64 KB limit
+                    out.writeUTF(e.getValue().getValue());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Persisted {} cached addresses to {}", snapshot.size(), file);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Failed to persist reverse geocode cache to {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
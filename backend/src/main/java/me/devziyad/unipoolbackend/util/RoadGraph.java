@@ -0,0 +1,196 @@
+package me.devziyad.unipoolbackend.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Directed road graph in compressed sparse row (CSR) form, held entirely in primitive arrays.
+ *
+ * File format (big-endian ints):
+ * <pre>
+ * magic "UPRG", version, nodeCount, edgeCount,
+ * latE6[nodeCount], lonE6[nodeCount],
+ * offsets[nodeCount + 1], targets[edgeCount],
+ * distanceMeters[edgeCount], durationDeciseconds[edgeCount]
+ * </pre>
+ * Edges leaving node i are offsets[i] .. offsets[i + 1] - 1. Use {@link RoadGraphBuilder} to produce the file
+ * from an OpenStreetMap extract.
+ */
+public class RoadGraph {
+
+    public static final int MAGIC = 0x55505247; // "UPRG"
+    public static final int VERSION = 1;
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    final int[] latE6;
+    final int[] lonE6;
+    final int[] offsets;
+    final int[] targets;
+    final int[] distanceMeters;
+    final int[] durationDs;
+
+    // Reverse adjacency for backward searches: incoming edges of node i are reverseOffsets[i] .. [i + 1] - 1
+    final int[] reverseOffsets;
+    final int[] reverseSources;
+    final int[] reverseEdges;
+
+    // Fastest speed in the graph (m/s); keeps straight-line duration bounds admissible
+    final double maxSpeedMps;
+
+    private final GeoGrid grid;
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+    private final int[] cellNodes;
+
+    public RoadGraph(int[] latE6, int[] lonE6, int[] offsets, int[] targets, int[] distanceMeters, int[] durationDs,
+                     double snapCellMeters) {
+        this.latE6 = latE6;
+        this.lonE6 = lonE6;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.distanceMeters = distanceMeters;
+        this.durationDs = durationDs;
+
+        int n = latE6.length;
+        int m = targets.length;
+
+        // Reverse CSR by counting incoming edges
+        reverseOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            reverseOffsets[targets[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            reverseOffsets[i + 1] += reverseOffsets[i];
+        }
+        reverseSources = new int[m];
+        reverseEdges = new int[m];
+        int[] fill = Arrays.copyOf(reverseOffsets, n);
+        double fastest = 1.0;
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int slot = fill[targets[e]]++;
+                reverseSources[slot] = u;
+                reverseEdges[slot] = e;
+                if (durationDs[e] > 0) {
+                    fastest = Math.max(fastest, distanceMeters[e] / (durationDs[e] / 10.0));
+                }
+            }
+        }
+        maxSpeedMps = fastest;
+
+        // Nodes sorted by grid cell for nearest-node lookups
+        grid = new GeoGrid(snapCellMeters);
+        long[] keys = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = grid.cellOf(latitude(i), longitude(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        cellNodes = new int[n];
+        long[] distinct = new long[n];
+        int[] starts = new int[n + 1];
+        int cells = 0;
+        for (int i = 0; i < n; i++) {
+            cellNodes[i] = order[i];
+            if (i == 0 || keys[order[i]] != keys[order[i - 1]]) {
+                distinct[cells] = keys[order[i]];
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = n;
+        cellKeys = Arrays.copyOf(distinct, cells);
+        cellStarts = Arrays.copyOf(starts, cells + 1);
+    }
+
+    public static RoadGraph load(Path file, double snapCellMeters) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            IntBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asIntBuffer();
+            if (in.get() != MAGIC || in.get() != VERSION) {
+                throw new IOException("Not a road graph file (version " + VERSION + "): " + file);
+            }
+            int n = in.get();
+            int m = in.get();
+            return new RoadGraph(read(in, n), read(in, n), read(in, n + 1), read(in, m), read(in, m), read(in, m),
+                    snapCellMeters);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(getNodeCount());
+            out.writeInt(getEdgeCount());
+            for (int[] array : new int[][]{latE6, lonE6, offsets, targets, distanceMeters, durationDs}) {
+                ByteBuffer buffer = ByteBuffer.allocate(array.length * 4);
+                buffer.asIntBuffer().put(array);
+                out.write(buffer.array());
+            }
+        }
+    }
+
+    private static int[] read(IntBuffer in, int length) {
+        int[] array = new int[length];
+        in.get(array);
+        return array;
+    }
+
+    public int getNodeCount() {
+        return latE6.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public double latitude(int node) {
+        return latE6[node] / 1e6;
+    }
+
+    public double longitude(int node) {
+        return lonE6[node] / 1e6;
+    }
+
+    /**
+     * Closest node within maxMeters, or -1.
+     */
+    public int nearestNode(double latitude, double longitude, double maxMeters) {
+        int best = -1;
+        double bestSq = maxMeters * maxMeters;
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        int latRadius = grid.latCellRadius(maxMeters);
+        int lonRadius = grid.lonCellRadius(latitude, maxMeters);
+        int centerLat = grid.latCell(latitude);
+        int centerLon = grid.lonCell(longitude);
+        for (int i = centerLat - latRadius; i <= centerLat + latRadius; i++) {
+            for (int j = centerLon - lonRadius; j <= centerLon + lonRadius; j++) {
+                int cell = Arrays.binarySearch(cellKeys, GeoGrid.key(i, j));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int k = cellStarts[cell]; k < cellStarts[cell + 1]; k++) {
+                    int node = cellNodes[k];
+                    double dy = (latitude(node) - latitude) * METERS_PER_DEGREE_LAT;
+                    double dx = (longitude(node) - longitude) * METERS_PER_DEGREE_LAT * cosLat;
+                    double d = dx * dx + dy * dy;
+                    if (d < bestSq) {
+                        bestSq = d;
+                        best = node;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
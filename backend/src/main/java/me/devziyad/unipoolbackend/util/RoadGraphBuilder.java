@@ -0,0 +1,221 @@
+package me.devziyad.unipoolbackend.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Offline preprocessing: turns an OpenStreetMap XML extract (.osm) into a {@link RoadGraph} file.
+ * Only drivable highways are kept; one-way streets and roundabouts produce a single direction.
+ *
+ * Usage: java -cp app.jar me.devziyad.unipoolbackend.util.RoadGraphBuilder bahrain.osm road-graph.bin
+ */
+public class RoadGraphBuilder {
+
+    // Default car speeds (km/h) by highway type when the way has no usable maxspeed tag
+    private static final Map<String, Double> SPEEDS = Map.ofEntries(
+            Map.entry("motorway", 100.0), Map.entry("motorway_link", 60.0),
+            Map.entry("trunk", 80.0), Map.entry("trunk_link", 50.0),
+            Map.entry("primary", 65.0), Map.entry("primary_link", 45.0),
+            Map.entry("secondary", 55.0), Map.entry("secondary_link", 40.0),
+            Map.entry("tertiary", 45.0), Map.entry("tertiary_link", 35.0),
+            Map.entry("unclassified", 35.0), Map.entry("residential", 30.0),
+            Map.entry("living_street", 10.0), Map.entry("service", 20.0),
+            Map.entry("road", 30.0)
+    );
+
+    private final Map<Long, Integer> nodeIndex = new HashMap<>();
+    private int[] latE6 = new int[1024];
+    private int[] lonE6 = new int[1024];
+    private int nodeCount;
+
+    private int[] edgeFrom = new int[1024];
+    private int[] edgeTo = new int[1024];
+    private int[] edgeMeters = new int[1024];
+    private int[] edgeDs = new int[1024];
+    private int edgeCount;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: RoadGraphBuilder <input.osm> <output.bin>");
+            System.exit(1);
+        }
+        RoadGraph graph;
+        try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+            graph = new RoadGraphBuilder().build(in);
+        }
+        Path out = Paths.get(args[1]);
+        graph.write(out);
+        System.out.printf("Wrote %s: %d nodes, %d edges%n", out, graph.getNodeCount(), graph.getEdgeCount());
+    }
+
+    public RoadGraph build(InputStream osmXml) throws XMLStreamException {
+        XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(osmXml);
+        long[] wayRefs = new long[64];
+        int wayLength = 0;
+        boolean inWay = false;
+        String highway = null;
+        String oneway = null;
+        String junction = null;
+        String maxspeed = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "node" -> addNode(Long.parseLong(reader.getAttributeValue(null, "id")),
+                            Double.parseDouble(reader.getAttributeValue(null, "lat")),
+                            Double.parseDouble(reader.getAttributeValue(null, "lon")));
+                    case "way" -> {
+                        inWay = true;
+                        wayLength = 0;
+                        highway = oneway = junction = maxspeed = null;
+                    }
+                    case "nd" -> {
+                        if (inWay) {
+                            if (wayLength == wayRefs.length) {
+                                wayRefs = Arrays.copyOf(wayRefs, wayLength * 2);
+                            }
+                            wayRefs[wayLength++] = Long.parseLong(reader.getAttributeValue(null, "ref"));
+                        }
+                    }
+                    case "tag" -> {
+                        if (inWay) {
+                            String k = reader.getAttributeValue(null, "k");
+                            String v = reader.getAttributeValue(null, "v");
+                            switch (k) {
+                                case "highway" -> highway = v;
+                                case "oneway" -> oneway = v;
+                                case "junction" -> junction = v;
+                                case "maxspeed" -> maxspeed = v;
+                                default -> { }
+                            }
+                        }
+                    }
+                    default -> { }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(reader.getLocalName())) {
+                inWay = false;
+                Double defaultSpeed = highway == null ? null : SPEEDS.get(highway);
+                if (defaultSpeed != null) {
+                    double speedKmh = parseMaxSpeed(maxspeed, defaultSpeed);
+                    boolean forward = true;
+                    boolean backward = !("yes".equals(oneway) || "1".equals(oneway) || "true".equals(oneway)
+                            || "roundabout".equals(junction) || "motorway".equals(highway));
+                    if ("-1".equals(oneway)) {
+                        forward = false;
+                        backward = true;
+                    }
+                    addWay(wayRefs, wayLength, speedKmh, forward, backward);
+                }
+            }
+        }
+        reader.close();
+        return compact();
+    }
+
+    private void addNode(long id, double lat, double lon) {
+        if (nodeCount == latE6.length) {
+            latE6 = Arrays.copyOf(latE6, nodeCount * 2);
+            lonE6 = Arrays.copyOf(lonE6, nodeCount * 2);
+        }
+        latE6[nodeCount] = (int) Math.round(lat * 1e6);
+        lonE6[nodeCount] = (int) Math.round(lon * 1e6);
+        nodeIndex.put(id, nodeCount++);
+    }
+
+    private void addWay(long[] refs, int length, double speedKmh, boolean forward, boolean backward) {
+        double speedMps = speedKmh / 3.6;
+        for (int i = 0; i + 1 < length; i++) {
+            Integer a = nodeIndex.get(refs[i]);
+            Integer b = nodeIndex.get(refs[i + 1]);
+            if (a == null || b == null || a.equals(b)) {
+                continue; // Way clipped at the extract boundary
+            }
+            int meters = (int) Math.ceil(DistanceUtil.haversineDistance(
+                    latE6[a] / 1e6, lonE6[a] / 1e6, latE6[b] / 1e6, lonE6[b] / 1e6) * 1000);
+            int ds = Math.max(1, (int) Math.ceil(meters / speedMps * 10));
+            if (forward) addEdge(a, b, meters, ds);
+            if (backward) addEdge(b, a, meters, ds);
+        }
+    }
+
+    private void addEdge(int from, int to, int meters, int ds) {
+        if (edgeCount == edgeFrom.length) {
+            int size = edgeCount * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, size);
+            edgeTo = Arrays.copyOf(edgeTo, size);
+            edgeMeters = Arrays.copyOf(edgeMeters, size);
+            edgeDs = Arrays.copyOf(edgeDs, size);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeMeters[edgeCount] = meters;
+        edgeDs[edgeCount] = ds;
+        edgeCount++;
+    }
+
+    private static double parseMaxSpeed(String value, double fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            String v = value.trim().toLowerCase();
+            if (v.endsWith("mph")) {
+                return Double.parseDouble(v.replace("mph", "").trim()) * 1.609;
+            }
+            double parsed = Double.parseDouble(v.replace("km/h", "").trim());
+            return parsed > 0 ? parsed : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Drop nodes no edge touches, renumber, and lay the edges out in CSR order.
+     */
+    private RoadGraph compact() {
+        int[] remap = new int[nodeCount];
+        Arrays.fill(remap, -1);
+        int kept = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (remap[edgeFrom[e]] < 0) remap[edgeFrom[e]] = kept++;
+            if (remap[edgeTo[e]] < 0) remap[edgeTo[e]] = kept++;
+        }
+        int[] lat = new int[kept];
+        int[] lon = new int[kept];
+        for (int i = 0; i < nodeCount; i++) {
+            if (remap[i] >= 0) {
+                lat[remap[i]] = latE6[i];
+                lon[remap[i]] = lonE6[i];
+            }
+        }
+
+        int[] offsets = new int[kept + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[remap[edgeFrom[e]] + 1]++;
+        }
+        for (int i = 0; i < kept; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] fill = Arrays.copyOf(offsets, kept);
+        int[] targets = new int[edgeCount];
+        int[] meters = new int[edgeCount];
+        int[] ds = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = fill[remap[edgeFrom[e]]]++;
+            targets[slot] = remap[edgeTo[e]];
+            meters[slot] = edgeMeters[e];
+            ds[slot] = edgeDs[e];
+        }
+        return new RoadGraph(lat, lon, offsets, targets, meters, ds, 250);
+    }
+}
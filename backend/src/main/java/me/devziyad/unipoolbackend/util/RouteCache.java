@@ -0,0 +1,185 @@
+package me.devziyad.unipoolbackend.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Route results keyed by start/end snapped to a grid, so nearby requests for the same trip share one lookup.
+ * Bounded by size and TTL, and snapshotted to a local file so the cache survives restarts.
+ */
+@Component
+public class RouteCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteCache.class);
+    private static final int FILE_MAGIC = 0x55505243; // "UPRC"
+    private static final int FILE_VERSION = 1;
+
+    private final GeoGrid grid;
+    private final BoundedCache<RouteKey, RoutingService.RouteInfo> cache;
+    private final Path file;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public RouteCache(@Value("${routing.cache.grid-meters:50}") double gridMeters,
+                      @Value("${routing.cache.max-entries:10000}") int maxEntries,
+                      @Value("${routing.cache.ttl-hours:168}") long ttlHours,
+                      @Value("${routing.cache.file:./data/route-cache.bin}") String file) {
+        this.grid = new GeoGrid(gridMeters);
+        this.cache = new BoundedCache<>(maxEntries, TimeUnit.HOURS.toMillis(ttlHours));
+        this.file = file == null || file.isBlank() ? null : Paths.get(file);
+    }
+
+    public RoutingService.RouteInfo get(double lat1, double lon1, double lat2, double lon2) {
+        return cache.get(key(lat1, lon1, lat2, lon2));
+    }
+
+    public void put(double lat1, double lon1, double lat2, double lon2, RoutingService.RouteInfo info) {
+        cache.put(key(lat1, lon1, lat2, lon2), info);
+        dirty.set(true);
+    }
+
+    public void clear() {
+        cache.clear();
+        dirty.set(true);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.getStats();
+        stats.put("persistent", file != null);
+        return stats;
+    }
+
+    private RouteKey key(double lat1, double lon1, double lat2, double lon2) {
+        return new RouteKey(grid.cellOf(lat1, lon1), grid.cellOf(lat2, lon2));
+    }
+
+    @PostConstruct
+    public void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                logger.info("Ignoring route cache file {} with unknown format", file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long start = in.readLong();
+                long end = in.readLong();
+                long writtenAt = in.readLong();
+                double distanceKm = in.readDouble();
+                int durationMinutes = in.readInt();
+                // Snapshots written before routes were stored encoded may still hold GeoJSON
+                String polyline = RouteGeometry.toEncoded(readString(in));
+                cache.put(new RouteKey(start, end),
+                        new RoutingService.RouteInfo(distanceKm, durationMinutes, polyline), writtenAt);
+                loaded++;
+            }
+            logger.info("Loaded {} cached routes from {}", loaded, file);
+        } catch (IOException e) {
+            logger.warn("Failed to load route cache from {} after {} entries: {}", file, loaded, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${routing.cache.flush-interval-ms:300000}")
+    public void flush() {
+        if (file == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        List<Map.Entry<RouteKey, BoundedCache.TimestampedValue<RoutingService.RouteInfo>>> snapshot = new ArrayList<>();
+        cache.forEachLive((key, entry) -> snapshot.add(Map.entry(key, entry)));
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<RouteKey, BoundedCache.TimestampedValue<RoutingService.RouteInfo>> e : snapshot) {
+                    RoutingService.RouteInfo info = e.getValue().getValue();
+                    out.writeLong(e.getKey().start);
+                    out.writeLong(e.getKey().end);
+                    out.writeLong(e.getValue().getWrittenAt());
+                    out.writeDouble(info.getDistanceKm());
+                    out.writeInt(info.getDurationMinutes());
+                    writeString(out, info.getPolyline());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Persisted {} cached routes to {}", snapshot.size(), file);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Failed to persist route cache to {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class RouteKey {
+        private final long start;
+        private final long end;
+
+        private RouteKey(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RouteKey other && other.start == start && other.end == end;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(start) * 31 + Long.hashCode(end);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package me.devziyad.unipoolbackend.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Conversions for stored route geometry.
+ * Routes are stored as encoded polylines (precision 5); rows written before that may still hold a
+ * GeoJSON LineString, so every method accepts either and only decodes when it has to.
+ */
+public final class RouteGeometry {
+
+    public static final String FORMAT_GEOJSON = "geojson";
+    public static final String FORMAT_ENCODED = "encoded";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    // Web Mercator ground resolution at zoom 0 on the equator, meters per 256px tile pixel
+    private static final double METERS_PER_PIXEL_ZOOM_0 = 156_543.034;
+
+    private RouteGeometry() {
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_GEOJSON.equalsIgnoreCase(format) || FORMAT_ENCODED.equalsIgnoreCase(format);
+    }
+
+    public static boolean isGeoJson(String stored) {
+        return stored != null && !stored.isEmpty() && stored.charAt(0) == '{';
+    }
+
+    /**
+     * Stored geometry in the requested format; null stays null.
+     */
+    public static String render(String stored, String format) {
+        if (stored == null) {
+            return null;
+        }
+        return FORMAT_ENCODED.equalsIgnoreCase(format) ? toEncoded(stored) : toGeoJson(stored);
+    }
+
+    public static String toEncoded(String stored) {
+        if (stored == null || !isGeoJson(stored)) {
+            return stored;
+        }
+        double[][] path = decode(stored);
+        return PolylineCodec.encode(path[0], path[1]);
+    }
+
+    public static String toGeoJson(String stored) {
+        if (stored == null || isGeoJson(stored)) {
+            return stored;
+        }
+        double[][] path = PolylineCodec.decode(stored);
+        double[] lats = path[0];
+        double[] lons = path[1];
+        StringBuilder sb = new StringBuilder(lats.length * 22 + 40);
+        sb.append("{\"type\":\"LineString\",\"coordinates\":[");
+        for (int i = 0; i < lats.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('[');
+            appendE5(sb, lons[i]);
+            sb.append(',');
+            appendE5(sb, lats[i]);
+            sb.append(']');
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Encoded polyline of the geometry simplified to the tolerance (Douglas-Peucker).
+     */
+    public static String simplify(String stored, double toleranceMeters) {
+        double[][] path = decode(stored);
+        int[] kept = PolylineSimplifier.simplify(path[0], path[1], toleranceMeters);
+        double[] lats = new double[kept.length];
+        double[] lons = new double[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            lats[i] = path[0][kept[i]];
+            lons[i] = path[1][kept[i]];
+        }
+        return PolylineCodec.encode(lats, lons);
+    }
+
+    /**
+     * Ground distance covered by the given number of screen pixels at a map zoom level and latitude.
+     */
+    public static double toleranceForZoom(int zoom, double latitude, double pixels) {
+        return METERS_PER_PIXEL_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / Math.pow(2, zoom) * pixels;
+    }
+
+    /**
+     * Decode into {latitudes, longitudes}.
+     */
+    public static double[][] decode(String stored) {
+        if (!isGeoJson(stored)) {
+            return PolylineCodec.decode(stored);
+        }
+        try {
+            JsonNode coordinates = OBJECT_MAPPER.readTree(stored).path("coordinates");
+            double[] lats = new double[coordinates.size()];
+            double[] lons = new double[coordinates.size()];
+            for (int i = 0; i < coordinates.size(); i++) {
+                lons[i] = coordinates.get(i).get(0).asDouble();
+                lats[i] = coordinates.get(i).get(1).asDouble();
+            }
+            return new double[][]{lats, lons};
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid GeoJSON route geometry", e);
+        }
+    }
+
+    // Encoded polylines carry five decimals, so print exactly that many
+    private static void appendE5(StringBuilder sb, double value) {
+        long e5 = Math.round(value * 1e5);
+        if (e5 < 0) {
+            sb.append('-');
+            e5 = -e5;
+        }
+        sb.append(e5 / 100_000).append('.');
+        String fraction = Long.toString(e5 % 100_000);
+        for (int i = fraction.length(); i < 5; i++) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
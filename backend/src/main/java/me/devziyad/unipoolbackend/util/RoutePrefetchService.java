@@ -0,0 +1,156 @@
+package me.devziyad.unipoolbackend.util;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms the route cache in the background for routes between saved favourite locations and the campus hubs,
+ * so the first real route or distance request for a favourite does not pay OSRM latency.
+ * Work runs on a small bounded pool, paced by a token bucket, and is dropped rather than queued without limit.
+ */
+@Component
+public class RoutePrefetchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutePrefetchService.class);
+
+    private final RoutingService routingService;
+    private final RouteCache routeCache;
+    private final List<double[]> hubs;
+    private final ThreadPoolExecutor executor;
+    private final Bucket rateLimiter;
+    // Pairs queued or running, so saving the same favourite twice does not fetch twice
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong alreadyCached = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public RoutePrefetchService(RoutingService routingService,
+                                RouteCache routeCache,
+                                @Value("${routing.prefetch.hubs:}") String hubs,
+                                @Value("${routing.prefetch.threads:2}") int threads,
+                                @Value("${routing.prefetch.queue-capacity:200}") int queueCapacity,
+                                @Value("${routing.prefetch.requests-per-second:2}") int requestsPerSecond) {
+        this.routingService = routingService;
+        this.routeCache = routeCache;
+        this.hubs = parseHubs(hubs);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "route-prefetch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.rateLimiter = Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(requestsPerSecond)
+                        .refillGreedy(requestsPerSecond, Duration.ofSeconds(1))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Queue routes from the location to every hub and back. Never blocks the caller.
+     */
+    public void prefetchForLocation(double latitude, double longitude) {
+        for (double[] hub : hubs) {
+            submit(latitude, longitude, hub[0], hub[1]);
+            submit(hub[0], hub[1], latitude, longitude);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hubs", hubs.size());
+        stats.put("submitted", submitted.get());
+        stats.put("fetched", fetched.get());
+        stats.put("alreadyCached", alreadyCached.get());
+        stats.put("dropped", dropped.get());
+        stats.put("queued", executor.getQueue().size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void submit(double lat1, double lon1, double lat2, double lon2) {
+        String key = String.format(Locale.ROOT, "%.5f,%.5f;%.5f,%.5f", lat1, lon1, lat2, lon2);
+        if (!pending.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    fetch(lat1, lon1, lat2, lon2);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+            submitted.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void fetch(double lat1, double lon1, double lat2, double lon2) {
+        if (routeCache.get(lat1, lon1, lat2, lon2) != null) {
+            alreadyCached.incrementAndGet();
+            return;
+        }
+        try {
+            rateLimiter.asBlocking().consume(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // Successful OSRM answers are stored in the route cache by RoutingService itself
+        routingService.getRouteInfo(lat1, lon1, lat2, lon2);
+        fetched.incrementAndGet();
+    }
+
+    private static List<double[]> parseHubs(String value) {
+        List<double[]> parsed = new ArrayList<>();
+        if (value == null || value.isBlank()) {
+            return parsed;
+        }
+        for (String hub : value.split(";")) {
+            String[] parts = hub.trim().split(",");
+            if (parts.length != 2) {
+                logger.warn("Ignoring malformed prefetch hub '{}', expected latitude,longitude", hub);
+                continue;
+            }
+            try {
+                parsed.add(new double[]{Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())});
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring malformed prefetch hub '{}', expected latitude,longitude", hub);
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,16 @@
+package me.devziyad.unipoolbackend.util;
+
+/**
+ * A routing backend that can answer shortest-path queries in-process.
+ */
+public interface RoutingEngine {
+
+    String getName();
+
+    boolean isAvailable();
+
+    /**
+     * Route between two points, or null if either point is off the network or no path exists.
+     */
+    RoutingService.RouteInfo route(double lat1, double lon1, double lat2, double lon2);
+}
@@ -1,139 +1,354 @@
 package me.devziyad.unipoolbackend.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.ChannelOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class RoutingService {
 
     private static final Logger logger = LoggerFactory.getLogger(RoutingService.class);
-    private static final String OSRM_BASE_URL = "http://router.project-osrm.org/route/v1/driving/";
-    private static final int CONNECTION_TIMEOUT_MS = 2000; // 2 seconds
-    private static final int READ_TIMEOUT_MS = 3000; // 3 seconds
-    private final RestTemplate restTemplate;
+    private static final String ROUTE_PATH = "/route/v1/driving/";
+    private static final String TABLE_PATH = "/table/v1/driving/";
+
+    private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    // Bulkhead: caps concurrent OSRM calls so a slow upstream cannot pile up connections
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final RouteCache routeCache;
+    // In-process engine tried before OSRM when routing.engine=local
+    private final RoutingEngine localEngine;
+    // Single-flight: concurrent identical requests share one upstream call
+    private final Map<String, CompletableFuture<RouteInfo>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong localRoutes = new AtomicLong();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+    private final AtomicLong bulkheadRejections = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
 
-    public RoutingService() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(CONNECTION_TIMEOUT_MS);
-        factory.setReadTimeout(READ_TIMEOUT_MS);
-        this.restTemplate = new RestTemplate(factory);
+    public RoutingService(RouteCache routeCache,
+                          LocalGraphRoutingEngine localGraphRoutingEngine,
+                          @Value("${routing.engine:osrm}") String engine,
+                          @Value("${routing.osrm.base-url:http://router.project-osrm.org}") String baseUrl,
+                          @Value("${routing.osrm.connect-timeout-ms:2000}") int connectTimeoutMs,
+                          @Value("${routing.osrm.timeout-ms:3000}") long timeoutMs,
+                          @Value("${routing.osrm.max-concurrent-requests:16}") int maxConcurrentRequests,
+                          @Value("${routing.osrm.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                          @Value("${routing.osrm.circuit-breaker.open-duration-ms:30000}") long openDurationMs) {
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(timeoutMs));
+        this.webClient = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
         this.objectMapper = new ObjectMapper();
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.bulkhead = new Semaphore(maxConcurrentRequests);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDurationMs);
+        this.routeCache = routeCache;
+        this.localEngine = "local".equalsIgnoreCase(engine) ? localGraphRoutingEngine : null;
     }
 
     /**
      * Get route information from OSRM
      * Returns distance in km and duration in minutes
-     * 
+     *
      * According to OSRM API docs:
      * - Coordinates format: {longitude},{latitude};{longitude},{latitude}
      * - Response contains 'code' field: "Ok" for success, error codes otherwise
-     * - When geometries=geojson, geometry is a GeoJSON LineString object
+     * - When geometries=polyline, geometry is an encoded polyline string (precision 5)
      * - Distance is in meters, duration is in seconds
+     *
+     * Never waits longer than the configured timeout; returns the Haversine fallback immediately
+     * while the circuit is open or the bulkhead is full. Callers are synchronous (route and location
+     * services inside JPA transactions, the prefetch worker), so the bounded wait stays here rather than
+     * exposing a future they would immediately join.
      */
-    @SuppressWarnings("unchecked")
     public RouteInfo getRouteInfo(double lat1, double lon1, double lat2, double lon2) {
+        CompletableFuture<RouteInfo> future = fetchRoute(lat1, lon1, lat2, lon2);
         try {
-            // OSRM API format: longitude,latitude;longitude,latitude
-            String url = String.format("%s%s,%s;%s,%s?overview=full&geometries=geojson",
-                    OSRM_BASE_URL, lon1, lat1, lon2, lat2);
-
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            // The upstream call is already bounded by the timeout; the margin only covers scheduling
+            return future.get(timeout.toMillis() + 500, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return createHaversineFallback(lat1, lon1, lat2, lon2);
+        } catch (Exception e) {
+            logger.warn("OSRM request did not complete in time ({}), using Haversine fallback", e.getMessage());
+            return createHaversineFallback(lat1, lon1, lat2, lon2);
+        }
+    }
 
-            if (response == null) {
-                logger.warn("OSRM returned null response, using Haversine fallback");
-                return createHaversineFallback(lat1, lon1, lat2, lon2);
+    /**
+     * Always completes normally (with the fallback on any failure); identical concurrent requests share a future.
+     */
+    private CompletableFuture<RouteInfo> fetchRoute(double lat1, double lon1, double lat2, double lon2) {
+        if (localEngine != null && localEngine.isAvailable()) {
+            RouteInfo local = localEngine.route(lat1, lon1, lat2, lon2);
+            if (local != null) {
+                localRoutes.incrementAndGet();
+                return CompletableFuture.completedFuture(local);
             }
+            // Off the local network (or no path): fall through to the cache / OSRM
+        }
 
-            // Check response code according to OSRM API spec
-            Object codeObj = response.get("code");
-            if (codeObj != null && !"Ok".equals(codeObj.toString())) {
-                String message = response.containsKey("message") 
-                    ? response.get("message").toString() 
-                    : "Unknown error";
-                logger.warn("OSRM returned error code '{}': {}, using Haversine fallback", codeObj, message);
-                return createHaversineFallback(lat1, lon1, lat2, lon2);
+        RouteInfo cached = routeCache.get(lat1, lon1, lat2, lon2);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // OSRM API format: longitude,latitude;longitude,latitude
+        String coordinates = String.format(Locale.ROOT, "%.6f,%.6f;%.6f,%.6f", lon1, lat1, lon2, lat2);
+
+        CompletableFuture<RouteInfo> call = new CompletableFuture<>();
+        CompletableFuture<RouteInfo> existing = inFlight.putIfAbsent(coordinates, call);
+        if (existing != null) {
+            coalescedCalls.incrementAndGet();
+            return existing;
+        }
+        call.whenComplete((info, error) -> inFlight.remove(coordinates, call));
+
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.incrementAndGet();
+            logger.warn("OSRM bulkhead full, using Haversine fallback");
+            call.complete(createHaversineFallback(lat1, lon1, lat2, lon2));
+            return call;
+        }
+        if (!circuitBreaker.allowRequest()) {
+            bulkhead.release();
+            logger.debug("OSRM circuit open, using Haversine fallback");
+            call.complete(createHaversineFallback(lat1, lon1, lat2, lon2));
+            return call;
+        }
+
+        upstreamCalls.incrementAndGet();
+        webClient.get()
+                .uri(ROUTE_PATH + coordinates + "?overview=full&geometries=polyline")
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(timeout)
+                .doFinally(signal -> bulkhead.release())
+                .subscribe(
+                        body -> {
+                            circuitBreaker.onSuccess();
+                            RouteInfo info = parseRoute(body);
+                            if (info != null) {
+                                routeCache.put(lat1, lon1, lat2, lon2, info);
+                            }
+                            call.complete(info != null ? info : createHaversineFallback(lat1, lon1, lat2, lon2));
+                        },
+                        error -> {
+                            if (error instanceof WebClientResponseException response
+                                    && response.getStatusCode().is4xxClientError()) {
+                                // OSRM answered (e.g. invalid coordinates); the upstream itself is healthy
+                                circuitBreaker.onSuccess();
+                                logger.warn("OSRM rejected request ({}), using Haversine fallback",
+                                        response.getStatusCode());
+                            } else {
+                                circuitBreaker.onFailure();
+                                logger.warn("OSRM request failed ({}), using Haversine fallback", error.toString());
+                            }
+                            call.complete(createHaversineFallback(lat1, lon1, lat2, lon2));
+                        },
+                        () -> {
+                            if (!call.isDone()) {
+                                circuitBreaker.onSuccess();
+                                call.complete(createHaversineFallback(lat1, lon1, lat2, lon2));
+                            }
+                        });
+        return call;
+    }
+
+    /**
+     * One OSRM /table call for all origin/destination pairs.
+     * Returns {durationsSeconds, distancesMeters} indexed [origin][destination] (NaN where OSRM found no route),
+     * or null when OSRM is unavailable, in which case the caller should fall back.
+     */
+    public double[][][] getTable(double[] originLats, double[] originLons, double[] destLats, double[] destLons) {
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.incrementAndGet();
+            return null;
+        }
+        try {
+            if (!circuitBreaker.allowRequest()) {
+                return null;
+            }
+            int origins = originLats.length;
+            int destinations = destLats.length;
+            StringBuilder coordinates = new StringBuilder();
+            StringBuilder sources = new StringBuilder();
+            StringBuilder targets = new StringBuilder();
+            for (int i = 0; i < origins + destinations; i++) {
+                boolean origin = i < origins;
+                double lat = origin ? originLats[i] : destLats[i - origins];
+                double lon = origin ? originLons[i] : destLons[i - origins];
+                if (i > 0) coordinates.append(';');
+                coordinates.append(String.format(Locale.ROOT, "%.6f,%.6f", lon, lat));
+                StringBuilder indexes = origin ? sources : targets;
+                if (!indexes.isEmpty()) indexes.append(';');
+                indexes.append(i);
             }
 
-            // Parse routes array
-            if (!response.containsKey("routes")) {
-                logger.warn("OSRM response missing 'routes' field, using Haversine fallback");
-                return createHaversineFallback(lat1, lon1, lat2, lon2);
+            upstreamCalls.incrementAndGet();
+            String body;
+            try {
+                body = webClient.get()
+                        .uri(TABLE_PATH + coordinates + "?sources=" + sources + "&destinations=" + targets
+                                + "&annotations=duration,distance")
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .timeout(timeout)
+                        .block();
+                circuitBreaker.onSuccess();
+            } catch (WebClientResponseException e) {
+                if (e.getStatusCode().is4xxClientError()) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+                logger.warn("OSRM table request failed ({})", e.getStatusCode());
+                return null;
+            } catch (Exception e) {
+                circuitBreaker.onFailure();
+                logger.warn("OSRM table request failed ({})", e.toString());
+                return null;
             }
 
-                Object routesObj = response.get("routes");
-            if (!(routesObj instanceof List<?> routesList) || routesList.isEmpty()) {
-                logger.warn("OSRM response has empty or invalid routes array, using Haversine fallback");
-                return createHaversineFallback(lat1, lon1, lat2, lon2);
+            Map<?, ?> response = objectMapper.readValue(body, Map.class);
+            if (!"Ok".equals(String.valueOf(response.get("code")))) {
+                logger.warn("OSRM table returned error code '{}'", response.get("code"));
+                return null;
             }
+            double[][] durations = toMatrix(response.get("durations"), origins, destinations);
+            double[][] distances = toMatrix(response.get("distances"), origins, destinations);
+            return durations == null || distances == null ? null : new double[][][]{durations, distances};
+        } catch (Exception e) {
+            logger.warn("Unparseable OSRM table response ({})", e.getMessage());
+            return null;
+        } finally {
+            bulkhead.release();
+        }
+    }
 
-                    Object firstRoute = routesList.get(0);
-            if (!(firstRoute instanceof Map<?, ?>)) {
-                logger.warn("OSRM route object is not a map, using Haversine fallback");
-                return createHaversineFallback(lat1, lon1, lat2, lon2);
+    private static double[][] toMatrix(Object value, int rows, int columns) {
+        if (!(value instanceof List<?> rowList) || rowList.size() != rows) {
+            return null;
+        }
+        double[][] matrix = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            if (!(rowList.get(i) instanceof List<?> row) || row.size() != columns) {
+                return null;
             }
+            for (int j = 0; j < columns; j++) {
+                matrix[i][j] = row.get(j) instanceof Number n ? n.doubleValue() : Double.NaN;
+            }
+        }
+        return matrix;
+    }
 
-            Map<String, Object> route = (Map<String, Object>) firstRoute;
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
 
-                        Object distanceObj = route.get("distance");
-                        Object durationObj = route.get("duration");
+    public Map<String, Object> getCacheStats() {
+        return routeCache.getStats();
+    }
 
-            if (!(distanceObj instanceof Number) || !(durationObj instanceof Number)) {
-                logger.warn("OSRM route missing distance or duration, using Haversine fallback");
-                return createHaversineFallback(lat1, lon1, lat2, lon2);
-            }
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "engine", localEngine != null && localEngine.isAvailable() ? localEngine.getName() : "osrm",
+                "localRoutes", localRoutes.get(),
+                "circuitState", circuitBreaker.getState().name(),
+                "circuitRejections", circuitBreaker.getRejectedCount(),
+                "upstreamCalls", upstreamCalls.get(),
+                "coalescedCalls", coalescedCalls.get(),
+                "bulkheadRejections", bulkheadRejections.get(),
+                "bulkheadAvailable", bulkhead.availablePermits(),
+                "fallbacks", fallbacks.get()
+        );
+    }
 
-                            double distanceMeters = ((Number) distanceObj).doubleValue();
-                            double durationSeconds = ((Number) durationObj).doubleValue();
-
-            // Extract geometry - when geometries=geojson, it's a GeoJSON LineString object
-            // We'll serialize it to JSON string for storage
-            String polyline = null;
-                            Object geometryObj = route.get("geometry");
-            if (geometryObj != null) {
-                try {
-                    // Serialize GeoJSON geometry to JSON string
-                    polyline = objectMapper.writeValueAsString(geometryObj);
-                } catch (Exception e) {
-                    logger.debug("Failed to serialize geometry to JSON: {}", e.getMessage());
-                    polyline = geometryObj.toString();
-                }
-            }
+    @SuppressWarnings("unchecked")
+    private RouteInfo parseRoute(String body) {
+        Map<String, Object> response;
+        try {
+            response = objectMapper.readValue(body, Map.class);
+        } catch (Exception e) {
+            logger.warn("OSRM returned unparseable response ({}), using Haversine fallback", e.getMessage());
+            return null;
+        }
 
-                            return new RouteInfo(
-                                    distanceMeters / 1000.0, // convert to km
-                    (int) Math.round(durationSeconds / 60.0), // convert to minutes, rounded
-                                    polyline
-                            );
+        // Check response code according to OSRM API spec
+        Object codeObj = response.get("code");
+        if (codeObj != null && !"Ok".equals(codeObj.toString())) {
+            String message = response.containsKey("message")
+                    ? response.get("message").toString()
+                    : "Unknown error";
+            logger.warn("OSRM returned error code '{}': {}, using Haversine fallback", codeObj, message);
+            return null;
+        }
 
-        } catch (ResourceAccessException e) {
-            // Timeout or connection error
-            logger.warn("OSRM request timeout or connection error ({}), using Haversine fallback", 
-                    e.getMessage());
-            return createHaversineFallback(lat1, lon1, lat2, lon2);
-        } catch (RestClientException e) {
-            // Other HTTP errors
-            logger.warn("OSRM HTTP error ({}), using Haversine fallback", e.getMessage());
-            return createHaversineFallback(lat1, lon1, lat2, lon2);
-        } catch (Exception e) {
-            logger.warn("Unexpected error calling OSRM ({}), using Haversine fallback", e.getMessage());
-            return createHaversineFallback(lat1, lon1, lat2, lon2);
+        Object routesObj = response.get("routes");
+        if (!(routesObj instanceof List<?> routesList) || routesList.isEmpty()) {
+            logger.warn("OSRM response has empty or invalid routes array, using Haversine fallback");
+            return null;
         }
+
+        Object firstRoute = routesList.get(0);
+        if (!(firstRoute instanceof Map<?, ?>)) {
+            logger.warn("OSRM route object is not a map, using Haversine fallback");
+            return null;
         }
 
+        Map<String, Object> route = (Map<String, Object>) firstRoute;
+
+        Object distanceObj = route.get("distance");
+        Object durationObj = route.get("duration");
+
+        if (!(distanceObj instanceof Number) || !(durationObj instanceof Number)) {
+            logger.warn("OSRM route missing distance or duration, using Haversine fallback");
+            return null;
+        }
+
+        double distanceMeters = ((Number) distanceObj).doubleValue();
+        double durationSeconds = ((Number) durationObj).doubleValue();
+
+        // Extract geometry - when geometries=polyline, it's already the compact encoded form we store
+        Object geometryObj = route.get("geometry");
+        String polyline = geometryObj instanceof String encoded && !encoded.isEmpty() ? encoded : null;
+
+        return new RouteInfo(
+                distanceMeters / 1000.0, // convert to km
+                (int) Math.round(durationSeconds / 60.0), // convert to minutes, rounded
+                polyline
+        );
+    }
+
     /**
      * Create fallback RouteInfo using Haversine distance calculation
      */
     private RouteInfo createHaversineFallback(double lat1, double lon1, double lat2, double lon2) {
+        fallbacks.incrementAndGet();
         double distanceKm = DistanceUtil.haversineDistance(lat1, lon1, lat2, lon2);
         // Rough estimate: 40 km/h average speed
         int durationMinutes = (int) Math.round(distanceKm * 1.5);
@@ -163,4 +378,4 @@ public class RoutingService {
             return polyline;
         }
     }
-}
\ No newline at end of file
+}
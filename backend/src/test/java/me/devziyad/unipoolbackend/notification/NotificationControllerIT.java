@@ -5,7 +5,9 @@ import me.devziyad.unipoolbackend.common.NotificationType;
 import me.devziyad.unipoolbackend.common.Role;
 import me.devziyad.unipoolbackend.notification.dto.CreateNotificationPreferenceRequest;
 import me.devziyad.unipoolbackend.notification.dto.NotificationPreferenceResponse;
+import me.devziyad.unipoolbackend.notification.dto.NotificationResponse;
 import me.devziyad.unipoolbackend.notification.dto.UpdateNotificationPreferenceRequest;
+import me.devziyad.unipoolbackend.user.UserRepository;
 import me.devziyad.unipoolbackend.util.TestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.client.EntityExchangeResult;
 import org.springframework.test.web.servlet.client.RestTestClient;
 
 import java.time.Instant;
@@ -28,8 +31,14 @@ public class NotificationControllerIT {
     @Autowired
     private RestTestClient restClient;
 
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private UserRepository userRepository;
 
     private String userToken;
+    private Long userId;
     private String otherUserToken;
     private ObjectMapper objectMapper;
 
@@ -38,13 +47,15 @@ public class NotificationControllerIT {
         objectMapper = TestUtils.getObjectMapper();
         
         // Create a user for testing
-        userToken = TestUtils.registerAndGetToken(
+        TestUtils.RegistrationResult user = TestUtils.registerAndGetResult(
                 restClient,
                 "testuser@example.com",
                 "testpass123!",
                 "Test User",
                 Role.RIDER
         );
+        userToken = user.getToken();
+        userId = userRepository.findByEmail(user.getEmail()).orElseThrow().getId();
 
         // Create another user for testing access control
         otherUserToken = TestUtils.registerAndGetToken(
@@ -314,6 +325,102 @@ public class NotificationControllerIT {
                 .isNotFound();
     }
 
+    @Test
+    void shouldPageThroughNotificationsWithTheCursor() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            notificationService.createNotification(userId, "Notification " + i, "Body " + i, NotificationType.RIDE_REMINDER);
+        }
+
+        java.util.List<String> titles = new java.util.ArrayList<>();
+        java.util.List<Integer> pageSizes = new java.util.ArrayList<>();
+        String cursor = null;
+        do {
+            EntityExchangeResult<byte[]> result = restClient
+                    .get()
+                    .uri("/api/notifications/me?limit=2" + (cursor == null ? "" : "&cursor=" + cursor))
+                    .header("Authorization", "Bearer " + userToken)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody()
+                    .returnResult();
+            java.util.List<NotificationResponse> page = readNotifications(result.getResponseBody());
+            pageSizes.add(page.size());
+            page.forEach(notification -> titles.add(notification.getTitle()));
+            cursor = result.getResponseHeaders().getFirst("X-Next-Cursor");
+        } while (cursor != null);
+
+        // Newest first, every notification exactly once, and no cursor after the last page
+        assertEquals(java.util.List.of(2, 2, 1), pageSizes);
+        assertEquals(java.util.List.of("Notification 5", "Notification 4", "Notification 3", "Notification 2",
+                "Notification 1"), titles);
+    }
+
+    @Test
+    void shouldRejectAnInvalidCursor() {
+        restClient
+                .get()
+                .uri("/api/notifications/me?cursor=not-a-cursor")
+                .header("Authorization", "Bearer " + userToken)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void shouldMarkAllNotificationsAsRead() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            notificationService.createNotification(userId, "Notification " + i, "Body " + i, NotificationType.RIDE_REMINDER);
+        }
+        assertEquals(3L, unreadCount());
+
+        restClient
+                .post()
+                .uri("/api/notifications/me/read-all")
+                .header("Authorization", "Bearer " + userToken)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        assertEquals(0L, unreadCount());
+        byte[] unread = restClient
+                .get()
+                .uri("/api/notifications/me/unread")
+                .header("Authorization", "Bearer " + userToken)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+        assertTrue(readNotifications(unread).isEmpty());
+
+        // A notification after the bulk read is counted afresh
+        notificationService.createNotification(userId, "Later", "Later body", NotificationType.RIDE_REMINDER);
+        assertEquals(1L, unreadCount());
+    }
+
+    private long unreadCount() throws Exception {
+        byte[] responseBytes = restClient
+                .get()
+                .uri("/api/notifications/me/unread-count")
+                .header("Authorization", "Bearer " + userToken)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+        return objectMapper.readTree(new String(responseBytes)).get("count").asLong();
+    }
+
+    private java.util.List<NotificationResponse> readNotifications(byte[] responseBytes) throws Exception {
+        return objectMapper.readValue(
+                new String(responseBytes),
+                objectMapper.getTypeFactory().constructCollectionType(java.util.List.class, NotificationResponse.class)
+        );
+    }
+
     private NotificationPreferenceResponse createPreference(NotificationType type, String customText) throws Exception {
         CreateNotificationPreferenceRequest request = new CreateNotificationPreferenceRequest();
         request.setType(type);
@@ -0,0 +1,193 @@
+package me.devziyad.unipoolbackend.notification;
+
+import me.devziyad.unipoolbackend.common.NotificationType;
+import me.devziyad.unipoolbackend.common.Role;
+import me.devziyad.unipoolbackend.user.UserRepository;
+import me.devziyad.unipoolbackend.util.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.client.RestTestClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NotificationDispatcher end to end: events are queued only when the publishing transaction commits, written
+ * by the background writer, coalesced into digest rows, and counted on the unread badge.
+ */
+@AutoConfigureRestTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@org.springframework.test.context.ActiveProfiles("test")
+public class NotificationDispatcherIT {
+
+    private static final long WRITER_TIMEOUT_MS = 5000;
+
+    @Autowired
+    private RestTestClient restClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationDispatcher dispatcher;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        TestUtils.RegistrationResult user = TestUtils.registerAndGetResult(
+                restClient, "notified@example.com", "notified123", "Notified User", Role.RIDER);
+        userId = userRepository.findByEmail(user.getEmail()).orElseThrow().getId();
+        // Load the badge count so the writer's adjustments are applied to it
+        assertThat(unreadCounter.get(userId)).isZero();
+    }
+
+    @Test
+    void shouldOnlyWriteEventsFromCommittedTransactions() {
+        transactionTemplate.executeWithoutResult(status -> {
+            dispatcher.publish(event("Rolled back"));
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> dispatcher.publish(event("Committed")));
+
+        // One writer drains the queue in order, so the rolled back event would have landed first
+        await(() -> rowCount() == 1);
+        assertThat(titles()).containsExactly("Committed");
+        assertThat(unreadCounter.get(userId)).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldCoalesceGroupedEventsIntoOneDigestRow() {
+        transactionTemplate.executeWithoutResult(status -> dispatcher.publishAll(List.of(
+                bookingRequest("Alice"), bookingRequest("Bob"), bookingRequest("Carol"))));
+
+        await(() -> groupCounts().equals(List.of(3)));
+        assertThat(titles()).containsExactly("3 new booking requests");
+        assertThat(unreadCounter.get(userId)).isEqualTo(1L);
+        Timestamp createdAt = digestTime("created_at");
+
+        // A later event bumps the open digest in place; the badge already counts it
+        dispatcher.publish(bookingRequest("Dave"));
+
+        await(() -> groupCounts().equals(List.of(4)));
+        assertThat(titles()).containsExactly("4 new booking requests");
+        assertThat(unreadCounter.get(userId)).isEqualTo(1L);
+        // Feed cursors and the digest window are anchored on created_at, so only updated_at moves
+        assertThat(digestTime("created_at")).isEqualTo(createdAt);
+        assertThat(digestTime("updated_at").after(createdAt)).isTrue();
+    }
+
+    @Test
+    void shouldStartANewDigestOnceTheOpenOneIsRead() {
+        dispatcher.publish(bookingRequest("Alice"));
+        await(() -> rowCount() == 1);
+        Long digestId = jdbcTemplate.queryForObject(
+                "SELECT id FROM notifications WHERE user_id = ?", Long.class, userId);
+        notificationService.markAsRead(digestId, userId);
+        assertThat(unreadCounter.get(userId)).isZero();
+
+        dispatcher.publish(bookingRequest("Bob"));
+
+        await(() -> rowCount() == 2);
+        assertThat(groupCounts()).containsExactly(1, 1);
+        assertThat(titles()).containsExactly("New booking request", "New booking request");
+        assertThat(unreadCounter.get(userId)).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldWriteTheRestOfABatchWhenOneRowFails() {
+        long failedBefore = (Long) dispatcher.getStats().get("failed");
+
+        // No such user: the batch insert fails on the foreign key and is retried row by row
+        dispatcher.publishAll(List.of(event("First"),
+                new NotificationEvent(Long.MAX_VALUE, NotificationType.RIDE_REMINDER, "Orphan", "Orphan", Instant.now()),
+                event("Second")));
+
+        await(() -> rowCount() == 2 && (Long) dispatcher.getStats().get("failed") == failedBefore + 1);
+        assertThat(titles()).containsExactlyInAnyOrder("First", "Second");
+        assertThat(unreadCounter.get(userId)).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldKeepCoalescingWhenABatchIsRetriedRowByRow() {
+        long failedBefore = (Long) dispatcher.getStats().get("failed");
+
+        dispatcher.publishAll(List.of(bookingRequest("Alice"),
+                new NotificationEvent(Long.MAX_VALUE, NotificationType.RIDE_REMINDER, "Orphan", "Orphan", Instant.now()),
+                bookingRequest("Bob"), bookingRequest("Carol")));
+
+        // The retried events still land in one digest row rather than a row each
+        await(() -> (Long) dispatcher.getStats().get("failed") == failedBefore + 1 && groupCounts().equals(List.of(3)));
+        assertThat(titles()).containsExactly("3 new booking requests");
+        assertThat(unreadCounter.get(userId)).isEqualTo(1L);
+    }
+
+    private NotificationEvent event(String title) {
+        return new NotificationEvent(userId, NotificationType.RIDE_REMINDER, title, title + " body", Instant.now());
+    }
+
+    private NotificationEvent bookingRequest(String rider) {
+        return NotificationEvent.grouped(userId, NotificationType.BOOKING_CONFIRMED, "New booking request",
+                rider + " requested a seat", "ride:1:requests",
+                NotificationEvent.COUNT + " new booking requests", "Riders are waiting for your answer");
+    }
+
+    private int rowCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notifications WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private List<String> titles() {
+        return jdbcTemplate.queryForList("SELECT title FROM notifications WHERE user_id = ? ORDER BY id",
+                String.class, userId);
+    }
+
+    private List<Integer> groupCounts() {
+        return jdbcTemplate.queryForList("SELECT group_count FROM notifications WHERE user_id = ? ORDER BY id",
+                Integer.class, userId);
+    }
+
+    private Timestamp digestTime(String column) {
+        return jdbcTemplate.queryForObject("SELECT " + column + " FROM notifications WHERE user_id = ?",
+                Timestamp.class, userId);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + WRITER_TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("notification writer timed out").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package me.devziyad.unipoolbackend.ride;
+
+import me.devziyad.unipoolbackend.booking.Booking;
+import me.devziyad.unipoolbackend.booking.BookingRepository;
+import me.devziyad.unipoolbackend.common.BookingStatus;
+import me.devziyad.unipoolbackend.common.PaymentMethod;
+import me.devziyad.unipoolbackend.common.PaymentStatus;
+import me.devziyad.unipoolbackend.common.Role;
+import me.devziyad.unipoolbackend.payment.Payment;
+import me.devziyad.unipoolbackend.payment.PaymentRefundJob;
+import me.devziyad.unipoolbackend.payment.PaymentRepository;
+import me.devziyad.unipoolbackend.user.User;
+import me.devziyad.unipoolbackend.user.UserRepository;
+import me.devziyad.unipoolbackend.util.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.client.RestTestClient;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cancelling a ride cascades to its bookings and queues refunds that PaymentRefundJob settles.
+ * The job's schedule is pushed out in the test profile, so it only runs when called here.
+ */
+@AutoConfigureRestTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@org.springframework.test.context.ActiveProfiles("test")
+public class RideCancellationIT {
+
+    @Autowired
+    private RestTestClient restClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentRefundJob paymentRefundJob;
+
+    private String driverToken;
+    private Long rideId;
+    private Long driverId;
+    private Long walletRiderId;
+    private Long cashRiderId;
+    private Long pendingBookingId;
+    private Long walletBookingId;
+    private Long cashBookingId;
+    private Long walletPaymentId;
+    private Long cashPaymentId;
+
+    @BeforeEach
+    void setUp() {
+        TestUtils.RegistrationResult driverResult = TestUtils.registerAndGetResult(
+                restClient, "driver@example.com", "driver123", "Driver", Role.DRIVER);
+        driverToken = driverResult.getToken();
+        TestUtils.verifyDriverByEmailDirectly(userRepository, driverResult.getEmail());
+
+        me.devziyad.unipoolbackend.vehicle.dto.VehicleResponse vehicle = TestUtils.createVehicle(restClient, driverToken);
+        me.devziyad.unipoolbackend.location.dto.LocationResponse pickup = TestUtils.createLocation(restClient, driverToken, "Pickup", 40.7128, -74.0060);
+        me.devziyad.unipoolbackend.location.dto.LocationResponse destination = TestUtils.createLocation(restClient, driverToken, "Destination", 40.7589, -73.9851);
+        rideId = TestUtils.createRide(restClient, driverToken, vehicle.getId(), pickup.getId(), destination.getId()).getRideId();
+
+        pendingBookingId = bookRide("pending@example.com");
+        walletBookingId = bookRide("wallet@example.com");
+        cashBookingId = bookRide("cash@example.com");
+        setBookingStatus(walletBookingId, BookingStatus.CONFIRMED);
+        setBookingStatus(cashBookingId, BookingStatus.CONFIRMED);
+
+        // Settled payments with known amounts, and known starting balances
+        User driver = userRepository.findByEmail(driverResult.getEmail()).orElseThrow();
+        driverId = driver.getId();
+        Booking walletBooking = bookingRepository.findById(walletBookingId).orElseThrow();
+        Booking cashBooking = bookingRepository.findById(cashBookingId).orElseThrow();
+        walletRiderId = walletBooking.getRider().getId();
+        cashRiderId = cashBooking.getRider().getId();
+        walletPaymentId = payment(walletBooking, walletRiderId, driver, PaymentMethod.WALLET, PaymentStatus.SETTLED,
+                "20.00", "18.00");
+        cashPaymentId = payment(cashBooking, cashRiderId, driver, PaymentMethod.CASH, PaymentStatus.SETTLED,
+                "10.00", "9.00");
+        setWalletBalance(driverId, "100.00");
+        setWalletBalance(walletRiderId, "5.00");
+        setWalletBalance(cashRiderId, "0.00");
+    }
+
+    @Test
+    void shouldCancelBookingsAndQueueRefunds() {
+        cancelRide();
+
+        assertThat(bookingStatus(pendingBookingId)).isEqualTo(BookingStatus.CANCELLED);
+        assertThat(bookingStatus(walletBookingId)).isEqualTo(BookingStatus.CANCELLED);
+        assertThat(bookingStatus(cashBookingId)).isEqualTo(BookingStatus.CANCELLED);
+        assertThat(bookingRepository.findById(walletBookingId).orElseThrow().getCancelledAt()).isNotNull();
+
+        // Flagged while the bookings were still open, but no money moves until the job runs
+        Payment walletPayment = paymentRepository.findById(walletPaymentId).orElseThrow();
+        assertThat(walletPayment.getStatus()).isEqualTo(PaymentStatus.SETTLED);
+        assertThat(walletPayment.getRefundRequestedAt()).isNotNull();
+        assertThat(paymentRepository.findById(cashPaymentId).orElseThrow().getRefundRequestedAt()).isNotNull();
+        assertThat(walletBalance(driverId)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void shouldSettleQueuedRefundsOnce() {
+        cancelRide();
+
+        paymentRefundJob.run();
+
+        assertThat(paymentRepository.findById(walletPaymentId).orElseThrow().getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(paymentRepository.findById(cashPaymentId).orElseThrow().getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        // Wallet payments go back to the payer; cash is settled outside the app
+        assertThat(walletBalance(walletRiderId)).isEqualByComparingTo("25.00");
+        assertThat(walletBalance(cashRiderId)).isEqualByComparingTo("0.00");
+        // Both payments' earnings netted into one change for the driver
+        assertThat(walletBalance(driverId)).isEqualByComparingTo("73.00");
+
+        // Already refunded payments are not claimed again
+        paymentRefundJob.run();
+        assertThat(walletBalance(walletRiderId)).isEqualByComparingTo("25.00");
+        assertThat(walletBalance(driverId)).isEqualByComparingTo("73.00");
+    }
+
+    @Test
+    void shouldNotRefundAPaymentAlreadyRefundedByHand() {
+        cancelRide();
+
+        restClient
+                .post()
+                .uri("/api/payments/" + walletPaymentId + "/refund")
+                .header("Authorization", "Bearer " + driverToken)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        paymentRefundJob.run();
+
+        assertThat(walletBalance(walletRiderId)).isEqualByComparingTo("25.00");
+        assertThat(walletBalance(driverId)).isEqualByComparingTo("73.00");
+    }
+
+    @Test
+    void shouldFailPaymentsStillBeingProcessedAndReturnWalletHolds() {
+        // Initiated by wallet: the payer's balance was already debited when the payment was created
+        Booking pendingBooking = bookingRepository.findById(pendingBookingId).orElseThrow();
+        Long pendingRiderId = pendingBooking.getRider().getId();
+        Long initiatedPaymentId = payment(pendingBooking, pendingRiderId, userRepository.findById(driverId).orElseThrow(),
+                PaymentMethod.WALLET, PaymentStatus.INITIATED, "15.00", "13.50");
+        setWalletBalance(pendingRiderId, "0.00");
+
+        cancelRide();
+
+        Payment failed = paymentRepository.findById(initiatedPaymentId).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(failed.getRefundRequestedAt()).isNotNull();
+        // Processing can no longer settle it and pay the driver
+        restClient
+                .post()
+                .uri("/api/payments/" + initiatedPaymentId + "/process")
+                .header("Authorization", "Bearer " + driverToken)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+
+        paymentRefundJob.run();
+
+        assertThat(paymentRepository.findById(initiatedPaymentId).orElseThrow().getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(walletBalance(pendingRiderId)).isEqualByComparingTo("15.00");
+        // The driver never received these earnings, so only the settled payments are taken back
+        assertThat(walletBalance(driverId)).isEqualByComparingTo("73.00");
+    }
+
+    private void cancelRide() {
+        restClient
+                .delete()
+                .uri("/api/rides/" + rideId)
+                .header("Authorization", "Bearer " + driverToken)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    private Long bookRide(String email) {
+        TestUtils.RegistrationResult rider = TestUtils.registerAndGetResult(restClient, email, "rider123", "Rider", Role.RIDER);
+        TestUtils.verifyUniversityIdByEmailDirectly(userRepository, rider.getEmail());
+        return TestUtils.createBooking(restClient, rider.getToken(), rideId, 1);
+    }
+
+    private void setBookingStatus(Long bookingId, BookingStatus status) {
+        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+        booking.setStatus(status);
+        bookingRepository.save(booking);
+    }
+
+    private BookingStatus bookingStatus(Long bookingId) {
+        return bookingRepository.findById(bookingId).orElseThrow().getStatus();
+    }
+
+    private Long payment(Booking booking, Long payerId, User driver, PaymentMethod method, PaymentStatus status,
+                         String amount, String driverEarnings) {
+        BigDecimal total = new BigDecimal(amount);
+        BigDecimal earnings = new BigDecimal(driverEarnings);
+        return paymentRepository.save(Payment.builder()
+                .booking(booking)
+                .payer(userRepository.findById(payerId).orElseThrow())
+                .driver(driver)
+                .amount(total)
+                .platformFee(total.subtract(earnings))
+                .driverEarnings(earnings)
+                .method(method)
+                .status(status)
+                .transactionRef("TXN-" + UUID.randomUUID())
+                .build()).getId();
+    }
+
+    private void setWalletBalance(Long userId, String balance) {
+        User user = userRepository.findById(userId).orElseThrow();
+        user.setWalletBalance(new BigDecimal(balance));
+        userRepository.save(user);
+    }
+
+    private BigDecimal walletBalance(Long userId) {
+        return userRepository.findById(userId).orElseThrow().getWalletBalance();
+    }
+}
@@ -0,0 +1,123 @@
+package me.devziyad.unipoolbackend.tracking;
+
+import me.devziyad.unipoolbackend.util.GeoGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GeofenceEngine transitions for hand-placed fences (no Spring context or entities required).
+ */
+public class GeofenceEngineTest {
+
+    private static final double CELL_SIZE_METERS = 500;
+    private static final double RADIUS_METERS = 150;
+    // Haversine uses a 6371 km earth radius
+    private static final double METERS_PER_DEGREE_LAT = 6_371_000 * Math.PI / 180;
+    private static final double LAT = 26.2235;
+    private static final double LON = 50.5876;
+
+    private final GeofenceEngine engine = new GeofenceEngine(CELL_SIZE_METERS, RADIUS_METERS);
+
+    @Test
+    void shouldEnterAndExitWhenCrossingTheBoundary() {
+        Geofence pickup = fence(1L, GeofenceType.PICKUP, LAT, LON);
+        engine.register(1L, List.of(pickup));
+
+        assertThat(engine.evaluate(1L, north(LAT, 300), LON)).isEmpty();
+
+        List<GeofenceEvent> entered = engine.evaluate(1L, north(LAT, 100), LON);
+        assertThat(entered).hasSize(1);
+        assertThat(entered.get(0).getFence()).isSameAs(pickup);
+        assertThat(entered.get(0).getTransition()).isEqualTo(GeofenceEvent.Transition.ENTER);
+
+        List<GeofenceEvent> exited = engine.evaluate(1L, north(LAT, 300), LON);
+        assertThat(exited).hasSize(1);
+        assertThat(exited.get(0).getTransition()).isEqualTo(GeofenceEvent.Transition.EXIT);
+    }
+
+    @Test
+    void shouldNotRepeatEnterForPingsInsideTheFence() {
+        engine.register(1L, List.of(fence(1L, GeofenceType.DESTINATION, LAT, LON)));
+
+        assertThat(engine.evaluate(1L, north(LAT, 50), LON)).hasSize(1);
+        assertThat(engine.evaluate(1L, north(LAT, 20), LON)).isEmpty();
+        assertThat(engine.evaluate(1L, LAT, LON)).isEmpty();
+    }
+
+    @Test
+    void shouldNotFireAgainAfterLeaving() {
+        engine.register(1L, List.of(fence(1L, GeofenceType.PICKUP, LAT, LON)));
+
+        assertThat(engine.evaluate(1L, LAT, LON)).hasSize(1);
+        assertThat(engine.evaluate(1L, north(LAT, 300), LON)).hasSize(1);
+        assertThat(engine.evaluate(1L, LAT, LON)).isEmpty();
+        assertThat(engine.evaluate(1L, north(LAT, 300), LON)).isEmpty();
+    }
+
+    @Test
+    void shouldEnterFenceHashedFromAnAdjacentCell() {
+        GeoGrid grid = new GeoGrid(CELL_SIZE_METERS);
+        double boundary = (grid.latCell(LAT) + 1) * grid.getCellSizeDegrees();
+        double fenceLat = north(boundary, -50);
+        double pingLat = north(boundary, 50);
+        assertThat(grid.cellOf(pingLat, LON)).isNotEqualTo(grid.cellOf(fenceLat, LON));
+
+        engine.register(1L, List.of(fence(1L, GeofenceType.DROPOFF, fenceLat, LON)));
+
+        List<GeofenceEvent> events = engine.evaluate(1L, pingLat, LON);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getTransition()).isEqualTo(GeofenceEvent.Transition.ENTER);
+    }
+
+    @Test
+    void shouldOnlyMatchFencesOfTheEvaluatedRide() {
+        engine.register(1L, List.of(fence(1L, GeofenceType.PICKUP, LAT, LON)));
+        engine.register(2L, List.of(fence(2L, GeofenceType.PICKUP, north(LAT, 1000), LON)));
+
+        assertThat(engine.evaluate(2L, LAT, LON)).isEmpty();
+        assertThat(engine.evaluate(3L, LAT, LON)).isEmpty();
+        assertThat(engine.evaluate(1L, LAT, LON)).hasSize(1);
+    }
+
+    @Test
+    void shouldRestoreFenceStateFromTheTrailWithoutFiring() {
+        Geofence pickup = fence(1L, GeofenceType.PICKUP, LAT, LON);
+        Geofence destination = fence(1L, GeofenceType.DESTINATION, north(LAT, 2000), LON);
+        engine.register(1L, List.of(pickup, destination));
+
+        // Passed the pickup, now parked inside the destination fence
+        engine.restore(1L, List.of(new double[]{LAT, LON}, new double[]{north(LAT, 1000), LON},
+                new double[]{north(LAT, 2000), LON}));
+
+        assertThat(engine.evaluate(1L, north(LAT, 1950), LON)).isEmpty();
+        // Leaving the destination exits it; the pickup already fired, so coming back does not enter it again
+        List<GeofenceEvent> events = engine.evaluate(1L, LAT, LON);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getFence()).isSameAs(destination);
+        assertThat(events.get(0).getTransition()).isEqualTo(GeofenceEvent.Transition.EXIT);
+    }
+
+    @Test
+    void shouldDropFencesWhenUnregistered() {
+        engine.register(1L, List.of(fence(1L, GeofenceType.PICKUP, LAT, LON),
+                fence(1L, GeofenceType.DESTINATION, north(LAT, 2000), LON)));
+        assertThat(engine.getActiveFenceCount()).isEqualTo(2);
+
+        engine.unregisterRide(1L);
+
+        assertThat(engine.hasFences(1L)).isFalse();
+        assertThat(engine.getActiveFenceCount()).isZero();
+        assertThat(engine.evaluate(1L, LAT, LON)).isEmpty();
+    }
+
+    private static Geofence fence(Long rideId, GeofenceType type, double lat, double lon) {
+        return new Geofence(rideId, null, 10L, type, lat, lon, RADIUS_METERS, type.name());
+    }
+
+    private static double north(double lat, double meters) {
+        return lat + meters / METERS_PER_DEGREE_LAT;
+    }
+}
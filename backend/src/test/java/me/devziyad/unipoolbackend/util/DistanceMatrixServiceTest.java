@@ -0,0 +1,99 @@
+package me.devziyad.unipoolbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The per-cell fallback chain: local road graph, then OSRM /table, then the straight-line estimate.
+ * Both road sources are stubbed, so no graph file or network access is needed.
+ */
+public class DistanceMatrixServiceTest {
+
+    private static final double[] ORIGIN_LATS = {26.2235};
+    private static final double[] ORIGIN_LONS = {50.5876};
+    // The second destination is off the local graph
+    private static final double[] DEST_LATS = {26.2300, 26.1000};
+    private static final double[] DEST_LONS = {50.6000, 50.4000};
+
+    private final AtomicInteger localCalls = new AtomicInteger();
+    private final AtomicInteger tableCalls = new AtomicInteger();
+
+    @Test
+    void shouldFillUnreachableLocalCellsFromOsrm() {
+        DistanceMatrixService service = newService(new double[][]{{400, 5000}, {4000, 60000}});
+
+        DistanceMatrixService.Matrix matrix = compute(service);
+
+        assertThat(matrix.getDurationsSeconds()[0][0]).isEqualTo(300.0);
+        assertThat(matrix.getDistancesMeters()[0][0]).isEqualTo(3000.0);
+        assertThat(matrix.getDurationsSeconds()[0][1]).isEqualTo(5000.0);
+        assertThat(matrix.getDistancesMeters()[0][1]).isEqualTo(60000.0);
+        assertThat(matrix.getSource()).isEqualTo("mixed");
+
+        // Every cell came from a road source, so the row is cached
+        compute(service);
+        assertThat(localCalls.get()).isEqualTo(1);
+        assertThat(tableCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEstimateCellsNoRoadSourceCanRouteWithoutCachingTheRow() {
+        DistanceMatrixService service = newService(null);
+
+        DistanceMatrixService.Matrix matrix = compute(service);
+
+        double[][] estimate = DistanceMatrixService.haversineRow(ORIGIN_LATS[0], ORIGIN_LONS[0], DEST_LATS, DEST_LONS);
+        assertThat(matrix.getDurationsSeconds()[0][0]).isEqualTo(300.0);
+        assertThat(matrix.getDurationsSeconds()[0][1]).isEqualTo(estimate[0][1]);
+        assertThat(matrix.getDistancesMeters()[0][1]).isEqualTo(estimate[1][1]);
+        assertThat(matrix.getSource()).isEqualTo("mixed");
+
+        // The straight-line cell is retried against the road network next time
+        compute(service);
+        assertThat(localCalls.get()).isEqualTo(2);
+        assertThat(tableCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldEstimateCellsOsrmReturnsNullFor() {
+        DistanceMatrixService service = newService(new double[][]{{400, Double.NaN}, {4000, Double.NaN}});
+
+        DistanceMatrixService.Matrix matrix = compute(service);
+
+        assertThat(Double.isNaN(matrix.getDurationsSeconds()[0][1])).isFalse();
+        assertThat(Double.isNaN(matrix.getDistancesMeters()[0][1])).isFalse();
+        assertThat(matrix.getDistancesMeters()[0][1]).isGreaterThan(0.0);
+    }
+
+    private DistanceMatrixService.Matrix compute(DistanceMatrixService service) {
+        return service.compute(ORIGIN_LATS, ORIGIN_LONS, DEST_LATS, DEST_LONS);
+    }
+
+    // osrmRow is {seconds, meters} for the single origin, or null when OSRM is unavailable
+    private DistanceMatrixService newService(double[][] osrmRow) {
+        LocalGraphRoutingEngine localEngine = new LocalGraphRoutingEngine("", 500, 250) {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public double[][] oneToMany(double lat, double lon, double[] destLats, double[] destLons) {
+                localCalls.incrementAndGet();
+                return new double[][]{{300, Double.NaN}, {3000, Double.NaN}};
+            }
+        };
+        RoutingService routingService = new RoutingService(new RouteCache(50, 1000, 24, ""), localEngine, "osrm",
+                "http://127.0.0.1:1", 1000, 2000, 16, 5, 60_000) {
+            @Override
+            public double[][][] getTable(double[] originLats, double[] originLons, double[] destLats, double[] destLons) {
+                tableCalls.incrementAndGet();
+                return osrmRow == null ? null : new double[][][]{{osrmRow[0]}, {osrmRow[1]}};
+            }
+        };
+        return new DistanceMatrixService(routingService, localEngine, 50, 100, 60, 100);
+    }
+}
@@ -0,0 +1,91 @@
+package me.devziyad.unipoolbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GazetteerIndex prefix and typo-tolerant search over a handful of places.
+ */
+public class GazetteerIndexTest {
+
+    private final GazetteerIndex index = GazetteerIndex.build(List.of(
+            place("Seef Mall", 30),
+            place("City Centre Mall", 50),
+            place("University of Bahrain", 40),
+            place("Bahrain International Airport", 60),
+            place("Bab Al Bahrain", 20),
+            place("Manama Souq", 25),
+            place("Isa Town Gate", 10)), 8);
+
+    @Test
+    void shouldMatchAWordInsideTheName() {
+        List<GazetteerIndex.Match> matches = index.search("mall", 10);
+
+        assertThat(names(matches)).containsExactly("City Centre Mall", "Seef Mall");
+        assertThat(matches.get(0).getEdits()).isZero();
+    }
+
+    @Test
+    void shouldOrderPrefixMatchesByWeightAndListEachPlaceOnce() {
+        // "Bab Al Bahrain" is reachable from two of its words
+        assertThat(names(index.search("ba", 10)))
+                .containsExactly("Bahrain International Airport", "University of Bahrain", "Bab Al Bahrain");
+        assertThat(names(index.search("ba", 2)))
+                .containsExactly("Bahrain International Airport", "University of Bahrain");
+    }
+
+    @Test
+    void shouldNormalizeCaseAndPunctuation() {
+        assertThat(GazetteerIndex.normalize("  Seef-Mall ")).isEqualTo("seef mall");
+        assertThat(names(index.search("SEEF  mall", 10))).containsExactly("Seef Mall");
+    }
+
+    @Test
+    void shouldNotTolerateTyposBelowFourCharacters() {
+        assertThat(index.search("sef", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldTolerateOneEditFromFourCharacters() {
+        List<GazetteerIndex.Match> substituted = index.search("seff", 10);
+        assertThat(names(substituted)).containsExactly("Seef Mall");
+        assertThat(substituted.get(0).getEdits()).isEqualTo(1);
+
+        // Adjacent transposition counts as one edit
+        assertThat(names(index.search("sefe", 10))).containsExactly("Seef Mall");
+        // Two edits are too many below eight characters
+        assertThat(index.search("zeff", 10)).isEmpty();
+        assertThat(index.search("unverst", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldTolerateTwoEditsFromEightCharacters() {
+        List<GazetteerIndex.Match> matches = index.search("unversty", 10);
+
+        assertThat(names(matches)).containsExactly("University of Bahrain");
+        assertThat(matches.get(0).getEdits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRankFuzzyMatchesAfterPrefixMatchesByEditsThenWeight() {
+        // Six characters allow one edit: "manana" -> "manama"
+        assertThat(names(index.search("manana", 10))).containsExactly("Manama Souq");
+
+        List<GazetteerIndex.Match> matches = index.search("mala", 10);
+        // No name has a word starting with "mala"; both malls are one edit away, heavier first
+        assertThat(names(matches)).containsExactly("City Centre Mall", "Seef Mall", "Manama Souq");
+        assertThat(matches.get(0).getEdits()).isEqualTo(1);
+        assertThat(matches.get(2).getEdits()).isEqualTo(1);
+    }
+
+    private static GazetteerIndex.Place place(String name, int weight) {
+        return new GazetteerIndex.Place(name, name + ", Bahrain", 26.2, 50.6, weight);
+    }
+
+    private static List<String> names(List<GazetteerIndex.Match> matches) {
+        return matches.stream().map(m -> m.getPlace().getName()).toList();
+    }
+}
@@ -0,0 +1,61 @@
+package me.devziyad.unipoolbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * GeoGrid cell addressing and radius coverage.
+ */
+public class GeoGridTest {
+
+    private final GeoGrid grid = new GeoGrid(500);
+
+    @Test
+    void shouldRoundTripNegativeCellIndices() {
+        long key = GeoGrid.key(-7, -123456);
+
+        assertThat(GeoGrid.latCellOf(key)).isEqualTo(-7);
+        assertThat(GeoGrid.lonCellOf(key)).isEqualTo(-123456);
+        assertThat(GeoGrid.key(1, -1)).isNotEqualTo(GeoGrid.key(-1, 1));
+    }
+
+    @Test
+    void shouldPlacePointsOnEitherSideOfABoundaryInAdjacentCells() {
+        double boundary = 5240 * grid.getCellSizeDegrees();
+
+        assertThat(grid.latCell(boundary + 1e-9)).isEqualTo(5240);
+        assertThat(grid.latCell(boundary - 1e-9)).isEqualTo(5239);
+        assertThat(grid.latCell(-1e-9)).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldVisitEveryCellACircleCanReach() {
+        double lat = 26.2235;
+        double lon = 50.5876;
+        List<Long> visited = new ArrayList<>();
+        grid.forEachCellInRadius(lat, lon, 150, visited::add);
+
+        // 150 m reaches at most one cell away from the center in each direction
+        assertThat(visited).hasSize(9);
+        assertThat(visited).contains(grid.cellOf(lat, lon),
+                GeoGrid.key(grid.latCell(lat) - 1, grid.lonCell(lon) - 1),
+                GeoGrid.key(grid.latCell(lat) + 1, grid.lonCell(lon) + 1));
+    }
+
+    @Test
+    void shouldWidenLongitudeCoverageAwayFromTheEquator() {
+        assertThat(grid.latCellRadius(1200)).isEqualTo(3);
+        assertThat(grid.lonCellRadius(0, 1200)).isEqualTo(3);
+        assertThat(grid.lonCellRadius(60, 1200)).isEqualTo(5);
+    }
+
+    @Test
+    void shouldRejectNonPositiveCellSize() {
+        assertThatThrownBy(() -> new GeoGrid(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,150 @@
+package me.devziyad.unipoolbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HierarchicalTimingWheel driven by explicit timestamps (a fake clock), so every tick is deterministic.
+ * With 10 ms ticks, 4 slots and 3 levels, levels span 1, 4 and 16 ticks and anything 64 ticks out overflows.
+ */
+public class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final long START = 1_000_000;
+
+    private final HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(TICK, 4, 3, START);
+
+    @Test
+    void shouldFireExactlyOnLevelBoundaries() {
+        long[] ticks = {1, 3, 4, 5, 15, 16, 17, 63};
+        for (long tick : ticks) {
+            wheel.schedule("t" + tick, "t" + tick, START + tick * TICK);
+        }
+
+        Map<String, Long> firedAt = runTicks(70);
+
+        for (long tick : ticks) {
+            assertThat(firedAt.get("t" + tick)).isEqualTo(tick);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldHoldDeadlinesPastTheTopLevelInOverflow() {
+        wheel.schedule("edge", "edge", START + 64 * TICK);
+        wheel.schedule("far", "far", START + 200 * TICK);
+        wheel.schedule("farther", "farther", START + 1000 * TICK);
+        assertThat(wheel.getStats().get("overflow")).isEqualTo(3);
+
+        Map<String, Long> firedAt = runTicks(1001);
+
+        assertThat(firedAt.get("edge")).isEqualTo(64L);
+        assertThat(firedAt.get("far")).isEqualTo(200L);
+        assertThat(firedAt.get("farther")).isEqualTo(1000L);
+    }
+
+    @Test
+    void shouldRoundDeadlinesUpToTheNextTick() {
+        wheel.schedule("between", "between", START + 41);
+
+        assertThat(wheel.advance(START + 49)).isEmpty();
+        assertThat(wheel.advance(START + 50)).containsExactly("between");
+    }
+
+    @Test
+    void shouldReplaceTheTimerWhenAKeyIsRescheduled() {
+        wheel.schedule("ride", "first", START + 50 * TICK);
+        wheel.schedule("ride", "later", START + 120 * TICK);
+        wheel.schedule("other", "first", START + 100 * TICK);
+        wheel.schedule("other", "sooner", START + 30 * TICK);
+
+        assertThat(wheel.size()).isEqualTo(2);
+        assertThat(wheel.advance(START + 99 * TICK)).containsExactly("sooner");
+        assertThat(wheel.advance(START + 119 * TICK)).isEmpty();
+        assertThat(wheel.advance(START + 120 * TICK)).containsExactly("later");
+        assertThat(wheel.advance(START + 500 * TICK)).isEmpty();
+    }
+
+    @Test
+    void shouldNeverFireACancelledKey() {
+        wheel.schedule("near", "near", START + 2 * TICK);
+        wheel.schedule("far", "far", START + 300 * TICK);
+
+        assertThat(wheel.cancel("near")).isTrue();
+        assertThat(wheel.cancel("far")).isTrue();
+        assertThat(wheel.cancel("far")).isFalse();
+        assertThat(wheel.contains("far")).isFalse();
+        assertThat(wheel.advance(START + 400 * TICK)).isEmpty();
+        assertThat(wheel.getStats().get("cancelled")).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldFireDeadlinesAlreadyPassedOnTheNextAdvance() {
+        wheel.advance(START + 10 * TICK);
+        wheel.schedule("late", "late", START + 3 * TICK);
+
+        assertThat(wheel.advance(START + 10 * TICK)).containsExactly("late");
+    }
+
+    @Test
+    void shouldNeverFireEarlyNorMissADueTick() {
+        Random random = new Random(11);
+        HierarchicalTimingWheel<Integer, Integer> randomWheel = new HierarchicalTimingWheel<>(TICK, 8, 3, START + 7);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = START + 7;
+        for (int step = 0; step < 2000; step++) {
+            // Schedule, reschedule and cancel a small key space, with deadlines in every level and past the top
+            Set<Integer> scheduledNow = new HashSet<>();
+            for (int i = 0; i < 3; i++) {
+                int key = random.nextInt(200);
+                if (random.nextInt(10) == 0) {
+                    assertThat(randomWheel.cancel(key)).isEqualTo(deadlines.remove(key) != null);
+                    scheduledNow.remove(key);
+                } else {
+                    long deadline = now - 50 + (long) (random.nextDouble() * random.nextDouble() * 60_000);
+                    randomWheel.schedule(key, key, deadline);
+                    deadlines.put(key, deadline);
+                    scheduledNow.add(key);
+                }
+            }
+            long previous = now;
+            now += random.nextInt(3 * (int) TICK);
+            for (Integer key : randomWheel.advance(now)) {
+                long deadline = deadlines.remove(key);
+                assertThat(now).isGreaterThanOrEqualTo(deadline);
+                // Fired on the first advance it was due at (timers scheduled since the last advance fire now)
+                assertThat(scheduledNow.contains(key) || previous / TICK < dueTick(deadline)).isTrue();
+            }
+            // Everything still pending is genuinely not due yet
+            for (long deadline : deadlines.values()) {
+                assertThat(now / TICK).isLessThan(dueTick(deadline));
+            }
+        }
+        assertThat(randomWheel.size()).isEqualTo(deadlines.size());
+    }
+
+    private static long dueTick(long deadline) {
+        return Math.floorDiv(deadline + TICK - 1, TICK);
+    }
+
+    // Advance one tick at a time and record the tick each value fired on
+    private Map<String, Long> runTicks(long ticks) {
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long tick = 1; tick <= ticks; tick++) {
+            List<String> fired = new ArrayList<>(wheel.advance(START + tick * TICK));
+            for (String value : fired) {
+                assertThat(firedAt.put(value, tick)).isNull();
+            }
+        }
+        return firedAt;
+    }
+}
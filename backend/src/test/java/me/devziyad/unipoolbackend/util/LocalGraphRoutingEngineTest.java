@@ -0,0 +1,261 @@
+package me.devziyad.unipoolbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bidirectional A* over small hand-built road graphs, checked against a plain Dijkstra.
+ */
+public class LocalGraphRoutingEngineTest {
+
+    private static final double LAT = 26.2235;
+    private static final double LON = 50.5876;
+    // ~330 m between neighbouring grid nodes
+    private static final double STEP = 0.003;
+
+    @Test
+    void shouldFollowOneWayEdgesAndReportUnreachableNodes() {
+        // 0 -> 1 -> 2 one way, 2 -> 0 a slow direct road back, 3 isolated
+        GraphBuilder builder = new GraphBuilder();
+        int a = builder.node(LAT, LON);
+        int b = builder.node(LAT, LON + STEP);
+        int c = builder.node(LAT, LON + 2 * STEP);
+        int isolated = builder.node(LAT + STEP, LON);
+        builder.edge(a, b, 50);
+        builder.edge(b, c, 50);
+        builder.edge(c, a, 20);
+        RoadGraph graph = builder.build();
+
+        assertThat(searchCost(graph, a, c)).isEqualTo(dijkstra(graph, a)[c]);
+        assertThat(searchPath(graph, a, c)).containsExactly(a, b, c);
+        // Against the one-way edges, the only way back is the direct road
+        assertThat(searchPath(graph, c, a)).containsExactly(c, a);
+        assertThat(searchPath(graph, b, a)).containsExactly(b, c, a);
+        assertThat(searchCost(graph, b, a)).isEqualTo(dijkstra(graph, b)[a]);
+
+        assertThat(new LocalGraphRoutingEngine.SearchState(graph.getNodeCount()).search(graph, a, isolated)).isEqualTo(-1);
+        assertThat(new LocalGraphRoutingEngine.SearchState(graph.getNodeCount()).search(graph, isolated, a)).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldPreferTheFasterRoadOverTheShorterOne() {
+        // Direct 0 -> 2 is shorter but slow; the detour through 1 is faster
+        GraphBuilder builder = new GraphBuilder();
+        int a = builder.node(LAT, LON);
+        int b = builder.node(LAT + STEP, LON + STEP);
+        int c = builder.node(LAT, LON + 2 * STEP);
+        builder.edge(a, c, 10);
+        builder.edge(a, b, 80);
+        builder.edge(b, c, 80);
+        RoadGraph graph = builder.build();
+
+        assertThat(searchPath(graph, a, c)).containsExactly(a, b, c);
+        assertThat(searchCost(graph, a, c)).isEqualTo(dijkstra(graph, a)[c]);
+    }
+
+    @Test
+    void shouldMatchDijkstraOnRandomGridsWithOneWayStreets() {
+        Random random = new Random(42);
+        for (int round = 0; round < 5; round++) {
+            RoadGraph graph = randomGrid(random, 7);
+            LocalGraphRoutingEngine.SearchState state = new LocalGraphRoutingEngine.SearchState(graph.getNodeCount());
+            for (int source = 0; source < graph.getNodeCount(); source++) {
+                double[] expected = dijkstra(graph, source);
+                for (int target = 0; target < graph.getNodeCount(); target++) {
+                    int meeting = state.search(graph, source, target);
+                    if (Double.isInfinite(expected[target])) {
+                        assertThat(meeting).isEqualTo(-1);
+                    } else {
+                        assertThat(meeting).isNotEqualTo(-1);
+                        assertThat(pathCost(graph, state.path(meeting))).isEqualTo(expected[target]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldSweepToTheSameDistancesAsDijkstra() {
+        RoadGraph graph = randomGrid(new Random(7), 6);
+        LocalGraphRoutingEngine.SearchState state = new LocalGraphRoutingEngine.SearchState(graph.getNodeCount());
+        int[] all = new int[graph.getNodeCount()];
+        Arrays.setAll(all, i -> i);
+
+        state.sweep(graph, 0, all);
+
+        double[] expected = dijkstra(graph, 0);
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            assertThat(state.reachedForward(v)).isEqualTo(!Double.isInfinite(expected[v]));
+            if (state.reachedForward(v)) {
+                assertThat(state.distF[v]).isEqualTo(expected[v]);
+            }
+        }
+    }
+
+    @Test
+    void shouldRoundTripThroughTheGraphFile() throws Exception {
+        RoadGraph graph = randomGrid(new Random(3), 4);
+        Path file = Files.createTempFile("road-graph", ".bin");
+        try {
+            graph.write(file);
+            RoadGraph loaded = RoadGraph.load(file, 250);
+
+            assertThat(loaded.getNodeCount()).isEqualTo(graph.getNodeCount());
+            assertThat(loaded.getEdgeCount()).isEqualTo(graph.getEdgeCount());
+            assertThat(Arrays.equals(loaded.targets, graph.targets)).isTrue();
+            assertThat(Arrays.equals(loaded.durationDs, graph.durationDs)).isTrue();
+            assertThat(loaded.nearestNode(LAT + STEP + 0.0001, LON + 2 * STEP, 200)).isEqualTo(4 + 2);
+            assertThat(loaded.nearestNode(LAT - 0.1, LON, 500)).isEqualTo(-1);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static double searchCost(RoadGraph graph, int source, int target) {
+        return pathCost(graph, searchPath(graph, source, target));
+    }
+
+    private static List<Integer> searchPath(RoadGraph graph, int source, int target) {
+        LocalGraphRoutingEngine.SearchState state = new LocalGraphRoutingEngine.SearchState(graph.getNodeCount());
+        int meeting = state.search(graph, source, target);
+        assertThat(meeting).isNotEqualTo(-1);
+        List<Integer> path = new ArrayList<>();
+        for (int node : state.path(meeting)) {
+            path.add(node);
+        }
+        return path;
+    }
+
+    private static double pathCost(RoadGraph graph, List<Integer> path) {
+        int[] nodes = new int[path.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = path.get(i);
+        }
+        return pathCost(graph, nodes);
+    }
+
+    // Fastest parallel edge between consecutive nodes, as the engine does
+    private static double pathCost(RoadGraph graph, int[] path) {
+        double cost = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            int best = Integer.MAX_VALUE;
+            for (int e = graph.offsets[path[i]]; e < graph.offsets[path[i] + 1]; e++) {
+                if (graph.targets[e] == path[i + 1]) {
+                    best = Math.min(best, graph.durationDs[e]);
+                }
+            }
+            assertThat(best).isNotEqualTo(Integer.MAX_VALUE);
+            cost += best;
+        }
+        return cost;
+    }
+
+    // Travel time in deciseconds from source to every node
+    private static double[] dijkstra(RoadGraph graph, int source) {
+        double[] dist = new double[graph.getNodeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((x, y) -> Double.compare(x[0], y[0]));
+        queue.add(new double[]{0, source});
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int u = (int) top[1];
+            if (top[0] > dist[u]) {
+                continue;
+            }
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                double d = dist[u] + graph.durationDs[e];
+                if (d < dist[graph.targets[e]]) {
+                    dist[graph.targets[e]] = d;
+                    queue.add(new double[]{d, graph.targets[e]});
+                }
+            }
+        }
+        return dist;
+    }
+
+    // size x size grid; each street is two-way, one-way either direction, or missing
+    private static RoadGraph randomGrid(Random random, int size) {
+        GraphBuilder builder = new GraphBuilder();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                builder.node(LAT + i * STEP, LON + j * STEP);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int node = i * size + j;
+                if (j + 1 < size) {
+                    street(builder, random, node, node + 1);
+                }
+                if (i + 1 < size) {
+                    street(builder, random, node, node + size);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static void street(GraphBuilder builder, Random random, int a, int b) {
+        int kind = random.nextInt(5);
+        double speedKmh = 20 + random.nextInt(80);
+        if (kind != 1 && kind != 4) {
+            builder.edge(a, b, speedKmh);
+        }
+        if (kind != 2 && kind != 4) {
+            builder.edge(b, a, speedKmh);
+        }
+    }
+
+    private static final class GraphBuilder {
+        private final List<double[]> nodes = new ArrayList<>();
+        private final List<double[]> edges = new ArrayList<>();
+
+        int node(double lat, double lon) {
+            nodes.add(new double[]{lat, lon});
+            return nodes.size() - 1;
+        }
+
+        void edge(int from, int to, double speedKmh) {
+            edges.add(new double[]{from, to, speedKmh});
+        }
+
+        RoadGraph build() {
+            int n = nodes.size();
+            int m = edges.size();
+            edges.sort((x, y) -> Double.compare(x[0], y[0]));
+            int[] latE6 = new int[n];
+            int[] lonE6 = new int[n];
+            for (int i = 0; i < n; i++) {
+                latE6[i] = (int) Math.round(nodes.get(i)[0] * 1e6);
+                lonE6[i] = (int) Math.round(nodes.get(i)[1] * 1e6);
+            }
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            int[] meters = new int[m];
+            int[] durations = new int[m];
+            for (int e = 0; e < m; e++) {
+                int from = (int) edges.get(e)[0];
+                int to = (int) edges.get(e)[1];
+                offsets[from + 1]++;
+                targets[e] = to;
+                meters[e] = (int) Math.ceil(DistanceUtil.haversineDistance(latE6[from] / 1e6, lonE6[from] / 1e6,
+                        latE6[to] / 1e6, lonE6[to] / 1e6) * 1000);
+                durations[e] = (int) Math.ceil(meters[e] / (edges.get(e)[2] / 3.6) * 10);
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            return new RoadGraph(latE6, lonE6, offsets, targets, meters, durations, 250);
+        }
+    }
+}
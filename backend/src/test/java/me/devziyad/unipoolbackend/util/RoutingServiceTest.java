@@ -0,0 +1,121 @@
+package me.devziyad.unipoolbackend.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RoutingService against a local OSRM stub (no network access required).
+ */
+public class RoutingServiceTest {
+
+    private static final String OSRM_OK = """
+            {"code":"Ok","routes":[{"distance":12345.0,"duration":900.0,
+            "geometry":"o{~}C_hfsHowH_pR"}]}""";
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMs = 0;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/route/v1/driving/", exchange -> {
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = (status == 200 ? OSRM_OK : "{\"code\":\"Error\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private RoutingService newService(int failureThreshold) {
+        // No persistence file; the cache is exercised by the repeated-request test below
+        return new RoutingService(new RouteCache(50, 1000, 24, ""), new LocalGraphRoutingEngine("", 500, 250), "osrm",
+                "http://127.0.0.1:" + server.getAddress().getPort(),
+                1000, 2000, 16, failureThreshold, 60_000);
+    }
+
+    @Test
+    void shouldReturnRouteFromOsrm() {
+        RoutingService.RouteInfo info = newService(5).getRouteInfo(26.05, 50.50, 26.10, 50.60);
+
+        assertThat(info.getDistanceKm()).isEqualTo(12.345);
+        assertThat(info.getDurationMinutes()).isEqualTo(15);
+        assertThat(info.getPolyline()).isEqualTo("o{~}C_hfsHowH_pR");
+    }
+
+    @Test
+    void shouldServeNearbyRepeatRequestsFromCache() {
+        RoutingService service = newService(5);
+
+        service.getRouteInfo(26.05, 50.50, 26.10, 50.60);
+        // Same trip within the 50 m grid cell
+        RoutingService.RouteInfo info = service.getRouteInfo(26.05001, 50.50001, 26.10001, 50.60001);
+
+        assertThat(info.getDistanceKm()).isEqualTo(12.345);
+        assertThat(hits.get()).isEqualTo(1);
+        assertThat(service.getCacheStats().get("hits")).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldCoalesceConcurrentIdenticalRequests() {
+        delayMs = 300;
+        RoutingService service = newService(5);
+
+        ExecutorService callers = Executors.newFixedThreadPool(10);
+        List<CompletableFuture<RoutingService.RouteInfo>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> service.getRouteInfo(26.05, 50.50, 26.10, 50.60), callers));
+        }
+        futures.forEach(f -> assertThat(f.join().getDistanceKm()).isEqualTo(12.345));
+        callers.shutdown();
+
+        assertThat(hits.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOpenCircuitAndFallBackWhenOsrmFails() {
+        status = 500;
+        RoutingService service = newService(3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(service.getRouteInfo(26.05, 50.50, 26.10, 50.60 + i * 0.01).getPolyline()).isNull();
+        }
+        assertThat(service.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Open circuit: Haversine fallback without calling the upstream
+        RoutingService.RouteInfo info = service.getRouteInfo(26.05, 50.50, 26.10, 50.70);
+        assertThat(hits.get()).isEqualTo(3);
+        assertThat(info.getPolyline()).isNull();
+        assertThat(info.getDistanceKm()).isEqualTo(DistanceUtil.haversineDistance(26.05, 50.50, 26.10, 50.70));
+    }
+}
@@ -3,11 +3,34 @@ import '../models/notification.dart';
 import 'api_client.dart';
 
 class NotificationService {
-  /// Get all notifications for current user
+  /// Get all notifications for current user, following the feed's pages
   static Future<List<Notification>> getMyNotifications() async {
-    final response = await ApiClient.get('/notifications/me');
+    final notifications = <Notification>[];
+    String? cursor;
+    do {
+      final page = await getNotificationPage(cursor: cursor, limit: 100);
+      notifications.addAll(page.notifications);
+      cursor = page.nextCursor;
+    } while (cursor != null);
+    return notifications;
+  }
+
+  /// Get one page of notifications for current user, newest first.
+  /// Pass the previous page's [NotificationPage.nextCursor] to get older ones.
+  static Future<NotificationPage> getNotificationPage({
+    String? cursor,
+    int limit = 50,
+  }) async {
+    final query = cursor == null
+        ? '?limit=$limit'
+        : '?limit=$limit&cursor=${Uri.encodeQueryComponent(cursor)}';
+    final response = await ApiClient.get('/notifications/me$query');
     final List<dynamic> data = jsonDecode(response.body);
-    return data.map((json) => Notification.fromJson(json)).toList();
+    return NotificationPage(
+      notifications: data.map((json) => Notification.fromJson(json)).toList(),
+      // The http package lower-cases header names
+      nextCursor: response.headers['x-next-cursor'],
+    );
   }
 
   /// Get unread notifications for current user
@@ -95,3 +118,11 @@ class NotificationService {
     }
   }
 }
+
+/// A page of the notification feed; [nextCursor] is null on the last page.
+class NotificationPage {
+  final List<Notification> notifications;
+  final String? nextCursor;
+
+  NotificationPage({required this.notifications, this.nextCursor});
+}